@@ -21,8 +21,10 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 
 /**
  * @author Clinton Begin
@@ -38,12 +40,37 @@ public @interface CacheNamespace {
 
   long flushInterval() default 0;
 
+  /**
+   * Expires the entries one by one, see {@link org.apache.ibatis.cache.decorators.ScheduledCache}. Negative when the
+   * whole cache is cleared every flush interval.
+   * @since 3.5.0
+   */
+  long refreshAhead() default -1;
+
   int size() default 1024;
 
   boolean readWrite() default true;
   
   boolean blocking() default false;
 
+  /**
+   * Coalesces concurrent misses of a key into one query, see {@link org.apache.ibatis.cache.decorators.SingleFlightCache}.
+   * @since 3.5.0
+   */
+  boolean singleFlight() default false;
+
+  /**
+   * The serializer that copies the cached objects when the cache is read/write.
+   * @since 3.5.0
+   */
+  Class<? extends CacheSerializer> serializer() default JavaCacheSerializer.class;
+
+  /**
+   * Compresses the serialized objects that are large enough.
+   * @since 3.5.0
+   */
+  boolean compress() default false;
+
   /**
    * Property values for a implementation object.
    * @since 3.4.2
@@ -63,4 +63,20 @@ public @interface Options {
   String keyColumn() default "";
   
   String resultSets() default "";
+
+  /**
+   * The comma separated names of the tables the statement reads and writes.
+   * They are found in the SQL when not declared and table cache invalidation is enabled.
+   *
+   * @since 3.5.0
+   */
+  String tables() default "";
+
+  /**
+   * The id of the result map of the only object the statement changes, identified by its parameter.
+   * The object is evicted from the cache instead of clearing it when the entity cache is enabled.
+   *
+   * @since 3.5.0
+   */
+  String evictEntity() default "";
 }
@@ -0,0 +1,176 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The parameter object of a call to a mapper method with several parameters, holding the arguments of the call in
+ * slots whose names are fixed when the mapper method is built.
+ * <p>
+ * It answers the same names as a {@link MapperMethod.ParamMap} (the parameter names and <code>param1</code>,
+ * <code>param2</code>, ...) but reads the arguments from the argument array of the call instead of copying them into
+ * a hash map. The names of the parameters cannot be removed. Values put under other names, such as the keys set by
+ * a <code>selectKey</code>, are kept aside as in a <code>ParamMap</code>.
+ *
+ * @see org.apache.ibatis.session.Configuration#isFixedParamMapsEnabled()
+ */
+public class FixedParamMap extends AbstractMap<String, Object> {
+
+  private final Layout layout;
+  private final Object[] args;
+  private Map<String, Object> extraParams;
+
+  public FixedParamMap(Layout layout, Object[] args) {
+    this.layout = layout;
+    this.args = args;
+  }
+
+  public Layout getLayout() {
+    return layout;
+  }
+
+  /*
+   * Gets the argument of a slot, as resolved once with Layout.indexOf
+   */
+  public Object getArg(int argIndex) {
+    return args[argIndex];
+  }
+
+  @Override
+  public Object get(Object key) {
+    int argIndex = layout.indexOf(key);
+    if (argIndex >= 0) {
+      return args[argIndex];
+    }
+    if (extraParams == null || !extraParams.containsKey(key)) {
+      throw new BindingException("Parameter '" + key + "' not found. Available parameters are " + keySet());
+    }
+    return extraParams.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return layout.indexOf(key) >= 0 || (extraParams != null && extraParams.containsKey(key));
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int argIndex = layout.indexOf(key);
+    if (argIndex >= 0) {
+      Object previous = args[argIndex];
+      args[argIndex] = value;
+      return previous;
+    }
+    if (extraParams == null) {
+      extraParams = new LinkedHashMap<String, Object>();
+    }
+    return extraParams.put(key, value);
+  }
+
+  @Override
+  public int size() {
+    return layout.names.length + (extraParams == null ? 0 : extraParams.size());
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return FixedParamMap.this.size();
+      }
+    };
+  }
+
+  private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+    private int slot;
+    private final Iterator<Map.Entry<String, Object>> extraEntries = extraParams == null
+        ? Collections.<String, Object>emptyMap().entrySet().iterator()
+        : Collections.unmodifiableMap(extraParams).entrySet().iterator();
+
+    @Override
+    public boolean hasNext() {
+      return slot < layout.names.length || extraEntries.hasNext();
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      if (slot < layout.names.length) {
+        Map.Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(layout.names[slot], args[layout.argIndexes[slot]]);
+        slot++;
+        return entry;
+      }
+      if (!extraEntries.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return extraEntries.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("The parameters of a mapper method cannot be removed");
+    }
+  }
+
+  /**
+   * The names of the parameters of one mapper method and the index of the argument each of them reads.
+   */
+  public static class Layout {
+
+    private final String[] names;
+    private final int[] argIndexes;
+    private final Map<String, Integer> indexes;
+
+    /*
+     * @param names - the names of the slots, in iteration order
+     * @param argIndexes - the index in the argument array of the call of the argument of each name
+     */
+    public Layout(String[] names, int[] argIndexes) {
+      this.names = names.clone();
+      this.argIndexes = argIndexes.clone();
+      Map<String, Integer> map = new HashMap<String, Integer>();
+      for (int i = 0; i < names.length; i++) {
+        if (!map.containsKey(names[i])) {
+          map.put(names[i], argIndexes[i]);
+        }
+      }
+      this.indexes = map;
+    }
+
+    /*
+     * Returns the index in the argument array of the argument of a name, or -1 when it is not a parameter name
+     */
+    public int indexOf(Object name) {
+      Integer argIndex = indexes.get(name);
+      return argIndex == null ? -1 : argIndex;
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * The methods of a mapper interface as used by its implementation generated at build time by
+ * {@link org.apache.ibatis.binding.processing.MapperProcessor}.
+ * <p>
+ * An implementation calls the {@link SqlSession} directly for the methods whose statement is known when it is
+ * generated, naming their parameters with the {@link Parameters} found in the source, and executes the other methods
+ * with a {@link MapperMethod}, as a {@link MapperProxy} does. One instance is shared by all the implementations of a
+ * mapper interface created by a {@link MapperProxyFactory}.
+ *
+ * @since 3.5.0
+ */
+public class GeneratedMapperMethods {
+
+  /**
+   * The suffix added to the binary name of a mapper interface to get the name of its generated implementation.
+   */
+  public static final String IMPLEMENTATION_SUFFIX = "_MyBatisImpl";
+
+  private final Configuration configuration;
+  private final Class<?> mapperInterface;
+  private final Map<Method, MapperMethod> methodCache;
+  private final Map<Parameters, ParamNameResolver> paramNameResolvers = new ConcurrentHashMap<Parameters, ParamNameResolver>();
+  private final Map<Signature, MapperMethod> mapperMethods = new ConcurrentHashMap<Signature, MapperMethod>();
+
+  public GeneratedMapperMethods(Configuration configuration, Class<?> mapperInterface, Map<Method, MapperMethod> methodCache) {
+    this.configuration = configuration;
+    this.mapperInterface = mapperInterface;
+    this.methodCache = methodCache;
+  }
+
+  /**
+   * Gets the parameter object of a call, as {@link ParamNameResolver#getNamedParams(Object[])} does.
+   */
+  public Object getNamedParams(Parameters parameters, Object[] args) {
+    ParamNameResolver resolver = paramNameResolvers.get(parameters);
+    if (resolver == null) {
+      resolver = new ParamNameResolver(configuration, parameters.indexes, parameters.names, parameters.declaredNames);
+      paramNameResolvers.put(parameters, resolver);
+    }
+    return resolver.getNamedParams(args);
+  }
+
+  /**
+   * Executes a method of the mapper interface with its {@link MapperMethod}.
+   */
+  public Object execute(Signature signature, SqlSession sqlSession, Object[] args) {
+    MapperMethod mapperMethod = mapperMethods.get(signature);
+    if (mapperMethod == null) {
+      Method method = signature.getMethod(mapperInterface);
+      mapperMethod = methodCache.get(method);
+      if (mapperMethod == null) {
+        mapperMethod = new MapperMethod(mapperInterface, method, configuration);
+        methodCache.put(method, mapperMethod);
+      }
+      mapperMethods.put(signature, mapperMethod);
+    }
+    return mapperMethod.execute(sqlSession, args);
+  }
+
+  /**
+   * The parameters of a mapper method other than its {@link org.apache.ibatis.session.RowBounds} and
+   * {@link org.apache.ibatis.session.ResultHandler}.
+   */
+  public static final class Parameters {
+
+    private final int[] indexes;
+    private final String[] names;
+    private final String[] declaredNames;
+
+    /*
+     * @param indexes - the index of each parameter among the arguments
+     * @param names - the value of the @Param of each parameter, or null
+     * @param declaredNames - the name each parameter is declared with
+     */
+    public Parameters(int[] indexes, String[] names, String[] declaredNames) {
+      this.indexes = indexes;
+      this.names = names;
+      this.declaredNames = declaredNames;
+    }
+  }
+
+  /**
+   * The name and parameter types of a mapper method.
+   */
+  public static final class Signature {
+
+    private final String name;
+    private final Class<?>[] parameterTypes;
+
+    public Signature(String name, Class<?>[] parameterTypes) {
+      this.name = name;
+      this.parameterTypes = parameterTypes;
+    }
+
+    Method getMethod(Class<?> mapperInterface) {
+      try {
+        return mapperInterface.getMethod(name, parameterTypes);
+      } catch (NoSuchMethodException e) {
+        throw new BindingException("Method " + name + Arrays.toString(parameterTypes) + " of the implementation of "
+            + mapperInterface.getName() + " was not found in the mapper interface. Cause: " + e, e);
+      }
+    }
+  }
+
+}
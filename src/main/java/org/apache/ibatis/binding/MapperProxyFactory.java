@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.binding;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
@@ -29,9 +30,41 @@ public class MapperProxyFactory<T> {
 
   private final Class<T> mapperInterface;
   private final Map<Method, MapperMethod> methodCache = new ConcurrentHashMap<Method, MapperMethod>();
+  private final Constructor<? extends T> generatedConstructor;
+  private volatile GeneratedMapperMethods generatedMethods;
 
   public MapperProxyFactory(Class<T> mapperInterface) {
     this.mapperInterface = mapperInterface;
+    this.generatedConstructor = findGeneratedConstructor(mapperInterface);
+  }
+
+  /*
+   * Finds the constructor of the implementation generated by the MapperProcessor, if it was run on the interface
+   */
+  private static <T> Constructor<? extends T> findGeneratedConstructor(Class<T> mapperInterface) {
+    try {
+      Class<?> type = Class.forName(mapperInterface.getName() + GeneratedMapperMethods.IMPLEMENTATION_SUFFIX, false,
+          mapperInterface.getClassLoader());
+      if (!mapperInterface.isAssignableFrom(type)) {
+        return null;
+      }
+      return type.asSubclass(mapperInterface).getConstructor(SqlSession.class, GeneratedMapperMethods.class);
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (LinkageError e) {
+      return null;
+    }
+  }
+
+  /**
+   * Tells whether the mappers are instances of the implementation generated at build time instead of proxies.
+   *
+   * @since 3.5.0
+   */
+  public boolean isGenerated() {
+    return generatedConstructor != null;
   }
 
   public Class<T> getMapperInterface() {
@@ -44,12 +77,29 @@ public class MapperProxyFactory<T> {
 
   @SuppressWarnings("unchecked")
   protected T newInstance(MapperProxy<T> mapperProxy) {
-    return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class[] { mapperInterface }, mapperProxy);
+    return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class<?>[] { mapperInterface }, mapperProxy);
   }
 
   public T newInstance(SqlSession sqlSession) {
+    if (generatedConstructor != null) {
+      return newGeneratedInstance(sqlSession);
+    }
     final MapperProxy<T> mapperProxy = new MapperProxy<T>(sqlSession, mapperInterface, methodCache);
     return newInstance(mapperProxy);
   }
 
+  private T newGeneratedInstance(SqlSession sqlSession) {
+    GeneratedMapperMethods methods = generatedMethods;
+    if (methods == null) {
+      // the factory belongs to the mapper registry of a single configuration
+      methods = new GeneratedMapperMethods(sqlSession.getConfiguration(), mapperInterface, methodCache);
+      generatedMethods = methods;
+    }
+    try {
+      return generatedConstructor.newInstance(sqlSession, methods);
+    } catch (Exception e) {
+      throw new BindingException("Error creating the implementation of " + mapperInterface.getName() + ". Cause: " + e, e);
+    }
+  }
+
 }
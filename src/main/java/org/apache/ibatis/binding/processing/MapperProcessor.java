@@ -0,0 +1,385 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding.processing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.DeleteProvider;
+import org.apache.ibatis.annotations.Flush;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.InsertProvider;
+import org.apache.ibatis.annotations.MapKey;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.SelectProvider;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.binding.GeneratedMapperMethods;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * Generates an implementation of each interface annotated with {@link org.apache.ibatis.annotations.Mapper}, which
+ * the {@link org.apache.ibatis.binding.MapperProxyFactory} of the interface creates instead of a proxy.
+ * <p>
+ * The methods whose statement is declared with an annotation on the method, and which return a single object, a
+ * <code>List</code> or <code>Collection</code>, or the count of an insert, update or delete, call the
+ * {@link SqlSession} directly, with the names of their parameters found in the source. The other methods are
+ * executed with a {@link org.apache.ibatis.binding.MapperMethod} as a proxy would. Generic interfaces and generic
+ * methods are left to proxies.
+ * <p>
+ * The processor is not registered as a service. It is run by naming it with the <code>-processor</code> option of
+ * <code>javac</code> or in the annotation processor configuration of the build.
+ *
+ * @since 3.5.0
+ */
+@SupportedAnnotationTypes("org.apache.ibatis.annotations.Mapper")
+public class MapperProcessor extends AbstractProcessor {
+
+  private static final String METHODS = GeneratedMapperMethods.class.getName();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(org.apache.ibatis.annotations.Mapper.class)) {
+      if (element.getKind() == ElementKind.INTERFACE) {
+        generate((TypeElement) element);
+      }
+    }
+    return false;
+  }
+
+  private void generate(TypeElement mapper) {
+    String reason = getUnsupportedReason(mapper);
+    if (reason != null) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+          "No implementation is generated for " + mapper.getQualifiedName() + " because " + reason, mapper);
+      return;
+    }
+    Elements elements = processingEnv.getElementUtils();
+    String binaryName = elements.getBinaryName(mapper).toString();
+    String packageName = elements.getPackageOf(mapper).getQualifiedName().toString();
+    String simpleName = binaryName.substring(packageName.length() == 0 ? 0 : packageName.length() + 1)
+        + GeneratedMapperMethods.IMPLEMENTATION_SUFFIX;
+    try {
+      Writer writer = processingEnv.getFiler().createSourceFile(binaryName + GeneratedMapperMethods.IMPLEMENTATION_SUFFIX, mapper).openWriter();
+      try {
+        writer.write(new Source(mapper, binaryName, packageName, simpleName).toString());
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not write the implementation of " + mapper.getQualifiedName() + ". Cause: " + e, mapper);
+    }
+  }
+
+  private String getUnsupportedReason(TypeElement mapper) {
+    if (!mapper.getTypeParameters().isEmpty()) {
+      return "it has type parameters";
+    }
+    for (Element element = mapper; !(element instanceof PackageElement); element = element.getEnclosingElement()) {
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        return "it is not visible from its package";
+      }
+    }
+    for (ExecutableElement method : getAbstractMethods(mapper)) {
+      if (!method.getTypeParameters().isEmpty()) {
+        return "its method " + method.getSimpleName() + " has type parameters";
+      }
+    }
+    return null;
+  }
+
+  private List<ExecutableElement> getAbstractMethods(TypeElement mapper) {
+    Map<String, ExecutableElement> methods = new LinkedHashMap<String, ExecutableElement>();
+    Types types = processingEnv.getTypeUtils();
+    for (Element member : processingEnv.getElementUtils().getAllMembers(mapper)) {
+      if (member.getKind() == ElementKind.METHOD && member.getModifiers().contains(Modifier.ABSTRACT)) {
+        ExecutableElement method = (ExecutableElement) member;
+        StringBuilder key = new StringBuilder(method.getSimpleName());
+        for (VariableElement parameter : method.getParameters()) {
+          key.append(',').append(types.erasure(parameter.asType()));
+        }
+        if (!methods.containsKey(key.toString())) {
+          methods.put(key.toString(), method);
+        }
+      }
+    }
+    return new ArrayList<ExecutableElement>(methods.values());
+  }
+
+  /*
+   * The source of the implementation of one mapper interface
+   */
+  private class Source {
+
+    private final TypeElement mapper;
+    private final String binaryName;
+    private final String source;
+    private final StringBuilder constants = new StringBuilder();
+    private final StringBuilder methods = new StringBuilder();
+    private int constantCount;
+
+    Source(TypeElement mapper, String binaryName, String packageName, String simpleName) {
+      this.mapper = mapper;
+      this.binaryName = binaryName;
+      for (ExecutableElement method : getAbstractMethods(mapper)) {
+        addMethod(method);
+      }
+      StringBuilder source = new StringBuilder();
+      if (packageName.length() > 0) {
+        source.append("package ").append(packageName).append(";\n\n");
+      }
+      source.append("/**\n * Implementation of {@link ").append(mapper.getQualifiedName())
+          .append("} generated by ").append(MapperProcessor.class.getName()).append(".\n */\n");
+      source.append("@SuppressWarnings(\"unchecked\")\n");
+      source.append("public final class ").append(simpleName).append(" implements ").append(mapper.getQualifiedName()).append(" {\n\n");
+      source.append(constants);
+      if (constantCount > 0) {
+        source.append('\n');
+      }
+      source.append("  private final ").append(SqlSession.class.getName()).append(" sqlSession;\n");
+      source.append("  private final ").append(METHODS).append(" methods;\n\n");
+      source.append("  public ").append(simpleName).append('(').append(SqlSession.class.getName()).append(" sqlSession, ")
+          .append(METHODS).append(" methods) {\n");
+      source.append("    this.sqlSession = sqlSession;\n");
+      source.append("    this.methods = methods;\n");
+      source.append("  }\n");
+      source.append(methods);
+      source.append("\n}\n");
+      this.source = source.toString();
+    }
+
+    @Override
+    public String toString() {
+      return source;
+    }
+
+    private void addMethod(ExecutableElement method) {
+      Types types = processingEnv.getTypeUtils();
+      ExecutableType type = (ExecutableType) types.asMemberOf((DeclaredType) mapper.asType(), method);
+      List<? extends TypeMirror> parameterTypes = type.getParameterTypes();
+      TypeMirror returnType = type.getReturnType();
+
+      methods.append("\n  @Override\n  public ").append(returnType).append(' ').append(method.getSimpleName()).append('(');
+      StringBuilder args = new StringBuilder();
+      for (int i = 0; i < parameterTypes.size(); i++) {
+        String parameterType = parameterTypes.get(i).toString();
+        if (method.isVarArgs() && i == parameterTypes.size() - 1 && parameterType.endsWith("[]")) {
+          parameterType = parameterType.substring(0, parameterType.length() - 2) + "...";
+        }
+        methods.append(i == 0 ? "" : ", ").append(parameterType).append(" arg").append(i);
+        args.append(i == 0 ? "" : ", ").append("arg").append(i);
+      }
+      methods.append(") {\n    ");
+
+      String call = getDirectCall(method, parameterTypes, returnType, args.toString());
+      if (call == null) {
+        call = getMapperMethodCall(method, parameterTypes, returnType, args.toString());
+      }
+      methods.append(call).append(";\n  }\n");
+    }
+
+    /*
+     * Calls the SqlSession for a statement declared on the method itself, or returns null
+     */
+    private String getDirectCall(ExecutableElement method, List<? extends TypeMirror> parameterTypes, TypeMirror returnType, String args) {
+      SqlCommandType command = getSqlCommandType(method);
+      if (command == null || !mapper.equals(method.getEnclosingElement()) || method.getAnnotation(Flush.class) != null) {
+        return null;
+      }
+      List<Integer> indexes = new ArrayList<Integer>();
+      List<String> names = new ArrayList<String>();
+      List<String> declaredNames = new ArrayList<String>();
+      String rowBounds = null;
+      for (int i = 0; i < parameterTypes.size(); i++) {
+        if (isAssignable(parameterTypes.get(i), ResultHandler.class)) {
+          return null;
+        } else if (isAssignable(parameterTypes.get(i), RowBounds.class)) {
+          if (rowBounds != null) {
+            return null;
+          }
+          rowBounds = "arg" + i;
+        } else {
+          VariableElement parameter = method.getParameters().get(i);
+          Param param = parameter.getAnnotation(Param.class);
+          indexes.add(i);
+          names.add(param == null ? null : param.value());
+          declaredNames.add(parameter.getSimpleName().toString());
+        }
+      }
+      String statement = literal(binaryName + "." + method.getSimpleName());
+      String parameter = getParameterObject(indexes, names, declaredNames, args);
+      if (command == SqlCommandType.SELECT) {
+        String select;
+        if (isRawType(returnType, List.class) || isRawType(returnType, Collection.class)) {
+          select = "selectList";
+        } else if (returnsSingleObject(method, returnType)) {
+          select = "selectOne";
+        } else {
+          return null;
+        }
+        return "return this.sqlSession." + select + "(" + statement + ", " + parameter
+            + (rowBounds != null && select.equals("selectList") ? ", " + rowBounds : "") + ")";
+      }
+      String update = "this.sqlSession." + command.name().toLowerCase(Locale.ENGLISH) + "(" + statement + ", " + parameter + ")";
+      if (returnType.getKind() == TypeKind.VOID) {
+        return update;
+      } else if (isType(returnType, TypeKind.INT, Integer.class)) {
+        return "return " + update;
+      } else if (isType(returnType, TypeKind.LONG, Long.class)) {
+        return "return (long) " + update;
+      } else if (isType(returnType, TypeKind.BOOLEAN, Boolean.class)) {
+        return "return " + update + " > 0";
+      }
+      return null;
+    }
+
+    private String getParameterObject(List<Integer> indexes, List<String> names, List<String> declaredNames, String args) {
+      if (indexes.isEmpty()) {
+        return "null";
+      } else if (indexes.size() == 1 && names.get(0) == null) {
+        return "arg" + indexes.get(0);
+      }
+      String constant = "PARAMETERS_" + constantCount++;
+      StringBuilder indexList = new StringBuilder();
+      StringBuilder nameList = new StringBuilder();
+      StringBuilder declaredNameList = new StringBuilder();
+      for (int i = 0; i < indexes.size(); i++) {
+        String separator = i == 0 ? "" : ", ";
+        indexList.append(separator).append(indexes.get(i));
+        nameList.append(separator).append(names.get(i) == null ? "null" : literal(names.get(i)));
+        declaredNameList.append(separator).append(literal(declaredNames.get(i)));
+      }
+      constants.append("  private static final ").append(METHODS).append(".Parameters ").append(constant)
+          .append(" = new ").append(METHODS).append(".Parameters(\n      new int[] { ").append(indexList)
+          .append(" }, new String[] { ").append(nameList).append(" }, new String[] { ").append(declaredNameList).append(" });\n");
+      return "this.methods.getNamedParams(" + constant + ", new Object[] { " + args + " })";
+    }
+
+    private String getMapperMethodCall(ExecutableElement method, List<? extends TypeMirror> parameterTypes, TypeMirror returnType, String args) {
+      Types types = processingEnv.getTypeUtils();
+      String constant = "SIGNATURE_" + constantCount++;
+      StringBuilder classes = new StringBuilder();
+      for (int i = 0; i < parameterTypes.size(); i++) {
+        classes.append(i == 0 ? "" : ", ").append(types.erasure(parameterTypes.get(i))).append(".class");
+      }
+      constants.append("  private static final ").append(METHODS).append(".Signature ").append(constant)
+          .append(" = new ").append(METHODS).append(".Signature(\n      ").append(literal(method.getSimpleName().toString()))
+          .append(classes.length() == 0 ? ", new Class<?>[0]);\n" : ", new Class<?>[] { " + classes + " });\n");
+      String call = "this.methods.execute(" + constant + ", this.sqlSession, "
+          + (parameterTypes.isEmpty() ? "null" : "new Object[] { " + args + " }") + ")";
+      if (returnType.getKind() == TypeKind.VOID) {
+        return call;
+      } else if (returnType.getKind().isPrimitive()) {
+        return "return (" + types.boxedClass(types.getPrimitiveType(returnType.getKind())).getQualifiedName() + ") " + call;
+      }
+      return "return (" + returnType + ") " + call;
+    }
+
+    private boolean returnsSingleObject(ExecutableElement method, TypeMirror returnType) {
+      if (returnType.getKind() != TypeKind.DECLARED) {
+        return false;
+      }
+      if (isAssignable(returnType, Collection.class) || isAssignable(returnType, Cursor.class)
+          || isAssignable(returnType, Future.class) || isRawType(returnType, "java.util.Optional")) {
+        return false;
+      }
+      return !isAssignable(returnType, Map.class) || method.getAnnotation(MapKey.class) == null;
+    }
+  }
+
+  private SqlCommandType getSqlCommandType(ExecutableElement method) {
+    if (method.getAnnotation(Select.class) != null || method.getAnnotation(SelectProvider.class) != null) {
+      return SqlCommandType.SELECT;
+    } else if (method.getAnnotation(Insert.class) != null || method.getAnnotation(InsertProvider.class) != null) {
+      return SqlCommandType.INSERT;
+    } else if (method.getAnnotation(Update.class) != null || method.getAnnotation(UpdateProvider.class) != null) {
+      return SqlCommandType.UPDATE;
+    } else if (method.getAnnotation(Delete.class) != null || method.getAnnotation(DeleteProvider.class) != null) {
+      return SqlCommandType.DELETE;
+    }
+    return null;
+  }
+
+  private boolean isAssignable(TypeMirror type, Class<?> target) {
+    TypeElement element = processingEnv.getElementUtils().getTypeElement(target.getCanonicalName());
+    Types types = processingEnv.getTypeUtils();
+    return element != null && types.isAssignable(types.erasure(type), types.erasure(element.asType()));
+  }
+
+  private boolean isRawType(TypeMirror type, Class<?> target) {
+    return isRawType(type, target.getName());
+  }
+
+  private boolean isRawType(TypeMirror type, String className) {
+    return type.getKind() == TypeKind.DECLARED
+        && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(className);
+  }
+
+  private boolean isType(TypeMirror type, TypeKind primitive, Class<?> boxed) {
+    return type.getKind() == primitive || isRawType(type, boxed);
+  }
+
+  private static String literal(String value) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        literal.append('\\');
+      }
+      literal.append(c);
+    }
+    return literal.append('"').toString();
+  }
+
+}
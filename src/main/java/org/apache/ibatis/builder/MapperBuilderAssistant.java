@@ -26,6 +26,8 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
@@ -130,16 +132,40 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, null, size, readWrite, blocking, false, null, false, props);
+  }
+
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Long refreshAhead,
+      Integer size,
+      boolean readWrite,
+      boolean blocking,
+      boolean singleFlight,
+      Class<? extends CacheSerializer> serializer,
+      boolean compress,
+      Properties props) {
+    CacheMetrics metrics = configuration.isCacheMetricsEnabled() ? new CacheMetrics(currentNamespace) : null;
     Cache cache = new CacheBuilder(currentNamespace)
         .implementation(valueOrDefault(typeClass, PerpetualCache.class))
         .addDecorator(valueOrDefault(evictionClass, LruCache.class))
         .clearInterval(flushInterval)
+        .refreshAhead(refreshAhead)
         .size(size)
         .readWrite(readWrite)
         .blocking(blocking)
+        .singleFlight(singleFlight)
+        .metrics(metrics)
+        .tableTimestamps(configuration.getTableTimestamps())
+        .serializer(serializer)
+        .compress(compress)
         .properties(props)
         .build();
     configuration.addCache(cache);
+    if (metrics != null) {
+      configuration.addCacheMetrics(metrics);
+    }
     currentCache = cache;
     return cache;
   }
@@ -268,7 +294,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String keyColumn,
       String databaseId,
       LanguageDriver lang,
-      String resultSets) {
+      String resultSets,
+      Set<String> tables,
+      String evictEntity) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -293,6 +321,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
         .useCache(valueOrDefault(useCache, isSelect))
+        .tables(tables)
+        .evictEntity(applyCurrentNamespace(evictEntity, true))
         .cache(currentCache);
 
     ParameterMap statementParameterMap = getStatementParameterMap(parameterMap, parameterType, id);
@@ -374,7 +404,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
       List<ResultFlag> flags,
       String resultSet,
       String foreignColumn,
-      boolean lazy) {
+      boolean lazy,
+      Integer batchSize) {
     Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
     TypeHandler<?> typeHandlerInstance = resolveTypeHandler(javaTypeClass, typeHandler);
     List<ResultMapping> composites = parseCompositeColumnName(column);
@@ -390,9 +421,31 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .columnPrefix(columnPrefix)
         .foreignColumn(foreignColumn)
         .lazy(lazy)
+        .batchSize(batchSize)
         .build();
   }
 
+  /** Backward compatibility signature */
+  public ResultMapping buildResultMapping(
+      Class<?> resultType,
+      String property,
+      String column,
+      Class<?> javaType,
+      JdbcType jdbcType,
+      String nestedSelect,
+      String nestedResultMap,
+      String notNullColumn,
+      String columnPrefix,
+      Class<? extends TypeHandler<?>> typeHandler,
+      List<ResultFlag> flags,
+      String resultSet,
+      String foreignColumn,
+      boolean lazy) {
+    return buildResultMapping(
+      resultType, property, column, javaType, jdbcType, nestedSelect,
+      nestedResultMap, notNullColumn, columnPrefix, typeHandler, flags, resultSet, foreignColumn, lazy, null);
+  }
+
   private Set<String> parseMultipleColumnNames(String columnName) {
     Set<String> columns = new HashSet<String>();
     if (columnName != null) {
@@ -484,6 +537,51 @@ public class MapperBuilderAssistant extends BaseBuilder {
   }
 
   /** Backward compatibility signature */
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null, null);
+  }
+
+  /**
+   * Gets the tables a statement reads and writes, either declared or found in its SQL when table
+   * invalidation is enabled.
+   *
+   * @param declaredTables comma separated table names, or null
+   * @param sql the text of the statement, or null if it is built by a provider
+   * @return The normalized table names, or null if they are not known
+   * @since 3.5.0
+   */
+  public Set<String> resolveTables(String declaredTables, String sql, StatementType statementType) {
+    Set<String> tables = TableNameParser.parseDeclared(declaredTables);
+    if (tables == null && configuration.isTableCacheInvalidationEnabled() && statementType != StatementType.CALLABLE) {
+      tables = TableNameParser.parse(sql);
+    }
+    return tables;
+  }
+
   public MappedStatement addMappedStatement(
     String id,
     SqlSource sqlSource,
@@ -0,0 +1,286 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables an SQL statement reads and writes: the names that follow FROM, JOIN, INTO, UPDATE,
+ * TABLE and USING, including the ones of subqueries.
+ * <p>
+ * Names are reduced to their unqualified, lower case form so the same table matches however it is written.
+ * The result is null when the tables cannot be known from the text, that is when the SQL uses
+ * <code>${}</code> substitutions, reads from a table function, or names no table at all.
+ * Views, triggers and stored procedures are not followed.
+ *
+ * @since 3.5.0
+ */
+public class TableNameParser {
+
+  private static final Set<String> TABLE_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "FROM", "JOIN", "INTO", "UPDATE", "TABLE", "USING"));
+
+  private static final Set<String> RESERVED_WORDS = new HashSet<String>(Arrays.asList(
+      "SELECT", "FROM", "WHERE", "SET", "VALUES", "VALUE", "ON", "USING", "JOIN", "INNER", "LEFT", "RIGHT",
+      "FULL", "OUTER", "CROSS", "NATURAL", "STRAIGHT_JOIN", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET",
+      "FETCH", "UNION", "INTERSECT", "EXCEPT", "MINUS", "WINDOW", "FOR", "WHEN", "THEN", "AS", "DEFAULT",
+      "RETURNING", "PARTITION", "START", "CONNECT", "WITH", "LATERAL", "ONLY", "QUALIFY", "TABLESAMPLE",
+      "OUTPUT", "OPTION", "IGNORE", "LOW_PRIORITY", "DELAYED", "HIGH_PRIORITY", "TABLE"));
+
+  private static final char WORD = 'w';
+
+  private final List<String> tokens = new ArrayList<String>();
+  private final List<Character> types = new ArrayList<Character>();
+  private int position;
+
+  private TableNameParser() {
+  }
+
+  /*
+   * Parses a comma separated list of table names
+   *
+   * @return The normalized names, or null if the list is empty
+   */
+  public static Set<String> parseDeclared(String tables) {
+    if (tables == null) {
+      return null;
+    }
+    Set<String> names = new LinkedHashSet<String>();
+    for (String table : tables.split(",")) {
+      String name = normalize(table.trim());
+      if (name.length() > 0) {
+        names.add(name);
+      }
+    }
+    return names.isEmpty() ? null : Collections.unmodifiableSet(names);
+  }
+
+  /*
+   * Finds the tables an SQL statement reads and writes
+   *
+   * @return The normalized names, or null if they cannot be known
+   */
+  public static Set<String> parse(String sql) {
+    if (sql == null) {
+      return null;
+    }
+    TableNameParser parser = new TableNameParser();
+    if (!parser.tokenize(sql)) {
+      return null;
+    }
+    return parser.findTables();
+  }
+
+  private Set<String> findTables() {
+    Set<String> tables = new LinkedHashSet<String>();
+    for (position = 0; position < tokens.size(); position++) {
+      if (isWord(position) && TABLE_KEYWORDS.contains(upper(position))) {
+        position++;
+        if (!readTableList(tables)) {
+          return null;
+        }
+        position--;
+      }
+    }
+    return tables.isEmpty() ? null : Collections.unmodifiableSet(tables);
+  }
+
+  /*
+   * Reads "table [AS] [alias] [, table [AS] [alias]]..." and returns false when a table function is found
+   */
+  private boolean readTableList(Set<String> tables) {
+    while (position < tokens.size()) {
+      if (isWord(position) && "ONLY".equals(upper(position))) {
+        position++;
+      }
+      if (!isName(position)) {
+        // a subquery, a column list or a keyword
+        return true;
+      }
+      if (isPunctuation(position + 1, '(')) {
+        // a table function, or a column list after INSERT INTO
+        if (!"INTO".equals(upper(position - 1))) {
+          return false;
+        }
+        tables.add(normalize(tokens.get(position)));
+        return true;
+      }
+      tables.add(normalize(tokens.get(position)));
+      position++;
+      if (isWord(position) && "AS".equals(upper(position))) {
+        position++;
+      }
+      if (isName(position)) {
+        position++;
+      }
+      if (!isPunctuation(position, ',')) {
+        return true;
+      }
+      position++;
+    }
+    return true;
+  }
+
+  private boolean tokenize(String sql) {
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if ((c == '$' || c == '#') && i + 1 < length && sql.charAt(i + 1) == '{') {
+        if (c == '$') {
+          return false;
+        }
+        int end = sql.indexOf('}', i);
+        i = end < 0 ? length : end + 1;
+        add("?", '?');
+      } else if (c == '\'') {
+        i = skipQuoted(sql, i, '\'');
+        add("'", '\'');
+      } else if (c == '"' || c == '`' || c == '[') {
+        int end = skipQuoted(sql, i, c == '[' ? ']' : c);
+        i = appendQualifiedName(sql, sql.substring(i, end), end);
+      } else if (isWordChar(c)) {
+        int end = i;
+        while (end < length && isWordChar(sql.charAt(end))) {
+          end++;
+        }
+        i = appendQualifiedName(sql, sql.substring(i, end), end);
+      } else {
+        add(String.valueOf(c), c);
+        i++;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Joins the parts of schema.table, whichever of them are quoted
+   */
+  private int appendQualifiedName(String sql, String name, int end) {
+    StringBuilder builder = new StringBuilder(name);
+    int i = end;
+    while (i + 1 < sql.length() && sql.charAt(i) == '.') {
+      char c = sql.charAt(i + 1);
+      int partEnd;
+      if (c == '"' || c == '`' || c == '[') {
+        partEnd = skipQuoted(sql, i + 1, c == '[' ? ']' : c);
+      } else if (isWordChar(c)) {
+        partEnd = i + 1;
+        while (partEnd < sql.length() && isWordChar(sql.charAt(partEnd))) {
+          partEnd++;
+        }
+      } else {
+        break;
+      }
+      builder.append('.').append(sql, i + 1, partEnd);
+      i = partEnd;
+    }
+    add(builder.toString(), WORD);
+    return i;
+  }
+
+  private static int skipQuoted(String sql, int start, char close) {
+    int i = start + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i) == close) {
+        if (i + 1 < sql.length() && sql.charAt(i + 1) == close && close != ']') {
+          // escaped quote
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return sql.length();
+  }
+
+  private void add(String token, char type) {
+    tokens.add(token);
+    types.add(type);
+  }
+
+  private boolean isWord(int index) {
+    return index >= 0 && index < tokens.size() && types.get(index) == WORD;
+  }
+
+  private boolean isName(int index) {
+    return isWord(index) && !Character.isDigit(tokens.get(index).charAt(0)) && !RESERVED_WORDS.contains(upper(index));
+  }
+
+  private boolean isPunctuation(int index, char c) {
+    return index < tokens.size() && types.get(index) == c;
+  }
+
+  private String upper(int index) {
+    return index < 0 ? "" : tokens.get(index).toUpperCase(Locale.ENGLISH);
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@';
+  }
+
+  private static String normalize(String name) {
+    String table = name;
+    int dot = lastUnquotedDot(table);
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    if (table.length() >= 2) {
+      char first = table.charAt(0);
+      if (first == '"' || first == '`' || first == '[') {
+        table = table.substring(1, table.length() - 1);
+      }
+    }
+    return table.toLowerCase(Locale.ENGLISH);
+  }
+
+  private static int lastUnquotedDot(String name) {
+    char quote = 0;
+    int dot = -1;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '[') {
+        quote = ']';
+      } else if (c == '.') {
+        dot = i;
+      }
+    }
+    return dot;
+  }
+
+}
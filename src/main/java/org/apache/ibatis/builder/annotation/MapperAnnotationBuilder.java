@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -191,8 +192,9 @@ public class MapperAnnotationBuilder {
     if (cacheDomain != null) {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
+      Long refreshAhead = cacheDomain.refreshAhead() < 0 ? null : cacheDomain.refreshAhead();
       Properties props = convertToProperties(cacheDomain.properties());
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, refreshAhead, size, cacheDomain.readWrite(), cacheDomain.blocking(), cacheDomain.singleFlight(), cacheDomain.serializer(), cacheDomain.compress(), props);
     }
   }
 
@@ -383,7 +385,10 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          assistant.resolveTables(options != null ? nullOrEmpty(options.tables()) : null,
+              getSqlFromAnnotations(method), statementType),
+          options != null ? nullOrEmpty(options.evictEntity()) : null);
     }
   }
   
@@ -415,6 +420,16 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    if (Jdk.completableFutureExists && resolvedReturnType instanceof ParameterizedType
+        && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType())) {
+      // the result type of a future is the one of its value
+      resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+      if (Void.class.equals(resolvedReturnType)) {
+        resolvedReturnType = void.class;
+      }
+      returnType = resolvedReturnType instanceof ParameterizedType
+          ? (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType() : Object.class;
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
@@ -490,6 +505,28 @@ public class MapperAnnotationBuilder {
     }
   }
 
+  /*
+   * Gets the text of the SQL annotation of a method, or null if the SQL is built by a provider
+   */
+  private String getSqlFromAnnotations(Method method) {
+    Class<? extends Annotation> sqlAnnotationType = getSqlAnnotationType(method);
+    if (sqlAnnotationType == null) {
+      return null;
+    }
+    try {
+      Annotation sqlAnnotation = method.getAnnotation(sqlAnnotationType);
+      final String[] strings = (String[]) sqlAnnotation.getClass().getMethod("value").invoke(sqlAnnotation);
+      final StringBuilder sql = new StringBuilder();
+      for (String fragment : strings) {
+        sql.append(fragment);
+        sql.append(" ");
+      }
+      return sql.toString();
+    } catch (Exception e) {
+      throw new BuilderException("Could not find value method on SQL annotation.  Cause: " + e, e);
+    }
+  }
+
   private SqlSource buildSqlSourceFromStrings(String[] strings, Class<?> parameterTypeClass, LanguageDriver languageDriver) {
     final StringBuilder sql = new StringBuilder();
     for (String fragment : strings) {
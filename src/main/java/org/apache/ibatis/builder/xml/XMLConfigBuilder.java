@@ -42,6 +42,7 @@ import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.LocalCacheEviction;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
@@ -257,7 +258,14 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
+    configuration.setTableCacheInvalidationEnabled(booleanValueOf(props.getProperty("tableCacheInvalidationEnabled"), false));
+    configuration.setEntityCacheEnabled(booleanValueOf(props.getProperty("entityCacheEnabled"), false));
+    configuration.setCacheMetricsJmxEnabled(booleanValueOf(props.getProperty("cacheMetricsJmxEnabled"), false));
+    configuration.setCacheMetricsEnabled(booleanValueOf(props.getProperty("cacheMetricsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), null));
+    configuration.setLocalCacheMaxBytes(longValueOf(props.getProperty("localCacheMaxBytes"), null));
+    configuration.setLocalCacheEviction(LocalCacheEviction.valueOf(props.getProperty("localCacheEviction", "LRU")));
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
@@ -267,7 +275,17 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setDefaultEnumTypeHandler(typeHandler);
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
+    configuration.setFixedParamMapsEnabled(booleanValueOf(props.getProperty("fixedParamMapsEnabled"), false));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setCompiledRowMappersEnabled(booleanValueOf(props.getProperty("compiledRowMappersEnabled"), false));
+    configuration.setPhysicalPaginationEnabled(booleanValueOf(props.getProperty("physicalPaginationEnabled"), false));
+    configuration.setBatchGroupingEnabled(booleanValueOf(props.getProperty("batchGroupingEnabled"), false));
+    configuration.setBatchMaxStatementSize(integerValueOf(props.getProperty("batchMaxStatementSize"), null));
+    configuration.setBatchMaxParameterObjects(integerValueOf(props.getProperty("batchMaxParameterObjects"), null));
+    configuration.setBatchMaxBytes(longValueOf(props.getProperty("batchMaxBytes"), null));
+    configuration.setBatchInsertRewriteSize(integerValueOf(props.getProperty("batchInsertRewriteSize"), null));
+    configuration.setAsyncPoolSize(integerValueOf(props.getProperty("asyncPoolSize"), 8));
+    configuration.setAsyncQueueCapacity(integerValueOf(props.getProperty("asyncQueueCapacity"), 1024));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     @SuppressWarnings("unchecked")
     Class<? extends Log> logImpl = (Class<? extends Log>)resolveClass(props.getProperty("logImpl"));
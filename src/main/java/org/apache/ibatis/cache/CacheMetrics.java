@@ -0,0 +1,195 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+/**
+ * Hit, miss, put, eviction and load time counters of one cache.
+ * <p>
+ * Counters are {@link LongAdder}s, so recording takes no lock. Evictions are reported by the caches that evict,
+ * see {@link #recordEvictions(int)}. Loads are the queries run after a miss, counted in a histogram whose buckets end at
+ * {@link #getLoadTimeHistogramBoundsMillis()}, the last one being unbounded.
+ *
+ * @since 3.5.0
+ * @see org.apache.ibatis.session.Configuration#getCacheMetrics(String)
+ */
+public class CacheMetrics implements CacheMetricsMBean {
+
+  private static final long[] LOAD_TIME_BOUNDS_MILLIS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+  private final String id;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder loadNanos = new LongAdder();
+  private final LongAdder[] loadTimeHistogram = new LongAdder[LOAD_TIME_BOUNDS_MILLIS.length + 1];
+  private volatile Cache cache;
+  private volatile MetaObject estimatedBytesSource;
+
+  public CacheMetrics(String id) {
+    this.id = id;
+    for (int i = 0; i < loadTimeHistogram.length; i++) {
+      loadTimeHistogram[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Reports the size of a cache and, when its base cache has an <code>estimatedBytes</code> property, its size in
+   * bytes.
+   */
+  public void bind(Cache cache, Cache baseCache) {
+    this.cache = cache;
+    MetaObject metaCache = SystemMetaObject.forObject(baseCache);
+    this.estimatedBytesSource = metaCache.hasGetter("estimatedBytes") ? metaCache : null;
+  }
+
+  public void recordHit() {
+    hits.increment();
+  }
+
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  public void recordPut() {
+    puts.increment();
+  }
+
+  /**
+   * Called by the local caches, and by the caches having a <code>metrics</code> property such as
+   * {@link org.apache.ibatis.cache.decorators.LruCache}, when they drop entries to make room for others.
+   */
+  public void recordEvictions(int count) {
+    evictions.add(count);
+  }
+
+  public void recordLoad(long nanos) {
+    loadNanos.add(nanos);
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    int bucket = 0;
+    while (bucket < LOAD_TIME_BOUNDS_MILLIS.length && millis >= LOAD_TIME_BOUNDS_MILLIS[bucket]) {
+      bucket++;
+    }
+    loadTimeHistogram[bucket].increment();
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long hitCount = getHits();
+    long requests = hitCount + getMisses();
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public long getPuts() {
+    return puts.sum();
+  }
+
+  /**
+   * @return the entries dropped to make room for others, as reported by the evicting cache
+   */
+  @Override
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return the number of entries, or -1 if not known
+   */
+  @Override
+  public int getSize() {
+    Cache current = cache;
+    return current == null ? -1 : current.getSize();
+  }
+
+  /**
+   * @return the size of the entries in bytes, or -1 if not known
+   */
+  @Override
+  public long getEstimatedBytes() {
+    MetaObject source = estimatedBytesSource;
+    return source == null ? -1 : ((Number) source.getValue("estimatedBytes")).longValue();
+  }
+
+  @Override
+  public long getLoads() {
+    long loads = 0;
+    for (LongAdder counter : loadTimeHistogram) {
+      loads += counter.sum();
+    }
+    return loads;
+  }
+
+  @Override
+  public double getAverageLoadMillis() {
+    long loads = getLoads();
+    return loads == 0 ? 0 : loadNanos.sum() / 1000000.0 / loads;
+  }
+
+  @Override
+  public long[] getLoadTimeHistogram() {
+    long[] histogram = new long[loadTimeHistogram.length];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = loadTimeHistogram[i].sum();
+    }
+    return histogram;
+  }
+
+  @Override
+  public long[] getLoadTimeHistogramBoundsMillis() {
+    return LOAD_TIME_BOUNDS_MILLIS.clone();
+  }
+
+  @Override
+  public void reset() {
+    hits.reset();
+    misses.reset();
+    puts.reset();
+    evictions.reset();
+    loadNanos.reset();
+    for (LongAdder counter : loadTimeHistogram) {
+      counter.reset();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "CacheMetrics[" + id + ": hits=" + getHits() + ", misses=" + getMisses() + ", puts=" + getPuts()
+        + ", evictions=" + getEvictions() + ", size=" + getSize() + ", loads=" + getLoads() + "]";
+  }
+
+}
@@ -0,0 +1,51 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Management interface of the {@link CacheMetrics} exported through JMX.
+ *
+ * @since 3.5.0
+ */
+public interface CacheMetricsMBean {
+
+  String getId();
+
+  long getHits();
+
+  long getMisses();
+
+  double getHitRatio();
+
+  long getPuts();
+
+  long getEvictions();
+
+  int getSize();
+
+  long getEstimatedBytes();
+
+  long getLoads();
+
+  double getAverageLoadMillis();
+
+  long[] getLoadTimeHistogram();
+
+  long[] getLoadTimeHistogramBoundsMillis();
+
+  void reset();
+
+}
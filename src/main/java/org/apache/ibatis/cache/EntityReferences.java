@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The identities of the objects a query returned, cached instead of the objects when the entity cache is enabled.
+ * <p>
+ * The objects themselves are cached once each, under a key made of the id of the select that read them, the id of
+ * their result map and the values of its <code>&lt;id&gt;</code> properties, so the executions of a select returning
+ * the same rows share them and a single object can be evicted. Objects read by different selects are kept apart,
+ * because the selects may fill different properties of them. Integral ids are compared by value, so an id read as an <code>Integer</code> matches a
+ * <code>Long</code> parameter.
+ *
+ * @see org.apache.ibatis.session.Configuration#isEntityCacheEnabled()
+ * @since 3.5.0
+ */
+public class EntityReferences implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final CacheKey[] keys;
+
+  public EntityReferences(CacheKey[] keys) {
+    this.keys = keys;
+  }
+
+  public CacheKey[] getKeys() {
+    return keys;
+  }
+
+  /**
+   * Gets the keys of the objects of a query result.
+   *
+   * @return The keys, in the order of the objects, or null if one of the objects has no identity
+   */
+  public static CacheKey[] keysOf(Configuration configuration, String statementId, ResultMap resultMap, List<?> objects) {
+    if (!hasIdentity(resultMap)) {
+      return null;
+    }
+    List<ResultMapping> idMappings = resultMap.getIdResultMappings();
+    CacheKey[] keys = new CacheKey[objects.size()];
+    for (int i = 0; i < keys.length; i++) {
+      Object object = objects.get(i);
+      if (object == null) {
+        return null;
+      }
+      keys[i] = keyOf(statementId, resultMap, idMappings, configuration.newMetaObject(object));
+      if (keys[i] == null) {
+        return null;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Gets the key of the object read by a select that a statement parameter identifies, either a single id value or
+   * an object holding the id properties of the result map.
+   *
+   * @return The key, or null if the parameter does not identify one object
+   */
+  public static CacheKey keyOfParameter(Configuration configuration, String statementId, ResultMap resultMap, Object parameterObject) {
+    if (parameterObject == null || !hasIdentity(resultMap)) {
+      return null;
+    }
+    List<ResultMapping> idMappings = resultMap.getIdResultMappings();
+    if (idMappings.size() == 1 && configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+      CacheKey key = newKey(statementId, resultMap);
+      key.update(normalize(parameterObject));
+      return key;
+    }
+    return keyOf(statementId, resultMap, idMappings, configuration.newMetaObject(parameterObject));
+  }
+
+  /*
+   * Only the explicit <id> mappings of simple properties identify an object
+   */
+  private static boolean hasIdentity(ResultMap resultMap) {
+    for (ResultMapping idMapping : resultMap.getIdResultMappings()) {
+      if (!idMapping.getFlags().contains(ResultFlag.ID) || idMapping.getProperty() == null
+          || idMapping.getNestedResultMapId() != null || idMapping.getNestedQueryId() != null) {
+        return false;
+      }
+    }
+    return !resultMap.getIdResultMappings().isEmpty();
+  }
+
+  private static CacheKey keyOf(String statementId, ResultMap resultMap, List<ResultMapping> idMappings, MetaObject metaObject) {
+    CacheKey key = newKey(statementId, resultMap);
+    for (ResultMapping idMapping : idMappings) {
+      String property = idMapping.getProperty();
+      if (!metaObject.hasGetter(property)) {
+        return null;
+      }
+      Object value = metaObject.getValue(property);
+      if (value == null) {
+        return null;
+      }
+      key.update(normalize(value));
+    }
+    return key;
+  }
+
+  private static CacheKey newKey(String statementId, ResultMap resultMap) {
+    CacheKey key = new CacheKey();
+    key.update("entity:" + resultMap.getId());
+    key.update(statementId);
+    return key;
+  }
+
+  private static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,81 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * A cached value along with the generation of its kind of entries, when the entity cache is enabled and updates
+ * or deletes of the namespace declare <code>evictEntity</code>.
+ * <p>
+ * The objects of a result map and the results holding their identities are one kind, identified by the id of the
+ * result map, and the results without identities are another one. Evicting an object starts a new generation of all
+ * the other kinds, so the cached counts, scalars and objects of other result maps that may hold the changed row
+ * are read again, while the other objects of its result map stay cached.
+ *
+ * @see EntityReferences
+ * @since 3.5.0
+ */
+public class GenerationalEntry implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The kind of the results without identities.
+   */
+  public static final String NO_IDENTITY = "";
+
+  private final Object value;
+  private final String kind;
+  private final String generation;
+
+  public GenerationalEntry(Object value, String kind, String generation) {
+    this.value = value;
+    this.kind = kind;
+    this.generation = generation;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public String getKind() {
+    return kind;
+  }
+
+  public String getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Gets the key under which a cache holds the current generation of a kind of entries.
+   */
+  public static CacheKey generationKey(String kind) {
+    CacheKey key = new CacheKey();
+    key.update("generation:");
+    key.update(kind);
+    return key;
+  }
+
+  /**
+   * Creates a generation unique to all the nodes sharing a cache.
+   */
+  public static String newGeneration() {
+    return UUID.randomUUID().toString();
+  }
+
+}
@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records when each table was last written, so cached results can tell whether a table they were read
+ * from changed after they were read.
+ * <p>
+ * Timestamps come from a counter, not from the clock. A result read at timestamp <code>t</code> is up
+ * to date as long as none of its tables was invalidated with a timestamp greater than <code>t</code>.
+ * The timestamps are kept in memory, so they only cover the writes made through this configuration.
+ *
+ * @since 3.5.0
+ */
+public class TableTimestamps {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final ConcurrentMap<String, Long> invalidations = new ConcurrentHashMap<String, Long>();
+
+  /*
+   * Gets the timestamp to tag a result with, to be taken before the result is read from the database
+   */
+  public long currentTimestamp() {
+    return clock.get();
+  }
+
+  /*
+   * Marks tables as written, to be called once the write is committed
+   */
+  public void invalidate(Collection<String> tables) {
+    long timestamp = clock.incrementAndGet();
+    for (String table : tables) {
+      Long previous;
+      do {
+        previous = invalidations.putIfAbsent(table, timestamp);
+        // a concurrent invalidation may have stored a later timestamp already
+      } while (previous != null && previous < timestamp && !invalidations.replace(table, previous, timestamp));
+    }
+  }
+
+  public boolean isUpToDate(String[] tables, long timestamp) {
+    for (String table : tables) {
+      Long invalidation = invalidations.get(table);
+      if (invalidation != null && invalidation > timestamp) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
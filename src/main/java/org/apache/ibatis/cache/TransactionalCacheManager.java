@@ -16,7 +16,9 @@
 package org.apache.ibatis.cache;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
 
@@ -26,11 +28,49 @@ import org.apache.ibatis.cache.decorators.TransactionalCache;
 public class TransactionalCacheManager {
 
   private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<Cache, TransactionalCache>();
+  private final TableTimestamps tableTimestamps;
+  private final Set<String> invalidatedTables = new HashSet<String>();
+
+  public TransactionalCacheManager() {
+    this(null);
+  }
+
+  /**
+   * @param tableTimestamps the timestamps that let writes invalidate tables instead of clearing caches, or null
+   * @since 3.5.0
+   */
+  public TransactionalCacheManager(TableTimestamps tableTimestamps) {
+    this.tableTimestamps = tableTimestamps;
+  }
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
   }
 
+  /**
+   * Invalidates the entries read from some tables in all the caches once committed, or clears the cache
+   * if the tables are not known.
+   *
+   * @param cache the cache of the statement that writes the tables, or null if it has none
+   * @since 3.5.0
+   */
+  public void invalidate(Cache cache, Set<String> tables) {
+    if (cache != null) {
+      getTransactionalCache(cache).invalidate(tables);
+    } else if (tableTimestamps != null && tables != null) {
+      invalidatedTables.addAll(tables);
+    }
+  }
+
+  /**
+   * Evicts a single entry of a cache once committed.
+   *
+   * @since 3.5.0
+   */
+  public void evict(Cache cache, CacheKey key) {
+    getTransactionalCache(cache).evict(key);
+  }
+
   public Object getObject(Cache cache, CacheKey key) {
     return getTransactionalCache(cache).getObject(key);
   }
@@ -39,22 +79,40 @@ public class TransactionalCacheManager {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public void putObject(Cache cache, CacheKey key, Object value, Set<String> tables, long timestamp) {
+    getTransactionalCache(cache).putObject(key, value, tables, timestamp);
+  }
+
   public void commit() {
-    for (TransactionalCache txCache : transactionalCaches.values()) {
-      txCache.commit();
+    if (!invalidatedTables.isEmpty()) {
+      tableTimestamps.invalidate(invalidatedTables);
+    }
+    try {
+      for (TransactionalCache txCache : transactionalCaches.values()) {
+        txCache.commit();
+      }
+    } finally {
+      invalidatedTables.clear();
     }
   }
 
   public void rollback() {
-    for (TransactionalCache txCache : transactionalCaches.values()) {
-      txCache.rollback();
+    try {
+      for (TransactionalCache txCache : transactionalCaches.values()) {
+        txCache.rollback();
+      }
+    } finally {
+      invalidatedTables.clear();
     }
   }
 
   private TransactionalCache getTransactionalCache(Cache cache) {
     TransactionalCache txCache = transactionalCaches.get(cache);
     if (txCache == null) {
-      txCache = new TransactionalCache(cache);
+      txCache = new TransactionalCache(cache, tableTimestamps, invalidatedTables);
       transactionalCaches.put(cache, txCache);
     }
     return txCache;
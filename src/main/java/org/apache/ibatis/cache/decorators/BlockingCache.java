@@ -115,7 +115,8 @@ public class BlockingCache implements Cache {
   
   private void releaseLock(Object key) {
     ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) {
+    // entries can be put without being read first, as the objects of the entity cache are
+    if (lock != null && lock.isHeldByCurrentThread()) {
       lock.unlock();
     }
   }
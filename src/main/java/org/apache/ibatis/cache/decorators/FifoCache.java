@@ -20,6 +20,7 @@ import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
 
 /**
  * FIFO (first in, first out) cache decorator
@@ -33,6 +34,7 @@ public class FifoCache implements Cache {
   private final Cache delegate;
   private final Deque<Object> keyList;
   private int size;
+  private CacheMetrics metrics;
 
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
@@ -54,6 +56,10 @@ public class FifoCache implements Cache {
     this.size = size;
   }
 
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     cycleKeyList(key);
@@ -85,7 +91,9 @@ public class FifoCache implements Cache {
     keyList.addLast(key);
     if (keyList.size() > size) {
       Object oldestKey = keyList.removeFirst();
-      delegate.removeObject(oldestKey);
+      if (delegate.removeObject(oldestKey) != null && metrics != null) {
+        metrics.recordEvictions(1);
+      }
     }
   }
 
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
 
 /**
  * Lru (least recently used) cache decorator
@@ -39,6 +40,7 @@ public class LruCache implements Cache {
    * 调用 {@link #cycleKeyList(Object)} 方法, 因此每次只需要清除最旧的那一个对象(如果有的话)就行了;
    */
   private Object eldestKey;
+  private CacheMetrics metrics;
 
   public LruCache(Cache delegate) {
     this.delegate = delegate;
@@ -70,6 +72,10 @@ public class LruCache implements Cache {
     };
   }
 
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     delegate.putObject(key, value);
@@ -101,7 +107,9 @@ public class LruCache implements Cache {
   private void cycleKeyList(Object key) {
     keyMap.put(key, key);
     if (eldestKey != null) {
-      delegate.removeObject(eldestKey);
+      if (delegate.removeObject(eldestKey) != null && metrics != null) {
+        metrics.recordEvictions(1);
+      }
       eldestKey = null;
     }
   }
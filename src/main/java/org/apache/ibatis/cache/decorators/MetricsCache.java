@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.TableTimestamps;
+
+/**
+ * Records the hits, misses and puts of a cache in its {@link CacheMetrics}. Evictions are reported by the evicting
+ * cache itself, and entries of tables changed since they were read count as misses, as the sessions discard them.
+ *
+ * @since 3.5.0
+ */
+public class MetricsCache implements Cache {
+
+  private final Cache delegate;
+  private final CacheMetrics metrics;
+  private final TableTimestamps tableTimestamps;
+
+  public MetricsCache(Cache delegate, CacheMetrics metrics) {
+    this(delegate, metrics, null);
+  }
+
+  public MetricsCache(Cache delegate, CacheMetrics metrics, TableTimestamps tableTimestamps) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.tableTimestamps = tableTimestamps;
+  }
+
+  public CacheMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    delegate.putObject(key, object);
+    if (object != null) {
+      metrics.recordPut();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null || isStale(value)) {
+      metrics.recordMiss();
+    } else {
+      metrics.recordHit();
+    }
+    return value;
+  }
+
+  private boolean isStale(Object value) {
+    if (tableTimestamps == null || !(value instanceof TableDependentEntry)) {
+      return false;
+    }
+    TableDependentEntry entry = (TableDependentEntry) value;
+    return !tableTimestamps.isUpToDate(entry.getTables(), entry.getTimestamp());
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
@@ -15,11 +15,21 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
 
 /**
+ * Clears the cache every <code>clearInterval</code> milliseconds or, once a <code>refreshAhead</code> window
+ * is set, expires each entry <code>clearInterval</code> milliseconds after it was cached.
+ * <p>
+ * In the refresh ahead window before an entry expires, the first reader gets a miss and reloads it, while the
+ * other readers keep getting the current value until the reloaded one is put, so hot keys do not all miss at
+ * the same moment.
+ *
  * @author Clinton Begin
  */
 public class ScheduledCache implements Cache {
@@ -27,6 +37,8 @@ public class ScheduledCache implements Cache {
   private final Cache delegate;
   protected long clearInterval;
   protected long lastClear;
+  protected long refreshAhead = -1;
+  private final ConcurrentMap<Object, Object> refreshing = new ConcurrentHashMap<Object, Object>();
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
@@ -38,6 +50,16 @@ public class ScheduledCache implements Cache {
     this.clearInterval = clearInterval;
   }
 
+  /**
+   * Expires every entry on its own, and lets one reader reload it during the last milliseconds of its life.
+   *
+   * @param refreshAhead the length of the refresh window, 0 to expire the entries without refreshing them
+   * @since 3.5.0
+   */
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -51,17 +73,30 @@ public class ScheduledCache implements Cache {
 
   @Override
   public void putObject(Object key, Object object) {
+    if (isPerEntry()) {
+      refreshing.remove(key);
+      // a null value only releases a blocking cache
+      delegate.putObject(key, object == null ? null : new ExpiringEntry(object, System.currentTimeMillis()));
+      return;
+    }
     clearWhenStale();
     delegate.putObject(key, object);
   }
 
   @Override
   public Object getObject(Object key) {
+    if (isPerEntry()) {
+      return getUnexpiredObject(key);
+    }
     return clearWhenStale() ? null : delegate.getObject(key);
   }
 
   @Override
   public Object removeObject(Object key) {
+    if (isPerEntry()) {
+      refreshing.remove(key);
+      return unwrap(delegate.removeObject(key));
+    }
     clearWhenStale();
     return delegate.removeObject(key);
   }
@@ -69,6 +104,7 @@ public class ScheduledCache implements Cache {
   @Override
   public void clear() {
     lastClear = System.currentTimeMillis();
+    refreshing.clear();
     delegate.clear();
   }
 
@@ -87,6 +123,33 @@ public class ScheduledCache implements Cache {
     return delegate.equals(obj);
   }
 
+  private boolean isPerEntry() {
+    return refreshAhead >= 0;
+  }
+
+  private Object getUnexpiredObject(Object key) {
+    Object object = delegate.getObject(key);
+    if (!(object instanceof ExpiringEntry)) {
+      return object;
+    }
+    ExpiringEntry entry = (ExpiringEntry) object;
+    long age = System.currentTimeMillis() - entry.cachedAt;
+    if (age > clearInterval) {
+      refreshing.remove(key);
+      delegate.removeObject(key);
+      return null;
+    }
+    if (age > clearInterval - refreshAhead && refreshing.putIfAbsent(key, Boolean.TRUE) == null) {
+      // this reader reloads the entry, the others keep reading it until it is put again
+      return null;
+    }
+    return entry.value;
+  }
+
+  private Object unwrap(Object object) {
+    return object instanceof ExpiringEntry ? ((ExpiringEntry) object).value : object;
+  }
+
   private boolean clearWhenStale() {
     if (System.currentTimeMillis() - lastClear > clearInterval) {
       clear();
@@ -95,4 +158,17 @@ public class ScheduledCache implements Cache {
     return false;
   }
 
+  private static final class ExpiringEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object value;
+    private final long cachedAt;
+
+    ExpiringEntry(Object value, long cachedAt) {
+      this.value = value;
+      this.cachedAt = cachedAt;
+    }
+  }
+
 }
@@ -0,0 +1,144 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Blocking decorator that coalesces concurrent misses of a key into one query.
+ * <p>
+ * The first thread that misses a key starts a flight and queries the database, and the threads that miss it
+ * meanwhile wait for that flight and then read the value it put in the cache. Unlike {@link BlockingCache} no
+ * lock is held: any put or removal of the key completes the flight, nothing is allocated on hits, and a
+ * thread that misses a key again while its own flight is running is never blocked by it. Readers that wait
+ * longer than <code>timeout</code> milliseconds, when it is set, stop waiting and query the database too.
+ *
+ * @since 3.5.0
+ */
+public class SingleFlightCache implements Cache {
+
+  private long timeout;
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Flight> flights;
+
+  public SingleFlightCache(Cache delegate) {
+    this.delegate = delegate;
+    this.flights = new ConcurrentHashMap<Object, Flight>();
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    try {
+      delegate.putObject(key, value);
+    } finally {
+      land(key);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    while (true) {
+      Object value = delegate.getObject(key);
+      if (value != null) {
+        return value;
+      }
+      Flight flight = new Flight();
+      Flight running = flights.putIfAbsent(key, flight);
+      if (running == null) {
+        // the previous flight may have landed since the miss
+        value = delegate.getObject(key);
+        if (value != null) {
+          land(key);
+        }
+        return value;
+      }
+      if (running.owner == Thread.currentThread() || !running.await(key)) {
+        return null;
+      }
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    // despite of its name, this method is called only to release the readers waiting for a key
+    land(key);
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  private void land(Object key) {
+    Flight flight = flights.remove(key);
+    if (flight != null) {
+      flight.landed.countDown();
+    }
+  }
+
+  private final class Flight {
+
+    private final Thread owner = Thread.currentThread();
+    private final CountDownLatch landed = new CountDownLatch(1);
+
+    /*
+     * @return false if the flight did not land within the timeout
+     */
+    boolean await(Object key) {
+      try {
+        if (timeout > 0) {
+          return landed.await(timeout, TimeUnit.MILLISECONDS);
+        }
+        landed.await();
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CacheException("Got interrupted while waiting for the value of key " + key + " at the cache " + delegate.getId(), e);
+      }
+    }
+  }
+
+}
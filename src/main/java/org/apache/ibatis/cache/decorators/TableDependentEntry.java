@@ -0,0 +1,51 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.Serializable;
+
+/**
+ * A cached value along with the tables it was read from and the timestamp it was read at.
+ *
+ * @see org.apache.ibatis.cache.TableTimestamps
+ */
+class TableDependentEntry implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Object value;
+  private final String[] tables;
+  private final long timestamp;
+
+  TableDependentEntry(Object value, String[] tables, long timestamp) {
+    this.value = value;
+    this.tables = tables;
+    this.timestamp = timestamp;
+  }
+
+  Object getValue() {
+    return value;
+  }
+
+  String[] getTables() {
+    return tables;
+  }
+
+  long getTimestamp() {
+    return timestamp;
+  }
+
+}
@@ -17,11 +17,13 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableTimestamps;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -33,6 +35,10 @@ import org.apache.ibatis.logging.LogFactory;
  * Blocking cache support has been added. Therefore any get() that returns a cache miss 
  * will be followed by a put() so any lock associated with the key can be released. 
  * 
+ * When {@link TableTimestamps} are given, entries can be tagged with the tables they were read from and
+ * writes can invalidate tables instead of clearing the whole cache. Tagged entries read from a table written
+ * in this session, or invalidated since they were read, are treated as misses.
+ * 
  * @author Clinton Begin
  * @author Eduardo Macarron
  */
@@ -41,15 +47,31 @@ public class TransactionalCache implements Cache {
   private static final Log log = LogFactory.getLog(TransactionalCache.class);
 
   private final Cache delegate;
+  private final TableTimestamps tableTimestamps;
   private boolean clearOnCommit;
   private final Map<Object, Object> entriesToAddOnCommit;
   private final Set<Object> entriesMissedInCache;
+  private final Set<Object> entriesToEvictOnCommit;
+  private final Set<String> invalidatedTables;
 
   public TransactionalCache(Cache delegate) {
+    this(delegate, null, null);
+  }
+
+  /**
+   * @param tableTimestamps the timestamps of the tables, or null to clear the cache on writes
+   * @param invalidatedTables the tables written in this session, shared by its transactional caches and
+   *        invalidated by their manager on commit
+   * @since 3.5.0
+   */
+  public TransactionalCache(Cache delegate, TableTimestamps tableTimestamps, Set<String> invalidatedTables) {
     this.delegate = delegate;
+    this.tableTimestamps = tableTimestamps;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<Object, Object>();
     this.entriesMissedInCache = new HashSet<Object>();
+    this.entriesToEvictOnCommit = new HashSet<Object>();
+    this.invalidatedTables = invalidatedTables;
   }
 
   @Override
@@ -66,6 +88,14 @@ public class TransactionalCache implements Cache {
   public Object getObject(Object key) {
     // issue #116
     Object object = delegate.getObject(key);
+    if (object instanceof TableDependentEntry) {
+      TableDependentEntry entry = (TableDependentEntry) object;
+      object = isUpToDate(entry) ? entry.getValue() : null;
+    }
+    if (entriesToEvictOnCommit.contains(key)) {
+      // changed by this session
+      object = null;
+    }
     if (object == null) {
       entriesMissedInCache.add(key);
     }
@@ -85,6 +115,49 @@ public class TransactionalCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     entriesToAddOnCommit.put(key, object);
+    entriesToEvictOnCommit.remove(key);
+  }
+
+  /**
+   * Adds an entry that is evicted once one of the tables it was read from is invalidated.
+   *
+   * @param tables the tables the value was read from, or null if they are not known
+   * @param timestamp the {@link TableTimestamps#currentTimestamp()} taken before the value was read
+   * @since 3.5.0
+   */
+  public void putObject(Object key, Object object, Set<String> tables, long timestamp) {
+    if (tableTimestamps == null) {
+      putObject(key, object);
+      return;
+    }
+    String[] dependencies = tables == null ? new String[] { getCacheTable() } : tables.toArray(new String[tables.size()]);
+    entriesToAddOnCommit.put(key, new TableDependentEntry(object, dependencies, timestamp));
+    entriesToEvictOnCommit.remove(key);
+  }
+
+  /**
+   * Evicts a single entry once committed, instead of clearing the cache.
+   *
+   * @since 3.5.0
+   */
+  public void evict(Object key) {
+    entriesToAddOnCommit.remove(key);
+    entriesToEvictOnCommit.add(key);
+  }
+
+  /**
+   * Invalidates the entries read from some tables, or clears the cache if the tables are not known.
+   * Entries whose tables are not known are invalidated along with any table.
+   *
+   * @since 3.5.0
+   */
+  public void invalidate(Set<String> tables) {
+    if (tableTimestamps == null || tables == null) {
+      clear();
+      return;
+    }
+    invalidatedTables.addAll(tables);
+    invalidatedTables.add(getCacheTable());
   }
 
   @Override
@@ -102,6 +175,9 @@ public class TransactionalCache implements Cache {
     if (clearOnCommit) {
       delegate.clear();
     }
+    if (tableTimestamps != null) {
+      removeOutdatedPendingEntries();
+    }
     flushPendingEntries();
     reset();
   }
@@ -115,9 +191,47 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    entriesToEvictOnCommit.clear();
+  }
+
+  /*
+   * Entries of unknown tables depend on this pseudo table, which every table invalidation of this cache touches
+   */
+  private String getCacheTable() {
+    return "cache:" + delegate.getId();
+  }
+
+  private boolean isUpToDate(TableDependentEntry entry) {
+    if (tableTimestamps == null) {
+      return true;
+    }
+    for (String table : entry.getTables()) {
+      if (invalidatedTables.contains(table)) {
+        // changed by this session
+        return false;
+      }
+    }
+    return tableTimestamps.isUpToDate(entry.getTables(), entry.getTimestamp());
+  }
+
+  private void removeOutdatedPendingEntries() {
+    Iterator<Object> values = entriesToAddOnCommit.values().iterator();
+    while (values.hasNext()) {
+      Object value = values.next();
+      if (value instanceof TableDependentEntry) {
+        TableDependentEntry entry = (TableDependentEntry) value;
+        if (!tableTimestamps.isUpToDate(entry.getTables(), entry.getTimestamp())) {
+          values.remove();
+        }
+      }
+    }
   }
 
   private void flushPendingEntries() {
+    for (Object entry : entriesToEvictOnCommit) {
+      // removeObject only releases locks in blocking caches
+      delegate.putObject(entry, null);
+    }
     for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
       delegate.putObject(entry.getKey(), entry.getValue());
     }
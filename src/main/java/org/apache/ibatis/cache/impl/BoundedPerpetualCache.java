@@ -0,0 +1,251 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link PerpetualCache} with a maximum number of entries and a maximum estimated size in bytes.
+ * <p>
+ * Putting an object never evicts another one: the owner of the cache calls {@link #evictExcess()} once
+ * the entries it still needs are no longer in use, for example between two top level queries of a session,
+ * or {@link #evictExcess(Set)} to keep the entries it still needs.
+ * The least recently used entries, or the least frequently used ones, are evicted first.
+ * <p>
+ * The size of a value is estimated by walking its fields a few levels deep, so it is a rough figure
+ * meant to keep memory bounded, not an exact measure.
+ *
+ * @since 3.5.0
+ */
+public class BoundedPerpetualCache extends PerpetualCache {
+
+  private static final int MAX_DEPTH = 3;
+  private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final boolean leastFrequentlyUsed;
+  private final Map<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+  private long estimatedBytes;
+
+  /*
+   * @param maxEntries - the maximum number of entries, 0 for no limit
+   * @param maxBytes - the maximum estimated size of the values, 0 for no limit
+   * @param leastFrequentlyUsed - true to evict the least frequently used entries instead of the least recently used
+   */
+  public BoundedPerpetualCache(String id, int maxEntries, long maxBytes, boolean leastFrequentlyUsed) {
+    super(id);
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.leastFrequentlyUsed = leastFrequentlyUsed;
+  }
+
+  @Override
+  public int getSize() {
+    return entries.size();
+  }
+
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Entry entry = new Entry(value, maxBytes > 0 ? estimateSize(value, 0) : 0);
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      entry.frequency = previous.frequency;
+      estimatedBytes -= previous.size;
+    }
+    estimatedBytes += entry.size;
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    entry.frequency++;
+    return entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Entry entry = entries.remove(key);
+    if (entry == null) {
+      return null;
+    }
+    estimatedBytes -= entry.size;
+    return entry.value;
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+    estimatedBytes = 0;
+  }
+
+  /*
+   * Evicts entries until the cache is within its limits
+   *
+   * @return The keys of the evicted entries
+   */
+  public List<Object> evictExcess() {
+    return evictExcess(Collections.emptySet());
+  }
+
+  /*
+   * Evicts entries other than the retained ones until the cache is within its limits
+   * or only retained entries are left
+   *
+   * @return The keys of the evicted entries
+   */
+  public List<Object> evictExcess(Set<?> retainedKeys) {
+    List<Object> evictedKeys = new ArrayList<Object>();
+    while ((maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && estimatedBytes > maxBytes)) {
+      Object key = leastFrequentlyUsed ? leastFrequentlyUsedKey(retainedKeys) : leastRecentlyUsedKey(retainedKeys);
+      if (key == null) {
+        break;
+      }
+      removeObject(key);
+      evictedKeys.add(key);
+    }
+    return evictedKeys;
+  }
+
+  private Object leastRecentlyUsedKey(Set<?> retainedKeys) {
+    for (Object key : entries.keySet()) {
+      if (!retainedKeys.contains(key)) {
+        return key;
+      }
+    }
+    return null;
+  }
+
+  /*
+   * Scans from the least recently used entry, so ties are broken by recency
+   */
+  private Object leastFrequentlyUsedKey(Set<?> retainedKeys) {
+    Map.Entry<Object, Entry> victim = null;
+    Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext() && (victim == null || victim.getValue().frequency > 0)) {
+      Map.Entry<Object, Entry> candidate = iterator.next();
+      if (!retainedKeys.contains(candidate.getKey())
+          && (victim == null || candidate.getValue().frequency < victim.getValue().frequency)) {
+        victim = candidate;
+      }
+    }
+    return victim == null ? null : victim.getKey();
+  }
+
+  private static long estimateSize(Object value, int depth) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return 40 + 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return 16 + 2L * ((char[]) value).length;
+    } else if (value instanceof Number || value instanceof Boolean || value instanceof Character
+        || value instanceof Enum || value instanceof java.util.Date) {
+      return 24;
+    } else if (depth >= MAX_DEPTH) {
+      return 16;
+    } else if (value instanceof Collection) {
+      long size = 24;
+      for (Object element : (Collection<?>) value) {
+        size += 8 + estimateSize(element, depth + 1);
+      }
+      return size;
+    } else if (value instanceof Map) {
+      long size = 48;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += 32 + estimateSize(entry.getKey(), depth + 1) + estimateSize(entry.getValue(), depth + 1);
+      }
+      return size;
+    } else if (value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      if (value.getClass().getComponentType().isPrimitive()) {
+        return 16 + 8L * length;
+      }
+      long size = 16;
+      for (int i = 0; i < length; i++) {
+        size += 8 + estimateSize(Array.get(value, i), depth + 1);
+      }
+      return size;
+    }
+    // fields are read directly so lazy loading proxies are not triggered
+    long size = 16;
+    for (Field field : getFields(value.getClass())) {
+      size += 8;
+      if (!field.getType().isPrimitive()) {
+        try {
+          size += estimateSize(field.get(value), depth + 1);
+        } catch (IllegalAccessException e) {
+          // count the reference only
+        }
+      }
+    }
+    return size;
+  }
+
+  private static Field[] getFields(Class<?> type) {
+    Field[] fields = FIELDS.get(type);
+    if (fields == null) {
+      List<Field> instanceFields = new ArrayList<Field>();
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            try {
+              field.setAccessible(true);
+              instanceFields.add(field);
+            } catch (RuntimeException e) {
+              // not accessible, the value is not counted
+            }
+          }
+        }
+      }
+      fields = instanceFields.toArray(new Field[instanceFields.size()]);
+      FIELDS.put(type, fields);
+    }
+    return fields;
+  }
+
+  private static class Entry {
+    private final Object value;
+    private final long size;
+    private int frequency;
+
+    Entry(Object value, long size) {
+      this.value = value;
+      this.size = size;
+    }
+  }
+
+}
@@ -0,0 +1,411 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Thread safe cache that keeps its entries serialized in direct {@link ByteBuffer}s, outside of the heap.
+ * <p>
+ * The memory is split in segments selected by the hash of the key, and each segment in slabs of
+ * <code>slabBytes</code> allocated the first time they are needed. Entries are appended to the current slab
+ * of their segment. When a segment is full, its oldest slab is reused and the entries it held are evicted
+ * together, so eviction never fragments the memory. Only an index of the key hashes and the locations of
+ * the entries stays on the heap; keys are stored serialized next to their values and compared on lookup, with
+ * <code>equals</code> when their bytes differ.
+ * <p>
+ * Keys must be serializable. Values are copied with the <code>serializer</code> of the cache, Java serialization
+ * by default, so the values returned are copies. Entries larger than a slab are not cached. Select it with
+ * {@code <cache type="OFFHEAP"/>} and size it with the <code>maxBytes</code>, <code>segments</code> and
+ * <code>slabBytes</code> properties. The memory allocated never exceeds <code>maxBytes</code>: when it cannot hold a
+ * slab per segment, fewer segments, and then smaller slabs, are used.
+ *
+ * @since 3.5.0
+ */
+public class OffHeapCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(OffHeapCache.class);
+
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  private static final int DEFAULT_SEGMENTS = 16;
+  private static final int DEFAULT_SLAB_BYTES = 1024 * 1024;
+
+  private final String id;
+  private long maxBytes = DEFAULT_MAX_BYTES;
+  private int segmentCount = DEFAULT_SEGMENTS;
+  private int slabBytes = DEFAULT_SLAB_BYTES;
+  private volatile Segment[] segments;
+  private CacheSerializer serializer = new JavaCacheSerializer();
+  private volatile CacheMetrics metrics;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.segments = null;
+  }
+
+  public void setSegments(int segments) {
+    this.segmentCount = segments;
+    this.segments = null;
+  }
+
+  public void setSlabBytes(int slabBytes) {
+    this.slabBytes = slabBytes;
+    this.segments = null;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return the off-heap memory allocated so far
+   */
+  public long getEstimatedBytes() {
+    long bytes = 0;
+    for (Segment segment : getSegments()) {
+      bytes += segment.allocatedBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    int size = 0;
+    for (Segment segment : getSegments()) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    byte[] keyBytes = SerializedKeys.serialize(key);
+    if (keyBytes == null) {
+      return;
+    }
+    byte[] valueBytes = serializer.serialize(value);
+    int evicted = segmentFor(key).put(key, keyBytes, valueBytes);
+    if (evicted < 0) {
+      if (log.isDebugEnabled()) {
+        log.debug("Did not cache an entry of " + (keyBytes.length + valueBytes.length) + " bytes, larger than a slab of " + id);
+      }
+    } else if (evicted > 0 && metrics != null) {
+      metrics.recordEvictions(evicted);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] keyBytes = SerializedKeys.serialize(key);
+    if (keyBytes == null) {
+      return null;
+    }
+    byte[] valueBytes = segmentFor(key).get(key, keyBytes);
+    return valueBytes == null ? null : serializer.deserialize(valueBytes);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    byte[] keyBytes = SerializedKeys.serialize(key);
+    if (keyBytes == null) {
+      return null;
+    }
+    byte[] valueBytes = segmentFor(key).remove(key, keyBytes);
+    return valueBytes == null ? null : serializer.deserialize(valueBytes);
+  }
+
+  @Override
+  public void clear() {
+    for (Segment segment : getSegments()) {
+      segment.clear();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+    return id.equals(((Cache) o).getId());
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+
+  private Segment segmentFor(Object key) {
+    Segment[] current = getSegments();
+    int hash = key.hashCode();
+    hash ^= (hash >>> 16);
+    return current[(hash & 0x7fffffff) % current.length];
+  }
+
+  private Segment[] getSegments() {
+    Segment[] current = segments;
+    if (current == null) {
+      synchronized (this) {
+        current = segments;
+        if (current == null) {
+          if (maxBytes <= 0 || segmentCount <= 0 || slabBytes <= 0) {
+            throw new CacheException("OffHeapCache " + id + " needs a positive maxBytes, segments and slabBytes");
+          }
+          int fittingSegments = (int) Math.max(1, Math.min(segmentCount, maxBytes / slabBytes));
+          int fittingSlabBytes = (int) Math.min(slabBytes, maxBytes / fittingSegments);
+          if (fittingSegments < segmentCount || fittingSlabBytes < slabBytes) {
+            log.warn("OffHeapCache " + id + " uses " + fittingSegments + " segments of slabs of " + fittingSlabBytes
+                + " bytes to fit in its maxBytes of " + maxBytes);
+          }
+          int slabsPerSegment = (int) (maxBytes / fittingSegments / fittingSlabBytes);
+          current = new Segment[fittingSegments];
+          for (int i = 0; i < current.length; i++) {
+            current[i] = new Segment(slabsPerSegment, fittingSlabBytes);
+          }
+          segments = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private static final class Segment {
+
+    private final Slab[] slabs;
+    private final int slabBytes;
+    private final Map<Integer, Location> index = new HashMap<Integer, Location>();
+    private int current = -1;
+    private int size;
+
+    Segment(int slabCount, int slabBytes) {
+      this.slabs = new Slab[slabCount];
+      this.slabBytes = slabBytes;
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    synchronized long allocatedBytes() {
+      long bytes = 0;
+      for (Slab slab : slabs) {
+        if (slab != null) {
+          bytes += slabBytes;
+        }
+      }
+      return bytes;
+    }
+
+    /*
+     * @return the number of entries evicted to make room, or -1 when the entry is larger than a slab
+     */
+    synchronized int put(Object key, byte[] keyBytes, byte[] value) {
+      remove(key, keyBytes);
+      int length = keyBytes.length + value.length;
+      if (length > slabBytes) {
+        return -1;
+      }
+      int sizeBefore = size;
+      Slab slab = slabWithRoom(length);
+      int evicted = sizeBefore - size;
+      int hash = key.hashCode();
+      Location location = slab.append(hash, keyBytes, value);
+      location.next = index.get(hash);
+      index.put(hash, location);
+      size++;
+      return evicted;
+    }
+
+    synchronized byte[] get(Object key, byte[] keyBytes) {
+      Location location = find(key, keyBytes);
+      return location == null ? null : location.value();
+    }
+
+    synchronized byte[] remove(Object key, byte[] keyBytes) {
+      Location location = find(key, keyBytes);
+      if (location == null) {
+        return null;
+      }
+      unlink(location);
+      return location.value();
+    }
+
+    synchronized void clear() {
+      index.clear();
+      for (Slab slab : slabs) {
+        if (slab != null) {
+          slab.reset();
+        }
+      }
+      current = -1;
+      size = 0;
+    }
+
+    private Location find(Object key, byte[] keyBytes) {
+      for (Location location = index.get(key.hashCode()); location != null; location = location.next) {
+        if (SerializedKeys.matches(key, keyBytes, location.slab.read(location.offset, location.keyLength))) {
+          return location;
+        }
+      }
+      return null;
+    }
+
+    private void unlink(Location location) {
+      Location head = index.get(location.hash);
+      if (head == location) {
+        if (location.next == null) {
+          index.remove(location.hash);
+        } else {
+          index.put(location.hash, location.next);
+        }
+      } else {
+        for (Location previous = head; previous != null; previous = previous.next) {
+          if (previous.next == location) {
+            previous.next = location.next;
+            break;
+          }
+        }
+      }
+      location.next = null;
+      location.removed = true;
+      size--;
+    }
+
+    private Slab slabWithRoom(int length) {
+      if (current >= 0 && slabs[current].remaining() >= length) {
+        return slabs[current];
+      }
+      current = (current + 1) % slabs.length;
+      Slab slab = slabs[current];
+      if (slab == null) {
+        slab = new Slab(ByteBuffer.allocateDirect(slabBytes));
+        slabs[current] = slab;
+      } else {
+        // evicts the entries of the oldest slab
+        for (Location location : slab.locations) {
+          if (!location.removed) {
+            unlink(location);
+          }
+        }
+        slab.reset();
+      }
+      return slab;
+    }
+  }
+
+  private static final class Slab {
+
+    private final ByteBuffer buffer;
+    private final List<Location> locations = new ArrayList<Location>();
+    private int position;
+
+    Slab(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    int remaining() {
+      return buffer.capacity() - position;
+    }
+
+    Location append(int hash, byte[] key, byte[] value) {
+      ByteBuffer target = buffer.duplicate();
+      target.position(position);
+      target.put(key);
+      target.put(value);
+      Location location = new Location(this, hash, position, key.length, value.length);
+      position += key.length + value.length;
+      locations.add(location);
+      return location;
+    }
+
+    byte[] read(int offset, int length) {
+      byte[] bytes = new byte[length];
+      ByteBuffer source = buffer.duplicate();
+      source.position(offset);
+      source.get(bytes);
+      return bytes;
+    }
+
+    void reset() {
+      locations.clear();
+      position = 0;
+    }
+  }
+
+  private static final class Location {
+
+    private final Slab slab;
+    private final int hash;
+    private final int offset;
+    private final int keyLength;
+    private final int valueLength;
+    private Location next;
+    private boolean removed;
+
+    Location(Slab slab, int hash, int offset, int keyLength, int valueLength) {
+      this.slab = slab;
+      this.hash = hash;
+      this.offset = offset;
+      this.keyLength = keyLength;
+      this.valueLength = valueLength;
+    }
+
+    byte[] value() {
+      return slab.read(offset + keyLength, valueLength);
+    }
+  }
+
+}
@@ -0,0 +1,540 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Thread safe cache that persists its entries in a memory mapped file, so they survive a restart.
+ * <p>
+ * Each cache writes an append-only log of serialized entries and removals to a file named after its id in
+ * <code>directory</code>. The file is mapped and read the first time the cache is used, rebuilding an
+ * on-heap index of the keys, which are deserialized once, so equal keys are found even when they serialize
+ * differently. When the log reaches <code>maxBytes</code> it is compacted, dropping
+ * the oldest entries if the live ones alone do not leave room.
+ * <p>
+ * The file starts with the <code>version</code> of the cache. A file written with another version, or left
+ * in the middle of a compaction, is discarded, so changing the version when the cached classes change
+ * starts the cache empty. Keys must be serializable. Values are copied with the <code>serializer</code> of the
+ * cache, Java serialization by default, so the values returned are copies.
+ * <p>
+ * The file stays mapped and locked until {@link #close()} is called, or until the JVM exits, when the operating system
+ * writes the mapped pages and releases the lock. Applications undeployed while the JVM keeps running should call
+ * {@link #closeAll()}. While another cache holds the file, this one is bypassed: every lookup misses and nothing is
+ * cached, and the file is tried again a minute later.
+ *
+ * @since 3.5.0
+ */
+public class PersistentCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(PersistentCache.class);
+
+  private static final int MAGIC = 0x4d424331;
+  private static final int CLEAN = 0;
+  private static final int COMPACTING = 1;
+  // key length, value length
+  private static final int RECORD_HEADER = 8;
+  // key length of zero after the last record
+  private static final int TERMINATOR = 4;
+  private static final int TOMBSTONE = -1;
+  private static final long LOCK_RETRY_MILLIS = 60 * 1000L;
+
+  // weak, so a cache no longer used by its application is not kept reachable
+  private static final List<WeakReference<PersistentCache>> OPEN_CACHES = new ArrayList<WeakReference<PersistentCache>>();
+
+  private final String id;
+  private String directory = System.getProperty("java.io.tmpdir") + File.separator + "mybatis-cache";
+  private String version = "";
+  private long maxBytes = 64L * 1024 * 1024;
+  private CacheSerializer serializer = new JavaCacheSerializer();
+  private volatile CacheMetrics metrics;
+
+  private final Map<Object, Integer> index = new HashMap<Object, Integer>();
+  private RandomAccessFile file;
+  private FileLock lock;
+  private MappedByteBuffer buffer;
+  private int dataStart;
+  private int end;
+  private boolean locked;
+  private long lockRetryTime;
+
+  public PersistentCache(String id) {
+    this.id = id;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public void setVersion(String version) {
+    this.version = version;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public File getFile() {
+    return new File(directory, id.replaceAll("[^A-Za-z0-9._-]", "_") + ".cache");
+  }
+
+  /**
+   * @return the bytes used in the file, including the ones of the entries not compacted yet
+   */
+  public synchronized long getEstimatedBytes() {
+    return buffer == null ? 0 : end;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return open() ? index.size() : 0;
+  }
+
+  @Override
+  public synchronized void putObject(Object key, Object value) {
+    byte[] keyBytes = SerializedKeys.serialize(key);
+    if (keyBytes == null || !open()) {
+      return;
+    }
+    byte[] valueBytes = serializer.serialize(value);
+    index.remove(key);
+    int position = append(keyBytes, valueBytes);
+    if (position < 0) {
+      // still needed to forget the previous value after a restart
+      append(keyBytes, null);
+      if (log.isDebugEnabled()) {
+        log.debug("Did not cache an entry of " + valueBytes.length + " bytes, larger than the file of " + id);
+      }
+    } else {
+      index.put(key, position);
+    }
+  }
+
+  @Override
+  public synchronized Object getObject(Object key) {
+    if (!(key instanceof Serializable) || !open()) {
+      return null;
+    }
+    Integer position = index.get(key);
+    if (position == null) {
+      return null;
+    }
+    try {
+      return serializer.deserialize(readValue(position));
+    } catch (CacheException e) {
+      // written by classes that changed without a new version
+      if (log.isDebugEnabled()) {
+        log.debug("Discarding an entry of " + id + " that cannot be read: " + e);
+      }
+      index.remove(key);
+      append(SerializedKeys.serialize(key), null);
+      return null;
+    }
+  }
+
+  @Override
+  public synchronized Object removeObject(Object key) {
+    if (!(key instanceof Serializable) || !open()) {
+      return null;
+    }
+    Integer position = index.remove(key);
+    if (position == null) {
+      return null;
+    }
+    byte[] value = readValue(position);
+    append(SerializedKeys.serialize(key), null);
+    return serializer.deserialize(value);
+  }
+
+  @Override
+  public synchronized void clear() {
+    if (!open()) {
+      return;
+    }
+    index.clear();
+    end = dataStart;
+    buffer.putInt(end, 0);
+  }
+
+  /**
+   * Writes the mapped file to disk and releases it. The cache maps and reads it again when used next.
+   */
+  public synchronized void close() {
+    if (buffer == null) {
+      return;
+    }
+    unregister(this);
+    buffer.force();
+    buffer = null;
+    index.clear();
+    try {
+      lock.release();
+      file.close();
+    } catch (IOException e) {
+      throw new CacheException("Error closing the file of cache " + id + ".  Cause: " + e, e);
+    } finally {
+      lock = null;
+      file = null;
+    }
+  }
+
+  /**
+   * Closes the caches whose file is open, to be called when the application is undeployed.
+   */
+  public static void closeAll() {
+    List<PersistentCache> caches = new ArrayList<PersistentCache>();
+    synchronized (OPEN_CACHES) {
+      for (WeakReference<PersistentCache> reference : OPEN_CACHES) {
+        PersistentCache cache = reference.get();
+        if (cache != null) {
+          caches.add(cache);
+        }
+      }
+    }
+    for (PersistentCache cache : caches) {
+      cache.close();
+    }
+  }
+
+  private static void register(PersistentCache cache) {
+    synchronized (OPEN_CACHES) {
+      unregister(null);
+      OPEN_CACHES.add(new WeakReference<PersistentCache>(cache));
+    }
+  }
+
+  /*
+   * Also drops the references to the caches collected already
+   */
+  private static void unregister(PersistentCache cache) {
+    synchronized (OPEN_CACHES) {
+      Iterator<WeakReference<PersistentCache>> references = OPEN_CACHES.iterator();
+      while (references.hasNext()) {
+        PersistentCache registered = references.next().get();
+        if (registered == null || registered == cache) {
+          references.remove();
+        }
+      }
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+    return id.equals(((Cache) o).getId());
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+
+  /*
+   * Maps the file unless it is mapped already
+   *
+   * @return False if another cache holds the file, in which case this one is bypassed for a while
+   */
+  private boolean open() {
+    if (buffer != null) {
+      return true;
+    }
+    if (locked && System.currentTimeMillis() < lockRetryTime) {
+      return false;
+    }
+    if (maxBytes <= 0 || maxBytes > Integer.MAX_VALUE) {
+      throw new CacheException("PersistentCache " + id + " needs a maxBytes between 1 and " + Integer.MAX_VALUE);
+    }
+    File target = getFile();
+    try {
+      target.getParentFile().mkdirs();
+      file = new RandomAccessFile(target, "rw");
+      lock = lockFile(file.getChannel());
+      if (lock == null) {
+        closeQuietly();
+        if (!locked) {
+          log.warn("The file " + target + " of cache " + id + " is used by another cache, so this one is bypassed. "
+              + "Each cache needs its own directory or id, and caches of undeployed applications should be closed.");
+        }
+        locked = true;
+        lockRetryTime = System.currentTimeMillis() + LOCK_RETRY_MILLIS;
+        return false;
+      }
+      locked = false;
+      buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, maxBytes);
+    } catch (IOException e) {
+      closeQuietly();
+      throw new CacheException("Error mapping the file " + target + " of cache " + id + ".  Cause: " + e, e);
+    } catch (RuntimeException e) {
+      closeQuietly();
+      throw e;
+    }
+    byte[] versionBytes = getBytes(version);
+    dataStart = 12 + versionBytes.length;
+    if (dataStart + TERMINATOR > buffer.capacity()) {
+      closeQuietly();
+      throw new CacheException("The maxBytes of PersistentCache " + id + " cannot even hold its header");
+    }
+    if (isValid(versionBytes)) {
+      load();
+    } else {
+      reset(versionBytes);
+    }
+    register(this);
+    return true;
+  }
+
+  /*
+   * @return The lock, or null if another cache holds it
+   */
+  private FileLock lockFile(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // held by a cache of this JVM
+      return null;
+    }
+  }
+
+  private void closeQuietly() {
+    buffer = null;
+    try {
+      if (lock != null) {
+        lock.release();
+      }
+      if (file != null) {
+        file.close();
+      }
+    } catch (IOException e) {
+      // ignore
+    }
+    lock = null;
+    file = null;
+  }
+
+  private boolean isValid(byte[] versionBytes) {
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != CLEAN || buffer.getInt(8) != versionBytes.length) {
+      return false;
+    }
+    byte[] stamp = new byte[versionBytes.length];
+    read(12, stamp);
+    return Arrays.equals(stamp, versionBytes);
+  }
+
+  private void reset(byte[] versionBytes) {
+    if (buffer.getInt(0) == MAGIC && log.isDebugEnabled()) {
+      log.debug("Discarding the file of cache " + id + ", written by another version or left incomplete");
+    }
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, CLEAN);
+    buffer.putInt(8, versionBytes.length);
+    ByteBuffer target = buffer.duplicate();
+    target.position(12);
+    target.put(versionBytes);
+    end = dataStart;
+    buffer.putInt(end, 0);
+  }
+
+  private void load() {
+    int capacity = buffer.capacity();
+    int position = dataStart;
+    int unreadableKeys = 0;
+    while (position + RECORD_HEADER <= capacity) {
+      int keyLength = buffer.getInt(position);
+      int valueLength = buffer.getInt(position + 4);
+      if (keyLength <= 0 || valueLength < TOMBSTONE
+          || (long) position + RECORD_HEADER + keyLength + Math.max(valueLength, 0) > capacity) {
+        break;
+      }
+      byte[] keyBytes = new byte[keyLength];
+      read(position + RECORD_HEADER, keyBytes);
+      // keys of classes that changed or are gone can no longer be asked for
+      Object key = SerializedKeys.deserialize(keyBytes);
+      if (key == null) {
+        unreadableKeys++;
+      } else if (valueLength == TOMBSTONE) {
+        index.remove(key);
+      } else {
+        index.put(key, position);
+      }
+      position += recordLength(position);
+    }
+    end = position;
+    if (end + TERMINATOR <= capacity) {
+      buffer.putInt(end, 0);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Loaded " + index.size() + " entries of cache " + id + " from " + getFile() + ", skipping "
+          + unreadableKeys + " records with unreadable keys");
+    }
+  }
+
+  /*
+   * Appends an entry, or a removal when the value is null
+   *
+   * @return The position of the record, or -1 when it is larger than the file
+   */
+  private int append(byte[] key, byte[] value) {
+    int length = RECORD_HEADER + key.length + (value == null ? 0 : value.length);
+    if (length < 0 || (long) dataStart + length + TERMINATOR > buffer.capacity()) {
+      return -1;
+    }
+    if ((long) end + length + TERMINATOR > buffer.capacity()) {
+      compact(length + TERMINATOR);
+    }
+    int position = end;
+    ByteBuffer target = buffer.duplicate();
+    target.position(position + RECORD_HEADER);
+    target.put(key);
+    if (value != null) {
+      target.put(value);
+    }
+    buffer.putInt(position + length, 0);
+    buffer.putInt(position + 4, value == null ? TOMBSTONE : value.length);
+    // a record is complete once its key length is written
+    buffer.putInt(position, key.length);
+    end = position + length;
+    return position;
+  }
+
+  /*
+   * Moves the live records to the start of the log, dropping the oldest ones until there is room for needed bytes
+   */
+  private void compact(int needed) {
+    List<Map.Entry<Object, Integer>> live = new ArrayList<Map.Entry<Object, Integer>>(index.entrySet());
+    Collections.sort(live, new Comparator<Map.Entry<Object, Integer>>() {
+      @Override
+      public int compare(Map.Entry<Object, Integer> o1, Map.Entry<Object, Integer> o2) {
+        return o1.getValue().compareTo(o2.getValue());
+      }
+    });
+    long liveBytes = 0;
+    for (Map.Entry<Object, Integer> entry : live) {
+      liveBytes += recordLength(entry.getValue());
+    }
+    Iterator<Map.Entry<Object, Integer>> oldest = live.iterator();
+    int dropped = 0;
+    while (dataStart + liveBytes + needed > buffer.capacity() && oldest.hasNext()) {
+      Map.Entry<Object, Integer> entry = oldest.next();
+      liveBytes -= recordLength(entry.getValue());
+      index.remove(entry.getKey());
+      oldest.remove();
+      dropped++;
+    }
+    buffer.putInt(4, COMPACTING);
+    int position = dataStart;
+    for (Map.Entry<Object, Integer> entry : live) {
+      int offset = entry.getValue();
+      int length = recordLength(offset);
+      if (offset != position) {
+        byte[] record = new byte[length];
+        read(offset, record);
+        ByteBuffer target = buffer.duplicate();
+        target.position(position);
+        target.put(record);
+        entry.setValue(position);
+      }
+      position += length;
+    }
+    end = position;
+    buffer.putInt(end, 0);
+    buffer.force();
+    buffer.putInt(4, CLEAN);
+    if (dropped > 0 && metrics != null) {
+      metrics.recordEvictions(dropped);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Compacted the file of cache " + id + " to " + live.size() + " entries, evicting " + dropped);
+    }
+  }
+
+  private int recordLength(int position) {
+    return RECORD_HEADER + buffer.getInt(position) + Math.max(buffer.getInt(position + 4), 0);
+  }
+
+  private byte[] readValue(int position) {
+    byte[] value = new byte[buffer.getInt(position + 4)];
+    read(position + RECORD_HEADER + buffer.getInt(position), value);
+    return value;
+  }
+
+  private void read(int position, byte[] bytes) {
+    ByteBuffer source = buffer.duplicate();
+    source.position(position);
+    source.get(bytes);
+  }
+
+  private static byte[] getBytes(String value) {
+    try {
+      return value.getBytes("UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new CacheException(e);
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+
+/*
+ * Java serialization of the keys of the caches storing their entries as bytes, whatever the serializer of their values
+ */
+final class SerializedKeys {
+
+  private static final CacheSerializer SERIALIZER = new JavaCacheSerializer();
+
+  private SerializedKeys() {
+    // Prevent Instantiation
+  }
+
+  /*
+   * Keys that cannot be serialized, like ones built from a non-serializable parameter, are never cached
+   *
+   * @return the bytes of the key, or null if it cannot be serialized
+   */
+  static byte[] serialize(Object key) {
+    if (!(key instanceof Serializable)) {
+      return null;
+    }
+    try {
+      return SERIALIZER.serialize(key);
+    } catch (CacheException e) {
+      return null;
+    }
+  }
+
+  /*
+   * @return the key, or null if its classes changed or are missing
+   */
+  static Object deserialize(byte[] bytes) {
+    try {
+      return SERIALIZER.deserialize(bytes);
+    } catch (CacheException e) {
+      return null;
+    }
+  }
+
+  /*
+   * Equal keys may serialize differently, for instance when one holds the same string twice and the other two equal
+   * strings, so keys whose bytes differ are compared with equals
+   */
+  static boolean matches(Object key, byte[] keyBytes, byte[] storedBytes) {
+    if (Arrays.equals(keyBytes, storedBytes)) {
+      return true;
+    }
+    Object storedKey = deserialize(storedBytes);
+    return storedKey != null && key.equals(storedKey);
+  }
+
+}
@@ -0,0 +1,483 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+
+/**
+ * Bounded, thread safe cache with a W-TinyLFU eviction policy.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}, so reads never take a lock. Reads are recorded in small
+ * lossy buffers and writes in a queue; both are replayed against the policy by whichever thread manages
+ * to acquire the eviction lock, so the cost of keeping the eviction order is amortized over many calls.
+ * <p>
+ * The policy admits new entries into a small LRU window. Entries leaving the window only enter the main
+ * segmented LRU space when a {@link FrequencySketch} says they are used more often than the entry that
+ * would be evicted for them, which keeps one-off scans from flushing the popular entries.
+ * <p>
+ * Select it with {@code <cache eviction="TINYLFU"/>}. As it is thread safe by itself, {@link
+ * org.apache.ibatis.mapping.CacheBuilder} does not wrap it in a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}.
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int DEFAULT_SIZE = 1024;
+  private static final int NCPU = Runtime.getRuntime().availableProcessors();
+  private static final int READ_BUFFER_STRIPES = Integer.highestOneBit(Math.max(1, NCPU - 1)) << 1;
+  private static final int WRITE_BUFFER_DRAIN_THRESHOLD = 16;
+
+  private static final int IDLE = 0;
+  private static final int REQUIRED = 1;
+  private static final int PROCESSING = 2;
+
+  private final String id;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<Object, Node>();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+  private final Queue<Node> writeBuffer = new ConcurrentLinkedQueue<Node>();
+  private final AtomicInteger drainStatus = new AtomicInteger(IDLE);
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  // guarded by evictionLock
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+  private final FrequencySketch sketch;
+  private int maximumSize;
+  private int windowMaximum;
+  private int protectedMaximum;
+  private int windowSize;
+  private int protectedSize;
+  private int linkedSize;
+  private volatile CacheMetrics metrics;
+
+  public TinyLfuCache(String id) {
+    this.id = id;
+    for (int i = 0; i < readBuffers.length; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
+    this.sketch = new FrequencySketch(DEFAULT_SIZE);
+    setSize(DEFAULT_SIZE);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /*
+   * Sets the maximum number of entries, the window takes 1% and the protected space 80% of the rest
+   */
+  public void setSize(int size) {
+    if (size < 1) {
+      throw new CacheException("The size of cache '" + id + "' must be positive but was " + size);
+    }
+    evictionLock.lock();
+    try {
+      maximumSize = size;
+      windowMaximum = Math.max(1, size / 100);
+      protectedMaximum = (int) (0.8d * (size - windowMaximum));
+      sketch.ensureCapacity(size);
+      maintenance();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    for (;;) {
+      Node node = new Node(key, value);
+      Node prior = data.putIfAbsent(key, node);
+      if (prior == null) {
+        afterWrite(node);
+        return;
+      }
+      if (prior.alive) {
+        prior.value = value;
+        afterRead(prior);
+        return;
+      }
+      // the prior entry has just been removed, try again
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    afterRead(node);
+    return node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Node node = data.remove(key);
+    if (node == null) {
+      return null;
+    }
+    node.alive = false;
+    afterWrite(node);
+    return node.value;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      maintenance();
+      Node node;
+      while ((node = window.peekFirst()) != null || (node = probation.peekFirst()) != null
+          || (node = protectedDeque.peekFirst()) != null) {
+        if (data.remove(node.key, node)) {
+          node.alive = false;
+        }
+        unlink(node);
+      }
+      for (Node remaining : data.values()) {
+        if (data.remove(remaining.key, remaining)) {
+          remaining.alive = false;
+        }
+      }
+      sketch.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private void afterRead(Node node) {
+    ReadBuffer buffer = readBuffers[ThreadLocalRandom.current().nextInt() & (READ_BUFFER_STRIPES - 1)];
+    if (buffer.offer(node) && drainStatus.get() == IDLE) {
+      return;
+    }
+    tryToDrainBuffers();
+  }
+
+  private void afterWrite(Node node) {
+    writeBuffer.add(node);
+    drainStatus.set(REQUIRED);
+    tryToDrainBuffers();
+  }
+
+  private void tryToDrainBuffers() {
+    while (evictionLock.tryLock()) {
+      try {
+        drainStatus.set(PROCESSING);
+        maintenance();
+      } finally {
+        drainStatus.compareAndSet(PROCESSING, IDLE);
+        evictionLock.unlock();
+      }
+      // a write may have been queued while this thread held the lock
+      if (drainStatus.get() != REQUIRED) {
+        return;
+      }
+    }
+  }
+
+  private void maintenance() {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drain(this);
+    }
+    Node node;
+    for (int i = 0; (node = writeBuffer.poll()) != null; i++) {
+      onWrite(node);
+      if (i >= WRITE_BUFFER_DRAIN_THRESHOLD && linkedSize > maximumSize) {
+        evictEntries();
+        i = 0;
+      }
+    }
+    evictEntries();
+  }
+
+  private void onWrite(Node node) {
+    if (!node.alive) {
+      unlink(node);
+    } else if (node.queue == Node.NONE) {
+      sketch.increment(node.key);
+      node.queue = Node.WINDOW;
+      window.addLast(node);
+      windowSize++;
+      linkedSize++;
+    }
+  }
+
+  void onAccess(Node node) {
+    sketch.increment(node.key);
+    if (node.queue == Node.WINDOW) {
+      window.moveToBack(node);
+    } else if (node.queue == Node.PROBATION) {
+      probation.remove(node);
+      node.queue = Node.PROTECTED;
+      protectedDeque.addLast(node);
+      protectedSize++;
+      while (protectedSize > protectedMaximum) {
+        Node demoted = protectedDeque.pollFirst();
+        protectedSize--;
+        demoted.queue = Node.PROBATION;
+        probation.addLast(demoted);
+      }
+    } else if (node.queue == Node.PROTECTED) {
+      protectedDeque.moveToBack(node);
+    }
+  }
+
+  private void evictEntries() {
+    // entries leaving the window become candidates at the tail of the probation space
+    Node candidate = null;
+    while (windowSize > windowMaximum) {
+      Node node = window.pollFirst();
+      windowSize--;
+      node.queue = Node.PROBATION;
+      probation.addLast(node);
+      if (candidate == null) {
+        candidate = node;
+      }
+    }
+    // then each candidate competes with the victim at the head of the probation space
+    Node victim = probation.peekFirst();
+    while (linkedSize > maximumSize) {
+      if (victim == null) {
+        evict(protectedDeque.peekFirst() != null ? protectedDeque.peekFirst() : window.peekFirst());
+      } else if (candidate == null || victim == candidate) {
+        Node evicted = victim;
+        victim = victim.next;
+        if (candidate == evicted) {
+          candidate = victim;
+        }
+        evict(evicted);
+      } else if (admit(candidate.key, victim.key)) {
+        Node evicted = victim;
+        victim = victim.next;
+        evict(evicted);
+      } else {
+        Node evicted = candidate;
+        candidate = candidate.next;
+        evict(evicted);
+      }
+    }
+  }
+
+  private boolean admit(Object candidateKey, Object victimKey) {
+    int candidateFrequency = sketch.frequency(candidateKey);
+    int victimFrequency = sketch.frequency(victimKey);
+    if (candidateFrequency > victimFrequency) {
+      return true;
+    }
+    if (candidateFrequency <= 5) {
+      return false;
+    }
+    // admit a warm candidate once in a while, so an attacker cannot pin the victim with hash collisions
+    return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+  }
+
+  private void evict(Node node) {
+    if (data.remove(node.key, node)) {
+      node.alive = false;
+      CacheMetrics current = metrics;
+      if (current != null) {
+        current.recordEvictions(1);
+      }
+    }
+    unlink(node);
+  }
+
+  private void unlink(Node node) {
+    if (node.queue == Node.WINDOW) {
+      window.remove(node);
+      windowSize--;
+    } else if (node.queue == Node.PROBATION) {
+      probation.remove(node);
+    } else if (node.queue == Node.PROTECTED) {
+      protectedDeque.remove(node);
+      protectedSize--;
+    } else {
+      return;
+    }
+    node.queue = Node.NONE;
+    linkedSize--;
+  }
+
+  static final class Node {
+    static final int NONE = 0;
+    static final int WINDOW = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    final Object key;
+    volatile Object value;
+    volatile boolean alive = true;
+
+    // guarded by evictionLock
+    int queue = NONE;
+    Node prev;
+    Node next;
+
+    Node(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Intrusive doubly-linked list of nodes, least recently used first.
+   */
+  static final class AccessOrderDeque {
+    private Node first;
+    private Node last;
+
+    Node peekFirst() {
+      return first;
+    }
+
+    Node pollFirst() {
+      Node node = first;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+
+    void addLast(Node node) {
+      node.prev = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    void moveToBack(Node node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+    }
+  }
+
+  /**
+   * Lossy ring buffer of recent reads, written by any thread and drained under the eviction lock.
+   */
+  static final class ReadBuffer {
+    private static final int SIZE = 16;
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<Node>(SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private volatile long readCounter;
+
+    /*
+     * @return False if the buffer is full and should be drained; the read is then dropped
+     */
+    boolean offer(Node node) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      if (tail - head >= SIZE) {
+        return false;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & MASK), node);
+      }
+      // losing the race means another thread recorded a read at the same moment, this one may be dropped
+      return true;
+    }
+
+    void drain(TinyLfuCache cache) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      for (; head < tail; head++) {
+        int index = (int) (head & MASK);
+        Node node = buffer.get(index);
+        if (node == null) {
+          // not published yet
+          break;
+        }
+        buffer.lazySet(index, null);
+        cache.onAccess(node);
+      }
+      readCounter = head;
+    }
+  }
+
+}
@@ -0,0 +1,596 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Compact serializer that writes beans property by property, so they do not need to be {@link Serializable}.
+ * <p>
+ * Strings, boxed primitives, numbers, dates, enums, arrays and the collections and maps of <code>java.util</code>
+ * are written in a binary form. Other objects with a default constructor are written as beans: the properties
+ * that the {@link Reflector} of their class can both read and write, except static and transient fields, are
+ * written by name once per class and then by position. Shared and circular references are kept. Objects with a
+ * custom serialization, like lazy loading proxies, objects with a field that no such property covers, and other
+ * JDK types fall back to Java serialization.
+ *
+ * @since 3.5.0
+ */
+public class BinaryCacheSerializer implements CacheSerializer {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte DOUBLE = 5;
+  private static final byte FLOAT = 6;
+  private static final byte SHORT = 7;
+  private static final byte BYTE = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte BOOLEAN = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte TIMESTAMP = 14;
+  private static final byte SQL_DATE = 15;
+  private static final byte TIME = 16;
+  private static final byte BYTES = 17;
+  private static final byte ENUM = 18;
+  private static final byte ARRAY = 19;
+  private static final byte COLLECTION = 20;
+  private static final byte MAP = 21;
+  private static final byte BEAN = 22;
+  private static final byte JAVA = 23;
+
+  private static final Map<Class<?>, Byte> VALUE_TAGS = new HashMap<Class<?>, Byte>();
+
+  static {
+    VALUE_TAGS.put(String.class, STRING);
+    VALUE_TAGS.put(Integer.class, INTEGER);
+    VALUE_TAGS.put(Long.class, LONG);
+    VALUE_TAGS.put(Double.class, DOUBLE);
+    VALUE_TAGS.put(Float.class, FLOAT);
+    VALUE_TAGS.put(Short.class, SHORT);
+    VALUE_TAGS.put(Byte.class, BYTE);
+    VALUE_TAGS.put(Character.class, CHARACTER);
+    VALUE_TAGS.put(Boolean.class, BOOLEAN);
+    VALUE_TAGS.put(BigDecimal.class, BIG_DECIMAL);
+    VALUE_TAGS.put(BigInteger.class, BIG_INTEGER);
+    VALUE_TAGS.put(Date.class, DATE);
+    VALUE_TAGS.put(java.sql.Timestamp.class, TIMESTAMP);
+    VALUE_TAGS.put(java.sql.Date.class, SQL_DATE);
+    VALUE_TAGS.put(java.sql.Time.class, TIME);
+    VALUE_TAGS.put(byte[].class, BYTES);
+  }
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final ConcurrentMap<Class<?>, ClassPlan> plans = new ConcurrentHashMap<Class<?>, ClassPlan>();
+
+  @Override
+  public byte[] serialize(Object object) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+      DataOutputStream out = new DataOutputStream(bytes);
+      new Writer(out).write(object);
+      out.flush();
+      return bytes.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new Reader(new DataInputStream(new ByteArrayInputStream(bytes))).read();
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private ClassPlan planFor(Class<?> type) {
+    ClassPlan plan = plans.get(type);
+    if (plan == null) {
+      plan = new ClassPlan(type);
+      ClassPlan previous = plans.putIfAbsent(type, plan);
+      if (previous != null) {
+        plan = previous;
+      }
+    }
+    return plan;
+  }
+
+  /*
+   * How the objects of one class are written and created again
+   */
+  private final class ClassPlan {
+
+    private final Class<?> type;
+    private final byte kind;
+    private final Constructor<?> constructor;
+    private final String[] properties;
+    private final Invoker[] getters;
+    private final Map<String, Invoker> setters = new HashMap<String, Invoker>();
+
+    ClassPlan(Class<?> type) {
+      this.type = type;
+      Constructor<?> defaultConstructor = null;
+      byte planKind;
+      List<String> names = new ArrayList<String>();
+      List<Invoker> readers = new ArrayList<Invoker>();
+      if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+        planKind = ENUM;
+      } else if (type.isArray()) {
+        planKind = type.getComponentType().isPrimitive() ? JAVA : ARRAY;
+      } else if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+        defaultConstructor = publicDefaultConstructor(type);
+        boolean standard = type.getName().startsWith("java.util.") && defaultConstructor != null;
+        planKind = !standard ? JAVA : Map.class.isAssignableFrom(type) ? MAP : COLLECTION;
+      } else if (isBean(type)) {
+        Reflector reflector = reflectorFactory.findForClass(type);
+        for (String property : reflector.getGetablePropertyNames()) {
+          if (reflector.hasSetter(property) && !isStaticOrTransient(type, property)) {
+            names.add(property);
+            readers.add(reflector.getGetInvoker(property));
+            setters.put(property, reflector.getSetInvoker(property));
+          }
+        }
+        if (writesAllFields(type, names)) {
+          planKind = BEAN;
+          defaultConstructor = reflector.getDefaultConstructor();
+        } else {
+          // a field without a writable property, like a final collection behind a getter, would be lost
+          planKind = JAVA;
+          names.clear();
+          readers.clear();
+          setters.clear();
+        }
+      } else {
+        planKind = JAVA;
+      }
+      this.kind = planKind;
+      this.constructor = defaultConstructor;
+      this.properties = names.toArray(new String[names.size()]);
+      this.getters = readers.toArray(new Invoker[readers.size()]);
+    }
+
+    Object newInstance() throws Exception {
+      return constructor.newInstance();
+    }
+
+    private boolean isBean(Class<?> type) {
+      String name = type.getName();
+      if (name.startsWith("java.") || name.startsWith("javax.") || Externalizable.class.isAssignableFrom(type)
+          || type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+        return false;
+      }
+      // writeReplace also marks the lazy loading proxies
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        if (declares(current, "writeReplace") || declares(current, "readResolve")
+            || declares(current, "writeObject", ObjectOutputStream.class)) {
+          return false;
+        }
+      }
+      try {
+        return reflectorFactory.findForClass(type).hasDefaultConstructor();
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+
+    private boolean declares(Class<?> type, String name, Class<?>... parameterTypes) {
+      try {
+        type.getDeclaredMethod(name, parameterTypes);
+        return true;
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+
+    private boolean writesAllFields(Class<?> type, List<String> properties) {
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()
+              && !properties.contains(field.getName())) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean isStaticOrTransient(Class<?> type, String property) {
+      for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+        try {
+          Field field = current.getDeclaredField(property);
+          return Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers());
+        } catch (NoSuchFieldException e) {
+          // look in the superclass
+        }
+      }
+      return false;
+    }
+
+    private Constructor<?> publicDefaultConstructor(Class<?> type) {
+      if (!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())) {
+        return null;
+      }
+      try {
+        return type.getConstructor();
+      } catch (NoSuchMethodException e) {
+        return null;
+      }
+    }
+  }
+
+  /*
+   * A class as read from the serialized form, with the setters of the properties of a bean in written order
+   */
+  private static final class ClassInfo {
+
+    private final ClassPlan plan;
+    private final Invoker[] setters;
+
+    ClassInfo(ClassPlan plan, Invoker[] setters) {
+      this.plan = plan;
+      this.setters = setters;
+    }
+  }
+
+  private final class Writer {
+
+    private final DataOutputStream out;
+    private final Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+    private final Map<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void write(Object value) throws Exception {
+      if (value == null) {
+        out.writeByte(NULL);
+        return;
+      }
+      Byte valueTag = VALUE_TAGS.get(value.getClass());
+      if (valueTag != null) {
+        writeValue(valueTag, value);
+        return;
+      }
+      ClassPlan plan = planFor(value.getClass());
+      if (plan.kind == ENUM) {
+        out.writeByte(ENUM);
+        writeClass(planFor(((Enum<?>) value).getDeclaringClass()));
+        writeString(((Enum<?>) value).name());
+        return;
+      }
+      Integer reference = references.get(value);
+      if (reference != null) {
+        out.writeByte(REFERENCE);
+        out.writeInt(reference);
+        return;
+      }
+      references.put(value, references.size());
+      byte kind = plan.kind;
+      if ((value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null)
+          || (value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null)) {
+        kind = JAVA;
+      }
+      switch (kind) {
+        case ARRAY:
+          out.writeByte(ARRAY);
+          writeClass(planFor(value.getClass().getComponentType()));
+          int length = Array.getLength(value);
+          out.writeInt(length);
+          for (int i = 0; i < length; i++) {
+            write(Array.get(value, i));
+          }
+          break;
+        case COLLECTION:
+          out.writeByte(COLLECTION);
+          writeClass(plan);
+          Collection<?> collection = (Collection<?>) value;
+          out.writeInt(collection.size());
+          for (Object element : collection) {
+            write(element);
+          }
+          break;
+        case MAP:
+          out.writeByte(MAP);
+          writeClass(plan);
+          Map<?, ?> map = (Map<?, ?>) value;
+          out.writeInt(map.size());
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            write(entry.getKey());
+            write(entry.getValue());
+          }
+          break;
+        case BEAN:
+          out.writeByte(BEAN);
+          writeClass(plan);
+          for (Invoker getter : plan.getters) {
+            write(getter.invoke(value, NO_ARGUMENTS));
+          }
+          break;
+        default:
+          writeJava(value);
+      }
+    }
+
+    private void writeValue(byte tag, Object value) throws IOException {
+      out.writeByte(tag);
+      switch (tag) {
+        case STRING:
+          writeString((String) value);
+          break;
+        case INTEGER:
+          out.writeInt((Integer) value);
+          break;
+        case LONG:
+          out.writeLong((Long) value);
+          break;
+        case DOUBLE:
+          out.writeDouble((Double) value);
+          break;
+        case FLOAT:
+          out.writeFloat((Float) value);
+          break;
+        case SHORT:
+          out.writeShort((Short) value);
+          break;
+        case BYTE:
+          out.writeByte((Byte) value);
+          break;
+        case CHARACTER:
+          out.writeChar((Character) value);
+          break;
+        case BOOLEAN:
+          out.writeBoolean((Boolean) value);
+          break;
+        case BIG_DECIMAL:
+          writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+          out.writeInt(((BigDecimal) value).scale());
+          break;
+        case BIG_INTEGER:
+          writeBytes(((BigInteger) value).toByteArray());
+          break;
+        case TIMESTAMP:
+          out.writeLong(((Date) value).getTime());
+          out.writeInt(((java.sql.Timestamp) value).getNanos());
+          break;
+        case DATE:
+        case SQL_DATE:
+        case TIME:
+          out.writeLong(((Date) value).getTime());
+          break;
+        default:
+          writeBytes((byte[]) value);
+      }
+    }
+
+    private void writeJava(Object value) throws IOException {
+      if (!(value instanceof Serializable)) {
+        throw new CacheException("Cannot serialize an object of " + value.getClass()
+            + ", which is neither serializable nor a bean with a default constructor");
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bytes);
+      oos.writeObject(value);
+      oos.close();
+      out.writeByte(JAVA);
+      writeBytes(bytes.toByteArray());
+    }
+
+    private void writeClass(ClassPlan plan) throws IOException {
+      Integer index = classes.get(plan.type);
+      if (index != null) {
+        out.writeInt(index);
+        return;
+      }
+      classes.put(plan.type, classes.size());
+      out.writeInt(-1);
+      writeString(plan.type.getName());
+      if (plan.kind == BEAN) {
+        out.writeInt(plan.properties.length);
+        for (String property : plan.properties) {
+          writeString(property);
+        }
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      writeBytes(value.getBytes(UTF_8));
+    }
+
+    private void writeBytes(byte[] value) throws IOException {
+      out.writeInt(value.length);
+      out.write(value);
+    }
+  }
+
+  private final class Reader {
+
+    private final DataInputStream in;
+    private final List<Object> references = new ArrayList<Object>();
+    private final List<ClassInfo> classes = new ArrayList<ClassInfo>();
+
+    Reader(DataInputStream in) {
+      this.in = in;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object read() throws Exception {
+      byte tag = in.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return references.get(in.readInt());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case DOUBLE:
+          return in.readDouble();
+        case FLOAT:
+          return in.readFloat();
+        case SHORT:
+          return in.readShort();
+        case BYTE:
+          return in.readByte();
+        case CHARACTER:
+          return in.readChar();
+        case BOOLEAN:
+          return in.readBoolean();
+        case BIG_DECIMAL:
+          return new BigDecimal(new BigInteger(readBytes()), in.readInt());
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return new Date(in.readLong());
+        case TIMESTAMP:
+          java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+          timestamp.setNanos(in.readInt());
+          return timestamp;
+        case SQL_DATE:
+          return new java.sql.Date(in.readLong());
+        case TIME:
+          return new java.sql.Time(in.readLong());
+        case BYTES:
+          return readBytes();
+        case ENUM:
+          Class enumType = readClass().plan.type;
+          return Enum.valueOf(enumType, readString());
+        case ARRAY:
+          Class<?> componentType = readClass().plan.type;
+          Object array = Array.newInstance(componentType, in.readInt());
+          references.add(array);
+          for (int i = 0, length = Array.getLength(array); i < length; i++) {
+            Array.set(array, i, read());
+          }
+          return array;
+        case COLLECTION:
+          Collection<Object> collection = (Collection<Object>) readClass().plan.newInstance();
+          references.add(collection);
+          for (int i = in.readInt(); i > 0; i--) {
+            collection.add(read());
+          }
+          return collection;
+        case MAP:
+          Map<Object, Object> map = (Map<Object, Object>) readClass().plan.newInstance();
+          references.add(map);
+          for (int i = in.readInt(); i > 0; i--) {
+            Object key = read();
+            map.put(key, read());
+          }
+          return map;
+        case BEAN:
+          ClassInfo info = readClass();
+          Object bean = info.plan.newInstance();
+          references.add(bean);
+          for (Invoker setter : info.setters) {
+            Object value = read();
+            if (setter != null) {
+              setter.invoke(bean, new Object[] { value });
+            }
+          }
+          return bean;
+        case JAVA:
+          ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(new ByteArrayInputStream(readBytes()));
+          Object object = ois.readObject();
+          ois.close();
+          references.add(object);
+          return object;
+        default:
+          throw new CacheException("Unknown tag " + tag + " in serialized object");
+      }
+    }
+
+    private ClassInfo readClass() throws Exception {
+      int index = in.readInt();
+      if (index >= 0) {
+        return classes.get(index);
+      }
+      ClassPlan plan = planFor(Resources.classForName(readString()));
+      Invoker[] setters = new Invoker[0];
+      if (plan.kind == BEAN) {
+        setters = new Invoker[in.readInt()];
+        for (int i = 0; i < setters.length; i++) {
+          // null for a property the class no longer has
+          setters[i] = plan.setters.get(readString());
+        }
+      }
+      ClassInfo info = new ClassInfo(plan, setters);
+      classes.add(info);
+      return info;
+    }
+
+    private String readString() throws IOException {
+      return new String(readBytes(), UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return bytes;
+    }
+  }
+
+}
@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+
+/**
+ * Compresses the bytes of another serializer with deflate, once they are large enough to be worth it.
+ *
+ * @since 3.5.0
+ */
+public class CompressingCacheSerializer implements CacheSerializer {
+
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+  private static final int DEFAULT_MIN_BYTES = 1024;
+
+  private final CacheSerializer delegate;
+  private final int minBytes;
+
+  public CompressingCacheSerializer(CacheSerializer delegate) {
+    this(delegate, DEFAULT_MIN_BYTES);
+  }
+
+  /*
+   * @param minBytes - the size under which the bytes are stored as they are
+   */
+  public CompressingCacheSerializer(CacheSerializer delegate, int minBytes) {
+    this.delegate = delegate;
+    this.minBytes = minBytes;
+  }
+
+  public CacheSerializer getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public byte[] serialize(Object object) {
+    byte[] bytes = delegate.serialize(object);
+    if (bytes.length < minBytes) {
+      byte[] raw = new byte[bytes.length + 1];
+      raw[0] = RAW;
+      System.arraycopy(bytes, 0, raw, 1, bytes.length);
+      return raw;
+    }
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+      out.write(DEFLATED);
+      writeInt(out, bytes.length);
+      byte[] buffer = new byte[Math.min(bytes.length, 64 * 1024)];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    if (bytes[0] == RAW) {
+      return delegate.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+    int length = ((bytes[1] & 0xff) << 24) | ((bytes[2] & 0xff) << 16) | ((bytes[3] & 0xff) << 8) | (bytes[4] & 0xff);
+    byte[] inflated = new byte[length];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, 5, bytes.length - 5);
+      int offset = 0;
+      while (offset < length && !inflater.finished()) {
+        int count = inflater.inflate(inflated, offset, length - offset);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        offset += count;
+      }
+      if (offset != length) {
+        throw new CacheException("Error deserializing object.  Cause: truncated compressed bytes");
+      }
+    } catch (DataFormatException e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    } finally {
+      inflater.end();
+    }
+    return delegate.deserialize(inflated);
+  }
+
+  private void writeInt(ByteArrayOutputStream out, int value) {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
+
+}
@@ -139,6 +139,7 @@ public class DefaultCursor<T> implements Cursor<T> {
         try {
             status = CursorStatus.OPEN;
             resultSetHandler.handleRowValues(rsw, resultMap, objectWrapperResultHandler, RowBounds.DEFAULT, null);
+            resultSetHandler.loadPendingBatches();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,222 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.reactive;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.session.defaults.RejectableTask;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the rows of a {@link Cursor}, fetching them from the database only as they are requested.
+ * It is a Reactive Streams {@link Publisher}, so Reactor, RxJava or Akka Streams can consume it, and requires the
+ * optional <code>org.reactivestreams:reactive-streams</code> dependency.
+ * <p>
+ * The cursor is opened when the subscriber requests its first rows and the rows are fetched on the
+ * {@link org.apache.ibatis.session.Configuration#getAsyncExecutor() asynchronous executor}, one
+ * task per burst of demand, so no thread waits while the subscriber does not request more rows.
+ * The publisher owns the session: it is closed, along with the cursor and its statement, when the
+ * rows are all published, when the statement fails or when the subscription is cancelled.
+ * <p>
+ * A cursor can only be read once, so the publisher accepts a single subscriber.
+ *
+ * @param <T> the type of the rows
+ * @since 3.5.0
+ */
+public class CursorPublisher<T> implements Publisher<T> {
+
+  private final SqlSession sqlSession;
+  private final String statement;
+  private final Object parameter;
+  private final RowBounds rowBounds;
+  private final Executor executor;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  public CursorPublisher(SqlSession sqlSession, String statement, Object parameter) {
+    this(sqlSession, statement, parameter, RowBounds.DEFAULT);
+  }
+
+  public CursorPublisher(SqlSession sqlSession, String statement, Object parameter, RowBounds rowBounds) {
+    this.sqlSession = sqlSession;
+    this.statement = statement;
+    this.parameter = parameter;
+    this.rowBounds = rowBounds;
+    if (sqlSession instanceof DefaultSqlSession) {
+      this.executor = ((DefaultSqlSession) sqlSession).getAsyncExecutor();
+    } else {
+      this.executor = sqlSession.getConfiguration().getAsyncExecutor();
+    }
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+          // nothing to publish
+        }
+
+        @Override
+        public void cancel() {
+          // nothing to release
+        }
+      });
+      subscriber.onError(new IllegalStateException("A cursor publisher supports only one subscriber."));
+      return;
+    }
+    subscriber.onSubscribe(new CursorSubscription(subscriber));
+  }
+
+  private class CursorSubscription implements Subscription, RejectableTask {
+
+    private final Subscriber<? super T> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pendingSignals = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    // only used by the task, which never runs concurrently with itself
+    private Iterator<T> iterator;
+    private boolean done;
+
+    CursorSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("The number of requested rows must be positive but was " + n);
+        cancelled = true;
+      } else {
+        long current;
+        long next;
+        do {
+          current = demand.get();
+          next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!demand.compareAndSet(current, next));
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pendingSignals.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RuntimeException e) {
+          // nothing runs, so the session can be released here
+          cancelled = true;
+          finish(e);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        drain();
+        missed = pendingSignals.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    @Override
+    public void reject(RuntimeException cause) {
+      // the session queued the task behind its other statements and the executor refused it later
+      cancelled = true;
+      finish(cause);
+    }
+
+    private void drain() {
+      if (done) {
+        return;
+      }
+      if (cancelled) {
+        finish(invalidRequest);
+        return;
+      }
+      long emitted = 0;
+      boolean exhausted;
+      try {
+        if (iterator == null) {
+          Cursor<T> cursor = sqlSession.selectCursor(statement, parameter, rowBounds);
+          iterator = cursor.iterator();
+        }
+        long requested = demand.get();
+        while (emitted != requested && !cancelled && iterator.hasNext()) {
+          subscriber.onNext(iterator.next());
+          emitted++;
+        }
+        exhausted = !cancelled && !iterator.hasNext();
+      } catch (Throwable t) {
+        finish(t);
+        return;
+      }
+      if (cancelled) {
+        finish(invalidRequest);
+      } else if (exhausted) {
+        finish(null);
+      } else if (demand.get() != Long.MAX_VALUE) {
+        demand.addAndGet(-emitted);
+      }
+    }
+
+    /*
+     * Closes the cursor and the session, then signals the end of the stream unless it was cancelled
+     *
+     * @param error - the cause of the failure, null on success or cancellation
+     */
+    private void finish(Throwable error) {
+      if (done) {
+        return;
+      }
+      done = true;
+      boolean cancelledBySubscriber = cancelled && error == null;
+      try {
+        sqlSession.close();
+      } catch (RuntimeException e) {
+        if (error == null && !cancelledBySubscriber) {
+          error = e;
+        }
+      }
+      if (error != null) {
+        subscriber.onError(error);
+      } else if (!cancelledBySubscriber) {
+        subscriber.onComplete();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,244 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free holder of the connections of a {@link PooledDataSource} that runs with
+ * {@link PooledDataSource#setPoolConcurrentBagEnabled(boolean)}.
+ * <p>
+ * Ownership of a connection is decided only by a CAS on its state, so the same connection may be
+ * referenced at once from the shared idle deque, from the thread that returned it last and from the
+ * hand-off queue; whoever wins the CAS gets it and stale references are simply skipped.
+ */
+class ConnectionBag {
+
+  private static final int MAX_THREAD_LOCAL_CONNECTIONS = 16;
+
+  private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<PooledConnection>();
+  private final Set<PooledConnection> activeConnections = Collections.newSetFromMap(new ConcurrentHashMap<PooledConnection, Boolean>());
+  private final SynchronousQueue<PooledConnection> handoffQueue = new SynchronousQueue<PooledConnection>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final AtomicInteger totalCount = new AtomicInteger();
+  private final ThreadLocal<List<WeakReference<PooledConnection>>> threadLocalConnections = new ThreadLocal<List<WeakReference<PooledConnection>>>() {
+    @Override
+    protected List<WeakReference<PooledConnection>> initialValue() {
+      return new ArrayList<WeakReference<PooledConnection>>(MAX_THREAD_LOCAL_CONNECTIONS);
+    }
+  };
+
+  /*
+   * Claims an idle connection without blocking, preferring the ones recently returned by the current thread
+   *
+   * @return The claimed connection or null if none is idle
+   */
+  public PooledConnection poll() {
+    List<WeakReference<PooledConnection>> recent = threadLocalConnections.get();
+    for (int i = recent.size() - 1; i >= 0; i--) {
+      PooledConnection conn = recent.remove(i).get();
+      if (conn != null && claim(conn)) {
+        idleConnections.remove(conn);
+        return conn;
+      }
+    }
+    return pollShared();
+  }
+
+  /*
+   * Waits for a connection to be handed off by another thread
+   *
+   * @param timeToWait - milliseconds to wait, or 0 to wait forever
+   * @return The claimed connection or null if the time elapsed
+   */
+  public PooledConnection await(long timeToWait) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      // a connection may have been returned before this thread was counted as a waiter
+      PooledConnection conn = pollShared();
+      if (conn != null) {
+        return conn;
+      }
+      long remaining = TimeUnit.MILLISECONDS.toNanos(timeToWait);
+      long deadline = System.nanoTime() + remaining;
+      while (timeToWait <= 0 || remaining > 0) {
+        conn = timeToWait <= 0 ? handoffQueue.take() : handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (conn == null) {
+          return null;
+        }
+        if (claim(conn)) {
+          idleConnections.remove(conn);
+          return conn;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /*
+   * Makes a connection available again, handing it directly to a waiting thread if there is one
+   *
+   * @param conn - a connection that is not referenced by any user
+   */
+  public void requite(PooledConnection conn) {
+    conn.setState(PooledConnection.STATE_NOT_IN_USE);
+    idleCount.incrementAndGet();
+    idleConnections.offerLast(conn);
+    List<WeakReference<PooledConnection>> recent = threadLocalConnections.get();
+    if (recent.size() >= MAX_THREAD_LOCAL_CONNECTIONS) {
+      recent.remove(0);
+    }
+    recent.add(new WeakReference<PooledConnection>(conn));
+    while (waiters.get() > 0) {
+      if (conn.getState() != PooledConnection.STATE_NOT_IN_USE || handoffQueue.offer(conn)) {
+        return;
+      }
+      Thread.yield();
+    }
+  }
+
+  /*
+   * Reserves room for a new connection
+   *
+   * @param maximum - the maximum number of connections of the pool
+   * @return True if a connection may be created; it must then be activated or discarded
+   */
+  public boolean reserve(int maximum) {
+    for (;;) {
+      int total = totalCount.get();
+      if (total >= maximum) {
+        return false;
+      }
+      if (totalCount.compareAndSet(total, total + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /*
+   * Gives back the room reserved for a connection that could not be created
+   */
+  public void cancelReservation() {
+    totalCount.decrementAndGet();
+  }
+
+  /*
+   * Registers a claimed, reserved or overdue connection as handed out to a user
+   */
+  public void activate(PooledConnection conn) {
+    conn.setState(PooledConnection.STATE_IN_USE);
+    activeConnections.add(conn);
+  }
+
+  /*
+   * Unregisters a connection that is no longer handed out to its user
+   *
+   * @return True if the connection was active; only one caller can succeed for the same connection
+   */
+  public boolean deactivate(PooledConnection conn) {
+    if (conn.compareAndSetState(PooledConnection.STATE_IN_USE, PooledConnection.STATE_REMOVED)) {
+      activeConnections.remove(conn);
+      return true;
+    }
+    return false;
+  }
+
+  /*
+   * Gives up a claimed, reserved or deactivated connection, freeing its room in the pool
+   */
+  public void discard(PooledConnection conn) {
+    conn.setState(PooledConnection.STATE_REMOVED);
+    cancelReservation();
+  }
+
+  /*
+   * Finds the connection that has been checked out for the longest time
+   *
+   * @return The connection or null if there are no active connections
+   */
+  public PooledConnection getOldestActiveConnection() {
+    PooledConnection oldest = null;
+    for (PooledConnection conn : activeConnections) {
+      if (oldest == null || conn.getCheckoutTimestamp() < oldest.getCheckoutTimestamp()) {
+        oldest = conn;
+      }
+    }
+    return oldest;
+  }
+
+  /*
+   * Removes every idle and active connection from the bag
+   *
+   * @return The removed connections
+   */
+  public List<PooledConnection> removeAll() {
+    List<PooledConnection> removed = new ArrayList<PooledConnection>();
+    PooledConnection conn;
+    while ((conn = idleConnections.pollFirst()) != null) {
+      if (claim(conn)) {
+        discard(conn);
+        removed.add(conn);
+      }
+    }
+    for (PooledConnection active : activeConnections) {
+      if (deactivate(active)) {
+        discard(active);
+        removed.add(active);
+      }
+    }
+    return removed;
+  }
+
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+  public int getActiveCount() {
+    return activeConnections.size();
+  }
+
+  private PooledConnection pollShared() {
+    PooledConnection conn;
+    while ((conn = idleConnections.pollFirst()) != null) {
+      if (claim(conn)) {
+        return conn;
+      }
+    }
+    return null;
+  }
+
+  private boolean claim(PooledConnection conn) {
+    if (conn.compareAndSetState(PooledConnection.STATE_NOT_IN_USE, PooledConnection.STATE_IN_USE)) {
+      idleCount.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+}
@@ -17,73 +17,128 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
+ * Statistics are updated atomically without holding the lock of the state, so reading them never contends with
+ * connection checkouts.
+ *
  * @author Clinton Begin
  */
 public class PoolState {
 
+  private static final AtomicLongFieldUpdater<PoolState> REQUEST_COUNT = AtomicLongFieldUpdater.newUpdater(PoolState.class, "requestCount");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_REQUEST_TIME = AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedRequestTime");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_CHECKOUT_TIME = AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedCheckoutTime");
+  private static final AtomicLongFieldUpdater<PoolState> CLAIMED_OVERDUE_CONNECTION_COUNT = AtomicLongFieldUpdater.newUpdater(PoolState.class, "claimedOverdueConnectionCount");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_CHECKOUT_TIME_OF_OVERDUE_CONNECTIONS = AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedCheckoutTimeOfOverdueConnections");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_WAIT_TIME = AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedWaitTime");
+  private static final AtomicLongFieldUpdater<PoolState> HAD_TO_WAIT_COUNT = AtomicLongFieldUpdater.newUpdater(PoolState.class, "hadToWaitCount");
+  private static final AtomicLongFieldUpdater<PoolState> BAD_CONNECTION_COUNT = AtomicLongFieldUpdater.newUpdater(PoolState.class, "badConnectionCount");
+
   protected PooledDataSource dataSource;
 
   protected final List<PooledConnection> idleConnections = new ArrayList<PooledConnection>();
   protected final List<PooledConnection> activeConnections = new ArrayList<PooledConnection>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
-  protected long badConnectionCount = 0;
+  final ConnectionBag connectionBag = new ConnectionBag();
+  protected volatile long requestCount = 0;
+  protected volatile long accumulatedRequestTime = 0;
+  protected volatile long accumulatedCheckoutTime = 0;
+  protected volatile long claimedOverdueConnectionCount = 0;
+  protected volatile long accumulatedCheckoutTimeOfOverdueConnections = 0;
+  protected volatile long accumulatedWaitTime = 0;
+  protected volatile long hadToWaitCount = 0;
+  protected volatile long badConnectionCount = 0;
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
+  void recordRequest(long requestTime) {
+    REQUEST_COUNT.incrementAndGet(this);
+    ACCUMULATED_REQUEST_TIME.addAndGet(this, requestTime);
+  }
+
+  void recordCheckout(long checkoutTime) {
+    ACCUMULATED_CHECKOUT_TIME.addAndGet(this, checkoutTime);
+  }
+
+  void recordClaimedOverdueConnection(long checkoutTime) {
+    CLAIMED_OVERDUE_CONNECTION_COUNT.incrementAndGet(this);
+    ACCUMULATED_CHECKOUT_TIME_OF_OVERDUE_CONNECTIONS.addAndGet(this, checkoutTime);
+    ACCUMULATED_CHECKOUT_TIME.addAndGet(this, checkoutTime);
+  }
+
+  void recordHadToWait() {
+    HAD_TO_WAIT_COUNT.incrementAndGet(this);
+  }
+
+  void recordWait(long waitTime) {
+    ACCUMULATED_WAIT_TIME.addAndGet(this, waitTime);
+  }
+
+  void recordBadConnection() {
+    BAD_CONNECTION_COUNT.incrementAndGet(this);
+  }
+
+  public long getRequestCount() {
     return requestCount;
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    long requests = requestCount;
+    return requests == 0 ? 0 : accumulatedRequestTime / requests;
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCount;
+    return waits == 0 ? 0 : accumulatedWaitTime / waits;
 
   }
 
-  public synchronized long getHadToWaitCount() {
+  public long getHadToWaitCount() {
     return hadToWaitCount;
   }
 
-  public synchronized long getBadConnectionCount() {
+  public long getBadConnectionCount() {
     return badConnectionCount;
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
+  public long getClaimedOverdueConnectionCount() {
     return claimedOverdueConnectionCount;
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCount;
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimed;
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageCheckoutTime() {
+    long requests = requestCount;
+    return requests == 0 ? 0 : accumulatedCheckoutTime / requests;
   }
 
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    if (dataSource.isPoolConcurrentBagEnabled()) {
+      return connectionBag.getIdleCount();
+    }
+    synchronized (this) {
+      return idleConnections.size();
+    }
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  public int getActiveConnectionCount() {
+    if (dataSource.isPoolConcurrentBagEnabled()) {
+      return connectionBag.getActiveCount();
+    }
+    synchronized (this) {
+      return activeConnections.size();
+    }
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -97,6 +152,7 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolConcurrentBagEnabled       ").append(dataSource.poolConcurrentBagEnabled);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -20,6 +20,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -29,8 +30,17 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
+  private static final String PREPARE_CALL = "prepareCall";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_REMOVED = -1;
+
+  private static final AtomicIntegerFieldUpdater<PooledConnection> STATE_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(PooledConnection.class, "state");
+
   private final int hashCode;
   private final PooledDataSource dataSource;
   private final Connection realConnection;
@@ -40,6 +50,8 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  private PooledStatementCache statementCache;
+  private volatile int state = STATE_IN_USE;
 
   /*
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
@@ -73,6 +85,35 @@ class PooledConnection implements InvocationHandler {
     return valid && realConnection != null && dataSource.pingConnection(this);
   }
 
+  /*
+   * Getter for the state of this connection within a {@link ConnectionBag}
+   *
+   * @return One of STATE_NOT_IN_USE, STATE_IN_USE or STATE_REMOVED
+   */
+  int getState() {
+    return state;
+  }
+
+  /*
+   * Setter for the state of this connection within a {@link ConnectionBag}
+   *
+   * @param state - the new state
+   */
+  void setState(int state) {
+    this.state = state;
+  }
+
+  /*
+   * Atomically moves this connection from one state to another
+   *
+   * @param expect - the expected current state
+   * @param update - the new state
+   * @return True if the state was changed
+   */
+  boolean compareAndSetState(int expect, int update) {
+    return STATE_UPDATER.compareAndSet(this, expect, update);
+  }
+
   /*
    * Getter for the *real* connection that this wraps
    *
@@ -91,6 +132,24 @@ class PooledConnection implements InvocationHandler {
     return proxyConnection;
   }
 
+  /*
+   * Getter for the cache of the prepared statements of the real connection
+   *
+   * @return The cache, or null if prepared statements are not cached
+   */
+  PooledStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /*
+   * Hands the statements cached for the real connection over to this wrapper of the same connection
+   *
+   * @param previous - the previous wrapper of the real connection
+   */
+  void takeStatementCache(PooledConnection previous) {
+    this.statementCache = previous.statementCache;
+  }
+
   /*
    * Gets the hashcode of the real connection (or 0 if it is null)
    *
@@ -242,6 +301,12 @@ class PooledConnection implements InvocationHandler {
           // throw an SQLException instead of a Runtime
           checkConnection();
         }
+        if (dataSource.getPoolPreparedStatementCacheSize() > 0 && isPrepareMethod(methodName)) {
+          if (statementCache == null) {
+            statementCache = new PooledStatementCache(dataSource.getPoolPreparedStatementCacheSize());
+          }
+          return statementCache.prepare(realConnection, proxyConnection, method, args);
+        }
         return method.invoke(realConnection, args);
       } catch (Throwable t) {
         throw ExceptionUtil.unwrapThrowable(t);
@@ -249,6 +314,10 @@ class PooledConnection implements InvocationHandler {
     }
   }
 
+  private boolean isPrepareMethod(String methodName) {
+    return PREPARE_STATEMENT.equals(methodName) || PREPARE_CALL.equals(methodName);
+  }
+
   private void checkConnection() throws SQLException {
     if (!valid) {
       throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
@@ -34,6 +34,9 @@ import org.apache.ibatis.logging.LogFactory;
 
 /**
  * This is a simple, synchronous, thread-safe database connection pool.
+ * <p>
+ * With {@link #setPoolConcurrentBagEnabled(boolean)} the connections are kept in a lock-free
+ * {@link ConnectionBag} instead, so checkouts and returns do not contend on a single monitor.
  *
  * @author Clinton Begin
  */
@@ -54,8 +57,10 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  protected boolean poolConcurrentBagEnabled;
+  protected int poolPreparedStatementCacheSize;
 
-  private int expectedConnectionTypeCode;
+  private volatile int expectedConnectionTypeCode;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -236,6 +241,31 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /*
+   * Determines if connections are kept in a lock-free bag instead of lists guarded by the pool state.
+   *
+   * @param poolConcurrentBagEnabled True to check out and return connections without locking
+   *
+   * @since 3.5.0
+   */
+  public void setPoolConcurrentBagEnabled(boolean poolConcurrentBagEnabled) {
+    this.poolConcurrentBagEnabled = poolConcurrentBagEnabled;
+    forceCloseAll();
+  }
+
+  /*
+   * The number of prepared statements cached for each connection. Closing a statement returns it to the
+   * cache of its connection, so later sessions that prepare the same SQL on that connection reuse it.
+   *
+   * @param poolPreparedStatementCacheSize The number of statements per connection, 0 to not cache statements
+   *
+   * @since 3.5.0
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -296,12 +326,33 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public boolean isPoolConcurrentBagEnabled() {
+    return poolConcurrentBagEnabled;
+  }
+
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
   public void forceCloseAll() {
     synchronized (state) {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+      for (PooledConnection conn : state.connectionBag.removeAll()) {
+        try {
+          conn.invalidate();
+
+          Connection realConn = conn.getRealConnection();
+          if (!realConn.getAutoCommit()) {
+            realConn.rollback();
+          }
+          realConn.close();
+        } catch (Exception e) {
+          // ignore
+        }
+      }
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
           PooledConnection conn = state.activeConnections.remove(i - 1);
@@ -345,12 +396,16 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    if (poolConcurrentBagEnabled) {
+      pushConnectionToBag(conn);
+      return;
+    }
 
     synchronized (state) {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
         if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordCheckout(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -358,13 +413,14 @@ public class PooledDataSource implements DataSource {
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+          newConn.takeStatementCache(conn);
           conn.invalidate();
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
           state.notifyAll();
         } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordCheckout(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -378,12 +434,57 @@ public class PooledDataSource implements DataSource {
         if (log.isDebugEnabled()) {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
-        state.badConnectionCount++;
+        state.recordBadConnection();
+      }
+    }
+  }
+
+  private void pushConnectionToBag(PooledConnection conn) throws SQLException {
+    ConnectionBag bag = state.connectionBag;
+    if (!bag.deactivate(conn)) {
+      // already returned, claimed as overdue or forcefully closed
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.recordBadConnection();
+      return;
+    }
+    if (conn.isValid()) {
+      state.recordCheckout(conn.getCheckoutTime());
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      if (bag.getIdleCount() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+        newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+        newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        newConn.takeStatementCache(conn);
+        conn.invalidate();
+        bag.requite(newConn);
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+        }
+      } else {
+        bag.discard(conn);
+        conn.getRealConnection().close();
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+        conn.invalidate();
+      }
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
       }
+      bag.discard(conn);
+      state.recordBadConnection();
     }
   }
 
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    if (poolConcurrentBagEnabled) {
+      return popConnectionFromBag(username, password);
+    }
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
@@ -411,9 +512,7 @@ public class PooledDataSource implements DataSource {
             long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
             if (longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              state.recordClaimedOverdueConnection(longestCheckoutTime);
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 try {
@@ -433,6 +532,7 @@ public class PooledDataSource implements DataSource {
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+              conn.takeStatementCache(oldestActiveConnection);
               oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
                 log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
@@ -441,7 +541,7 @@ public class PooledDataSource implements DataSource {
               // Must wait
               try {
                 if (!countedWait) {
-                  state.hadToWaitCount++;
+                  state.recordHadToWait();
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
@@ -449,7 +549,7 @@ public class PooledDataSource implements DataSource {
                 }
                 long wt = System.currentTimeMillis();
                 state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                state.recordWait(System.currentTimeMillis() - wt);
               } catch (InterruptedException e) {
                 break;
               }
@@ -466,13 +566,12 @@ public class PooledDataSource implements DataSource {
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.recordRequest(System.currentTimeMillis() - t);
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
-            state.badConnectionCount++;
+            state.recordBadConnection();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
@@ -497,6 +596,110 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  private PooledConnection popConnectionFromBag(String username, String password) throws SQLException {
+    ConnectionBag bag = state.connectionBag;
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (conn == null) {
+      conn = bag.poll();
+      if (conn != null) {
+        // Pool has available connection
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+      } else if (bag.reserve(poolMaximumActiveConnections)) {
+        // Can create new connection
+        try {
+          conn = new PooledConnection(dataSource.getConnection(), this);
+        } catch (SQLException e) {
+          bag.cancelReservation();
+          throw e;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Created connection " + conn.getRealHashCode() + ".");
+        }
+      } else {
+        // Cannot create new connection
+        PooledConnection oldestActiveConnection = bag.getOldestActiveConnection();
+        long longestCheckoutTime = oldestActiveConnection == null ? 0 : oldestActiveConnection.getCheckoutTime();
+        if (longestCheckoutTime > poolMaximumCheckoutTime && bag.deactivate(oldestActiveConnection)) {
+          // Can claim overdue connection
+          state.recordClaimedOverdueConnection(longestCheckoutTime);
+          if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+            try {
+              oldestActiveConnection.getRealConnection().rollback();
+            } catch (SQLException e) {
+              log.debug("Bad connection. Could not roll back");
+            }
+          }
+          conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+          conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+          conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+          conn.takeStatementCache(oldestActiveConnection);
+          oldestActiveConnection.invalidate();
+          if (log.isDebugEnabled()) {
+            log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+          }
+        } else {
+          // Must wait
+          try {
+            if (!countedWait) {
+              state.recordHadToWait();
+              countedWait = true;
+            }
+            if (log.isDebugEnabled()) {
+              log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+            }
+            long wt = System.currentTimeMillis();
+            conn = bag.await(poolTimeToWait);
+            state.recordWait(System.currentTimeMillis() - wt);
+          } catch (InterruptedException e) {
+            break;
+          }
+        }
+      }
+      if (conn != null) {
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          bag.activate(conn);
+          state.recordRequest(System.currentTimeMillis() - t);
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          bag.discard(conn);
+          state.recordBadConnection();
+          localBadConnectionCount++;
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+            if (log.isDebugEnabled()) {
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
+            }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+          }
+        }
+      }
+    }
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+
+    return conn;
+  }
+
   /*
    * Method to check to see if a connection is still usable
    *
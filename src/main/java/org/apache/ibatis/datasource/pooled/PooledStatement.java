@@ -0,0 +1,146 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ibatis.datasource.pooled.PooledStatementCache.StatementKey;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A prepared statement borrowed from a {@link PooledStatementCache}. Closing it puts the real statement back
+ * into the cache instead of closing it.
+ */
+class PooledStatement implements InvocationHandler {
+
+  private static final String EQUALS = "equals";
+  private static final String CLOSE = "close";
+  private static final String IS_CLOSED = "isClosed";
+  private static final String GET_CONNECTION = "getConnection";
+  private static final Set<String> OPTION_SETTERS = new HashSet<String>(Arrays.asList(
+      "setQueryTimeout", "setFetchSize", "setMaxRows", "setMaxFieldSize", "setFetchDirection", "setLargeMaxRows"));
+
+  private final Statement realStatement;
+  private final StatementKey key;
+  private final PooledStatementCache statementCache;
+  private final Connection proxyConnection;
+  private boolean closed;
+  private int[] defaultOptions;
+  private long defaultMaxRows;
+  private boolean largeMaxRows;
+
+  public PooledStatement(Statement statement, StatementKey key, PooledStatementCache statementCache, Connection proxyConnection) {
+    this.realStatement = statement;
+    this.key = key;
+    this.statementCache = statementCache;
+    this.proxyConnection = proxyConnection;
+  }
+
+  public Statement getProxyStatement(Class<?> statementType) {
+    return (Statement) Proxy.newProxyInstance(statementType.getClassLoader(), new Class<?>[] { statementType }, this);
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String methodName = method.getName();
+    if (Object.class.equals(method.getDeclaringClass())) {
+      if (EQUALS.equals(methodName)) {
+        return proxy == args[0];
+      }
+      return method.invoke(realStatement, args);
+    }
+    if (CLOSE.equals(methodName)) {
+      close();
+      return null;
+    }
+    if (IS_CLOSED.equals(methodName)) {
+      return closed || realStatement.isClosed();
+    }
+    if (closed) {
+      throw new SQLException("Error accessing PooledStatement. Statement is closed.");
+    }
+    if (GET_CONNECTION.equals(methodName)) {
+      return proxyConnection;
+    }
+    if (defaultOptions == null && OPTION_SETTERS.contains(methodName)) {
+      saveDefaultOptions();
+    }
+    try {
+      return method.invoke(realStatement, args);
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      restoreDefaultOptions();
+    } catch (SQLException e) {
+      try {
+        realStatement.close();
+      } catch (SQLException ignore) {
+        // ignore
+      }
+      return;
+    }
+    statementCache.release(key, realStatement);
+  }
+
+  /*
+   * The options set by a session must not leak into the next session that gets the same statement
+   */
+  private void saveDefaultOptions() throws SQLException {
+    defaultOptions = new int[] { realStatement.getQueryTimeout(), realStatement.getFetchSize(),
+        realStatement.getMaxFieldSize(), realStatement.getFetchDirection() };
+    try {
+      defaultMaxRows = realStatement.getLargeMaxRows();
+      largeMaxRows = true;
+    } catch (UnsupportedOperationException e) {
+      // a driver older than JDBC 4.2
+      defaultMaxRows = realStatement.getMaxRows();
+    } catch (SQLFeatureNotSupportedException e) {
+      defaultMaxRows = realStatement.getMaxRows();
+    }
+  }
+
+  private void restoreDefaultOptions() throws SQLException {
+    if (defaultOptions != null && !realStatement.isClosed()) {
+      realStatement.setQueryTimeout(defaultOptions[0]);
+      realStatement.setFetchSize(defaultOptions[1]);
+      if (largeMaxRows) {
+        realStatement.setLargeMaxRows(defaultMaxRows);
+      } else {
+        realStatement.setMaxRows((int) defaultMaxRows);
+      }
+      realStatement.setMaxFieldSize(defaultOptions[2]);
+      realStatement.setFetchDirection(defaultOptions[3]);
+    }
+  }
+
+}
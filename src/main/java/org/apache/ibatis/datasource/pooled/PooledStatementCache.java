@@ -0,0 +1,165 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A bounded, least recently used cache of the prepared statements of one real connection.
+ * <p>
+ * The cache outlives the {@link PooledConnection} wrappers of its connection, so statements closed by one
+ * session are handed to the next session that prepares the same SQL with the same options. A statement is
+ * removed from the cache while it is in use and put back when it is closed; the statements evicted from the
+ * cache are closed for real, and the idle ones are closed along with the real connection.
+ */
+class PooledStatementCache {
+
+  private static final Log log = LogFactory.getLog(PooledStatementCache.class);
+
+  private final int size;
+  private final Map<StatementKey, Statement> statements;
+
+  public PooledStatementCache(final int size) {
+    this.size = size;
+    this.statements = new LinkedHashMap<StatementKey, Statement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<StatementKey, Statement> eldest) {
+        if (size() > PooledStatementCache.this.size) {
+          closeQuietly(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /*
+   * Gets a cached statement for a prepareStatement or prepareCall invocation, preparing a new one on a miss
+   *
+   * @param realConnection - the connection the statements belong to
+   * @param proxyConnection - the connection the statement reports as its own
+   * @param method - the Connection method that was invoked
+   * @param args - the arguments of the invocation
+   * @return A statement whose close() puts it back into this cache
+   */
+  public Statement prepare(Connection realConnection, Connection proxyConnection, Method method, Object[] args) throws Throwable {
+    StatementKey key = new StatementKey(method.getName(), args);
+    Statement statement = take(key);
+    if (statement == null) {
+      statement = (Statement) method.invoke(realConnection, args);
+    } else if (log.isDebugEnabled()) {
+      log.debug("Reusing cached statement for connection " + realConnection.hashCode() + ".");
+    }
+    return new PooledStatement(statement, key, this, proxyConnection).getProxyStatement(method.getReturnType());
+  }
+
+  /*
+   * Puts a statement that is no longer used back into the cache, or closes it when it cannot be reused
+   */
+  void release(StatementKey key, Statement statement) {
+    try {
+      if (statement.isClosed() || statement.getConnection().isClosed()) {
+        return;
+      }
+      ((PreparedStatement) statement).clearParameters();
+      statement.clearBatch();
+      statement.clearWarnings();
+    } catch (SQLException e) {
+      closeQuietly(statement);
+      return;
+    }
+    if (!offer(key, statement)) {
+      closeQuietly(statement);
+    }
+  }
+
+  public synchronized int getCachedStatementCount() {
+    return statements.size();
+  }
+
+  private synchronized Statement take(StatementKey key) {
+    return statements.remove(key);
+  }
+
+  private synchronized boolean offer(StatementKey key, Statement statement) {
+    if (statements.containsKey(key)) {
+      // the same SQL was prepared twice while in use, keep one of them
+      return false;
+    }
+    statements.put(key, statement);
+    return true;
+  }
+
+  private static void closeQuietly(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  /*
+   * The name of the prepare method plus its arguments: the SQL text and the result set type, concurrency,
+   * holdability or generated key options.
+   */
+  static final class StatementKey {
+
+    private final String methodName;
+    private final Object[] args;
+    private final int hashCode;
+
+    StatementKey(String methodName, Object[] args) {
+      this.methodName = methodName;
+      this.args = args == null ? new Object[0] : args.clone();
+      this.hashCode = 31 * methodName.hashCode() + Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof StatementKey)) {
+        return false;
+      }
+      StatementKey other = (StatementKey) obj;
+      return hashCode == other.hashCode && methodName.equals(other.methodName) && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public String toString() {
+      return methodName + Arrays.deepToString(args);
+    }
+  }
+
+}
@@ -20,10 +20,14 @@ import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOL
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.impl.BoundedPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementUtil;
@@ -38,6 +42,7 @@ import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheEviction;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -58,6 +63,8 @@ public abstract class BaseExecutor implements Executor {
   protected PerpetualCache localCache;
   protected PerpetualCache localOutputParameterCache;
   protected Configuration configuration;
+  private final CacheMetrics localCacheMetrics;
+  private final Set<CacheKey> loadingKeys = new HashSet<CacheKey>();
 
   protected int queryStack;
   private boolean closed;
@@ -65,10 +72,11 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<DeferredLoad>();
-    this.localCache = new PerpetualCache("LocalCache");
+    this.configuration = configuration;
+    this.localCache = newLocalCache("LocalCache");
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+    this.localCacheMetrics = configuration == null ? null : configuration.getLocalCacheMetrics();
     this.closed = false;
-    this.configuration = configuration;
     this.wrapper = this;
   }
 
@@ -150,6 +158,13 @@ public abstract class BaseExecutor implements Executor {
     try {
       queryStack++;
       list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      if (localCacheMetrics != null && resultHandler == null) {
+        if (list != null) {
+          localCacheMetrics.recordHit();
+        } else {
+          localCacheMetrics.recordMiss();
+        }
+      }
       if (list != null) {
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
@@ -167,6 +182,8 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else {
+        evictLocalCacheExcess();
       }
     }
     return list;
@@ -267,6 +284,46 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  private PerpetualCache newLocalCache(String id) {
+    if (configuration == null) {
+      // executors standing in for a closed session have no configuration
+      return new PerpetualCache(id);
+    }
+    Integer maxEntries = configuration.getLocalCacheSize();
+    Long maxBytes = configuration.getLocalCacheMaxBytes();
+    if (maxEntries == null && maxBytes == null) {
+      return new PerpetualCache(id);
+    }
+    return new BoundedPerpetualCache(id, maxEntries == null ? 0 : maxEntries, maxBytes == null ? 0 : maxBytes,
+        configuration.getLocalCacheEviction() == LocalCacheEviction.LFU);
+  }
+
+  /*
+   * Between top level queries any entry can go. While nested queries load results, the placeholders of the
+   * queries in progress and the results that pending deferred loads wait for are kept.
+   * The output parameters of an evicted callable statement go with it.
+   */
+  private void evictLocalCacheExcess() {
+    if (localCache instanceof BoundedPerpetualCache) {
+      List<Object> evicted;
+      if (queryStack == 0) {
+        evicted = ((BoundedPerpetualCache) localCache).evictExcess();
+      } else {
+        Set<Object> retainedKeys = new HashSet<Object>(loadingKeys);
+        for (DeferredLoad deferredLoad : deferredLoads) {
+          retainedKeys.add(deferredLoad.key);
+        }
+        evicted = ((BoundedPerpetualCache) localCache).evictExcess(retainedKeys);
+      }
+      for (Object key : evicted) {
+        localOutputParameterCache.removeObject(key);
+      }
+      if (localCacheMetrics != null && !evicted.isEmpty()) {
+        localCacheMetrics.recordEvictions(evicted.size());
+      }
+    }
+  }
+
   protected abstract int doUpdate(MappedStatement ms, Object parameter)
       throws SQLException;
 
@@ -322,15 +379,25 @@ public abstract class BaseExecutor implements Executor {
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
     List<E> list;
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
+    loadingKeys.add(key);
+    long loadStart = localCacheMetrics == null ? 0 : System.nanoTime();
     try {
       list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
     } finally {
+      loadingKeys.remove(key);
       localCache.removeObject(key);
     }
     localCache.putObject(key, list);
+    if (localCacheMetrics != null) {
+      localCacheMetrics.recordLoad(System.nanoTime() - loadStart);
+      localCacheMetrics.recordPut();
+    }
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
     }
+    if (queryStack > 1) {
+      evictLocalCacheExcess();
+    }
     return list;
   }
 
@@ -17,19 +17,28 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -44,8 +53,12 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<Statement>();
   private final List<BatchResult> batchResultList = new ArrayList<BatchResult>();
+  private final Map<String, Integer> statementIndexes = new HashMap<String, Integer>();
+  private final List<MultiRowInsert> multiRowInserts = new ArrayList<MultiRowInsert>();
   private String currentSql;
   private MappedStatement currentStatement;
+  private int queuedParameterObjects;
+  private long queuedBytes;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -58,27 +71,130 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-     handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+    final BatchResult batchResult;
+    int index = indexOfBatchedStatement(ms, sql);
+    if (index >= 0) {
+      MultiRowInsert multiRowInsert = multiRowInserts.get(index);
+      stmt = statementList.get(index);
+      if (multiRowInsert != null) {
+        multiRowInsert.addRow(boundSql);
+      } else {
+        applyTransactionTimeout(stmt);
+       handler.parameterize(stmt);//fix Issues 322
+      }
+      batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
+      MultiRowInsert multiRowInsert = newMultiRowInsert(ms, boundSql);
+      if (multiRowInsert != null) {
+        // prepared at flush, once the number of rows is known
+        stmt = null;
+        multiRowInsert.addRow(boundSql);
+      } else {
+        Connection connection = getConnection(ms.getStatementLog());
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);    //fix Issues 322
+      }
       currentSql = sql;
       currentStatement = ms;
+      batchResult = new BatchResult(ms, sql, parameterObject);
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchResultList.add(batchResult);
+      multiRowInserts.add(multiRowInsert);
+      if (configuration.isBatchGroupingEnabled()) {
+        statementIndexes.put(sql, statementList.size() - 1);
+      }
     }
   // handler.parameterize(stmt);
-    handler.batch(stmt);
+    if (stmt != null) {
+      handler.batch(stmt);
+    }
+    queuedParameterObjects++;
+    if (configuration.getBatchMaxBytes() != null) {
+      queuedBytes += estimateSize(boundSql);
+    }
+    if (isBatchFull(batchResult)) {
+      // all the statements run so the executions keep their order, and their results are dropped
+      // along with their parameter objects so they do not pile up in memory
+      doFlushStatements(false);
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  /*
+   * Finds the statement an execution can be added to. By default only the last statement is reused, so the
+   * executions run in the order they were requested. When batches are grouped, each distinct sql keeps its
+   * own statement and the statements run in the order their sql was first seen.
+   */
+  private int indexOfBatchedStatement(MappedStatement ms, String sql) {
+    if (configuration.isBatchGroupingEnabled()) {
+      Integer index = statementIndexes.get(sql);
+      return index != null && batchResultList.get(index).getMappedStatement().equals(ms) ? index : -1;
+    }
+    return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+  }
+
+  private MultiRowInsert newMultiRowInsert(MappedStatement ms, BoundSql boundSql) {
+    Integer rowsPerInsert = configuration.getBatchInsertRewriteSize();
+    if (rowsPerInsert == null || rowsPerInsert < 2
+        || ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED) {
+      return null;
+    }
+    return MultiRowInsert.parse(boundSql.getSql(), boundSql.getParameterMappings().size(), rowsPerInsert);
+  }
+
+  private boolean isBatchFull(BatchResult currentBatch) {
+    Integer maxStatementSize = configuration.getBatchMaxStatementSize();
+    Integer maxParameterObjects = configuration.getBatchMaxParameterObjects();
+    Long maxBytes = configuration.getBatchMaxBytes();
+    return (maxStatementSize != null && currentBatch.getParameterObjects().size() >= maxStatementSize)
+        || (maxParameterObjects != null && queuedParameterObjects >= maxParameterObjects)
+        || (maxBytes != null && queuedBytes >= maxBytes);
+  }
+
+  /*
+   * Estimates the memory used by the driver to keep the values bound to a batched statement
+   */
+  private long estimateSize(BoundSql boundSql) {
+    long size = 0;
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings == null) {
+      return size;
+    }
+    Object parameterObject = boundSql.getParameterObject();
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      Object value;
+      String propertyName = parameterMapping.getProperty();
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      size += estimateSize(value);
+    }
+    return size;
+  }
+
+  private long estimateSize(Object value) {
+    if (value instanceof CharSequence) {
+      return 16 + 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return 16 + 2L * ((char[]) value).length;
+    } else {
+      return 16;
+    }
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -115,24 +231,19 @@ public class BatchExecutor extends BaseExecutor {
         return Collections.emptyList();
       }
       for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
         BatchResult batchResult = batchResultList.get(i);
+        MultiRowInsert multiRowInsert = multiRowInserts.get(i);
         try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
+          if (multiRowInsert != null) {
+            batchResult.setUpdateCounts(executeMultiRowInsert(multiRowInsert, batchResult));
+          } else {
+            Statement stmt = statementList.get(i);
+            applyTransactionTimeout(stmt);
+            batchResult.setUpdateCounts(stmt.executeBatch());
+            processGeneratedKeys(batchResult.getMappedStatement(), stmt, batchResult.getParameterObjects());
+            // Close statement to close cursor #1109
+            closeStatement(stmt);
           }
-          // Close statement to close cursor #1109
-          closeStatement(stmt);
         } catch (BatchUpdateException e) {
           StringBuilder message = new StringBuilder();
           message.append(batchResult.getMappedStatement().getId())
@@ -157,6 +268,71 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      statementIndexes.clear();
+      multiRowInserts.clear();
+      queuedParameterObjects = 0;
+      queuedBytes = 0;
+    }
+  }
+
+  private void processGeneratedKeys(MappedStatement ms, Statement stmt, List<Object> parameterObjects) throws SQLException {
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+      Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+      jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+    } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+      for (Object parameter : parameterObjects) {
+        keyGenerator.processAfter(this, ms, stmt, parameter);
+      }
+    }
+  }
+
+  /*
+   * Sends the queued rows as multi row inserts: the full chunks as one batch of a single statement,
+   * then the remaining rows as one more statement
+   *
+   * @return one update count per row, SUCCESS_NO_INFO when a statement did not insert all its rows
+   */
+  private int[] executeMultiRowInsert(MultiRowInsert multiRowInsert, BatchResult batchResult) throws SQLException {
+    int rows = batchResult.getParameterObjects().size();
+    int chunkSize = multiRowInsert.getChunkSize();
+    int[] updateCounts = new int[rows];
+    int fullChunks = rows / chunkSize;
+    if (fullChunks > 0) {
+      executeMultiRowInsert(multiRowInsert, batchResult, 0, fullChunks, chunkSize, updateCounts);
+    }
+    if (rows % chunkSize > 0) {
+      executeMultiRowInsert(multiRowInsert, batchResult, fullChunks * chunkSize, 1, rows % chunkSize, updateCounts);
+    }
+    return updateCounts;
+  }
+
+  private void executeMultiRowInsert(MultiRowInsert multiRowInsert, BatchResult batchResult, int firstRow, int chunks,
+      int chunkSize, int[] updateCounts) throws SQLException {
+    MappedStatement ms = batchResult.getMappedStatement();
+    List<Object> parameterObjects = batchResult.getParameterObjects();
+    List<BoundSql> boundSqls = multiRowInsert.getBoundSqls();
+    BoundSql boundSql = new BoundSql(boundSqls.get(firstRow), multiRowInsert.getSql(chunkSize));
+    StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObjects.get(firstRow), RowBounds.DEFAULT, null, boundSql);
+    PreparedStatement stmt = (PreparedStatement) handler.prepare(getConnection(ms.getStatementLog()), transaction.getTimeout());
+    try {
+      MultiRowInsert.RowStatements rowStatements = multiRowInsert.getRowStatements(stmt);
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        for (int row = 0; row < chunkSize; row++) {
+          int rowIndex = firstRow + chunk * chunkSize + row;
+          ParameterHandler parameterHandler = configuration.newParameterHandler(ms, parameterObjects.get(rowIndex), boundSqls.get(rowIndex));
+          parameterHandler.setParameters(rowStatements.forRow(row));
+        }
+        stmt.addBatch();
+      }
+      int[] chunkUpdateCounts = stmt.executeBatch();
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        int updateCount = chunkUpdateCounts[chunk] == chunkSize ? 1 : Statement.SUCCESS_NO_INFO;
+        Arrays.fill(updateCounts, firstRow + chunk * chunkSize, firstRow + (chunk + 1) * chunkSize, updateCount);
+      }
+      processGeneratedKeys(ms, stmt, parameterObjects.subList(firstRow, firstRow + chunks * chunkSize));
+    } finally {
+      closeStatement(stmt);
     }
   }
 
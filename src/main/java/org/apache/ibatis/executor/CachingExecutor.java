@@ -16,18 +16,28 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.EntityReferences;
+import org.apache.ibatis.cache.GenerationalEntry;
+import org.apache.ibatis.cache.TableTimestamps;
 import org.apache.ibatis.cache.TransactionalCacheManager;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -39,10 +49,22 @@ import org.apache.ibatis.transaction.Transaction;
 public class CachingExecutor implements Executor {
 
   private final Executor delegate;
-  private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private final TableTimestamps tableTimestamps;
+  private final TransactionalCacheManager tcm;
+  private final Map<Cache, Map<String, String>> pendingGenerations = new HashMap<Cache, Map<String, String>>();
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param tableTimestamps the timestamps of the tables of the statements, or null to clear whole caches on writes
+   * @since 3.5.0
+   */
+  public CachingExecutor(Executor delegate, TableTimestamps tableTimestamps) {
     this.delegate = delegate;
+    this.tableTimestamps = tableTimestamps;
+    this.tcm = new TransactionalCacheManager(tableTimestamps);
     delegate.setExecutorWrapper(this);
   }
 
@@ -61,6 +83,7 @@ public class CachingExecutor implements Executor {
         tcm.commit();
       }
     } finally {
+      pendingGenerations.clear();
       delegate.close(forceRollback);
     }
   }
@@ -72,7 +95,18 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
+    List<CacheKey> entityKeys = getEvictedEntityKeys(ms, parameterObject);
+    if (entityKeys == null || tableTimestamps != null) {
+      flushCacheIfRequired(ms);
+    }
+    if (entityKeys != null) {
+      for (CacheKey entityKey : entityKeys) {
+        tcm.evict(ms.getCache(), entityKey);
+      }
+      if (tableTimestamps == null) {
+        startNewGenerations(ms);
+      }
+    }
     return delegate.update(ms, parameterObject);
   }
 
@@ -97,11 +131,17 @@ public class CachingExecutor implements Executor {
       flushCacheIfRequired(ms);
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, boundSql);
-        @SuppressWarnings("unchecked")
-        List<E> list = (List<E>) tcm.getObject(cache, key);
+        List<E> list = getCachedList(cache, key);
         if (list == null) {
+          CacheMetrics metrics = ms.getConfiguration().getCacheMetrics(cache.getId());
+          long loadStart = metrics == null ? 0 : System.nanoTime();
+          // taken before the query so a write committed meanwhile makes the result outdated
+          long timestamp = tableTimestamps != null ? tableTimestamps.currentTimestamp() : 0;
           list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          putList(ms, cache, key, list, timestamp); // issue #578 and #116
+          if (metrics != null) {
+            metrics.recordLoad(System.nanoTime() - loadStart);
+          }
         }
         return list;
       }
@@ -117,6 +157,7 @@ public class CachingExecutor implements Executor {
   @Override
   public void commit(boolean required) throws SQLException {
     delegate.commit(required);
+    pendingGenerations.clear();
     tcm.commit();
   }
 
@@ -126,6 +167,7 @@ public class CachingExecutor implements Executor {
       delegate.rollback(required);
     } finally {
       if (required) {
+        pendingGenerations.clear();
         tcm.rollback();
       }
     }
@@ -161,9 +203,154 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
+  /*
+   * Resolves the objects of a result cached as entity references, or gets null if one of them was evicted
+   */
+  @SuppressWarnings("unchecked")
+  private <E> List<E> getCachedList(Cache cache, CacheKey key) {
+    Object value = tcm.getObject(cache, key);
+    String generation = null;
+    if (value instanceof GenerationalEntry) {
+      GenerationalEntry entry = (GenerationalEntry) value;
+      generation = getGeneration(cache, entry.getKind());
+      value = generation.equals(entry.getGeneration()) ? entry.getValue() : null;
+    }
+    if (!(value instanceof EntityReferences)) {
+      return (List<E>) value;
+    }
+    CacheKey[] entityKeys = ((EntityReferences) value).getKeys();
+    List<E> list = new ArrayList<E>(entityKeys.length);
+    for (CacheKey entityKey : entityKeys) {
+      Object entity = tcm.getObject(cache, entityKey);
+      if (entity instanceof GenerationalEntry) {
+        // the objects are of the kind of the references holding them
+        GenerationalEntry entry = (GenerationalEntry) entity;
+        entity = entry.getGeneration().equals(generation) ? entry.getValue() : null;
+      }
+      if (entity == null) {
+        return null;
+      }
+      list.add((E) entity);
+    }
+    return list;
+  }
+
+  /*
+   * Caches the objects of the result one by one when they have an identity, along with their references
+   */
+  private void putList(MappedStatement ms, Cache cache, CacheKey key, List<?> list, long timestamp) {
+    Configuration configuration = ms.getConfiguration();
+    if (!configuration.isEntityCacheEnabled()) {
+      putObject(ms, cache, key, list, timestamp);
+      return;
+    }
+    CacheKey[] entityKeys = null;
+    if (ms.getResultMaps().size() == 1) {
+      entityKeys = EntityReferences.keysOf(configuration, ms.getId(), ms.getResultMaps().get(0), list);
+    }
+    String kind = entityKeys == null ? GenerationalEntry.NO_IDENTITY : ms.getResultMaps().get(0).getId();
+    String generation = getGenerationOfPut(configuration, cache, kind);
+    if (entityKeys == null) {
+      putObject(ms, cache, key, tagged(list, kind, generation), timestamp);
+      return;
+    }
+    for (int i = 0; i < entityKeys.length; i++) {
+      putObject(ms, cache, entityKeys[i], tagged(list.get(i), kind, generation), timestamp);
+    }
+    putObject(ms, cache, key, tagged(new EntityReferences(entityKeys), kind, generation), timestamp);
+  }
+
+  private Object tagged(Object value, String kind, String generation) {
+    return generation == null ? value : new GenerationalEntry(value, kind, generation);
+  }
+
+  /*
+   * Gets the generation to tag the entries of a kind with, or null if the cache has no entity evictions to tag them for
+   */
+  private String getGenerationOfPut(Configuration configuration, Cache cache, String kind) {
+    if (tableTimestamps != null || configuration.getEntityResultMapIds(cache).isEmpty()) {
+      return null;
+    }
+    return getGeneration(cache, kind);
+  }
+
+  /*
+   * A generation this session starts is only seen by others once committed, and kept aside until then
+   * because the transactional cache does not read the entries it is about to add
+   */
+  private String getGeneration(Cache cache, String kind) {
+    Map<String, String> pending = pendingGenerations.get(cache);
+    String generation = pending == null ? null : pending.get(kind);
+    if (generation == null) {
+      CacheKey generationKey = GenerationalEntry.generationKey(kind);
+      generation = (String) tcm.getObject(cache, generationKey);
+      if (generation == null) {
+        generation = GenerationalEntry.newGeneration();
+        tcm.putObject(cache, generationKey, generation);
+        if (pending == null) {
+          pending = new HashMap<String, String>();
+          pendingGenerations.put(cache, pending);
+        }
+        pending.put(kind, generation);
+      }
+    }
+    return generation;
+  }
+
+  /*
+   * Outdates the cached entries of the kinds other than the evicted objects, which may hold the changed row too
+   */
+  private void startNewGenerations(MappedStatement ms) {
+    Cache cache = ms.getCache();
+    List<String> kinds = new ArrayList<String>(ms.getConfiguration().getEntityResultMapIds(cache));
+    kinds.remove(ms.getEvictEntity());
+    kinds.add(GenerationalEntry.NO_IDENTITY);
+    Map<String, String> pending = pendingGenerations.get(cache);
+    for (String kind : kinds) {
+      if (pending != null) {
+        pending.remove(kind);
+      }
+      tcm.evict(cache, GenerationalEntry.generationKey(kind));
+    }
+  }
+
+  private void putObject(MappedStatement ms, Cache cache, CacheKey key, Object value, long timestamp) {
+    if (tableTimestamps != null) {
+      tcm.putObject(cache, key, value, ms.getTables(), timestamp);
+    } else {
+      tcm.putObject(cache, key, value);
+    }
+  }
+
+  /*
+   * Gets the keys under which the selects of the cache hold the only object an update or delete changes, or null
+   * if it has to flush the cache as usual
+   */
+  private List<CacheKey> getEvictedEntityKeys(MappedStatement ms, Object parameterObject) {
+    Configuration configuration = ms.getConfiguration();
+    if (ms.getCache() == null || !ms.isFlushCacheRequired() || ms.getEvictEntity() == null
+        || !configuration.isEntityCacheEnabled()
+        || (ms.getSqlCommandType() != SqlCommandType.UPDATE && ms.getSqlCommandType() != SqlCommandType.DELETE)) {
+      return null;
+    }
+    ResultMap resultMap = configuration.getResultMap(ms.getEvictEntity());
+    List<CacheKey> keys = new ArrayList<CacheKey>();
+    for (String statementId : configuration.getEntityStatementIds(ms.getCache(), resultMap)) {
+      CacheKey key = EntityReferences.keyOfParameter(configuration, statementId, resultMap, parameterObject);
+      if (key == null) {
+        return null;
+      }
+      keys.add(key);
+    }
+    return keys;
+  }
+
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
-    if (cache != null && ms.isFlushCacheRequired()) {      
+    if (tableTimestamps != null && ms.isFlushCacheRequired() && ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      // the written tables are invalidated in the caches of all namespaces
+      tcm.invalidate(cache, ms.getTables());
+    } else if (cache != null && ms.isFlushCacheRequired()) {      
       tcm.clear(cache);
     }
   }
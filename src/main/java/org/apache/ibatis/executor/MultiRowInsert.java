@@ -0,0 +1,201 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Single row <code>INSERT ... VALUES (...)</code> statements queued by the {@link BatchExecutor} to be sent
+ * as multi row <code>INSERT ... VALUES (...), (...), ...</code> statements.
+ * <p>
+ * Each row keeps its own {@link BoundSql}, so the parameters of the rows are set by the usual parameter
+ * handler, at the offset of the row in the multi row statement.
+ */
+class MultiRowInsert {
+
+  private final String prefix;
+  private final String row;
+  private final int placeholders;
+  private final int chunkSize;
+  private final List<BoundSql> boundSqls = new ArrayList<BoundSql>();
+
+  private MultiRowInsert(String prefix, String row, int placeholders, int chunkSize) {
+    this.prefix = prefix;
+    this.row = row;
+    this.placeholders = placeholders;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Checks whether an insert can be rewritten.
+   *
+   * @param sql the sql of the insert
+   * @param parameterCount the number of parameters of the insert
+   * @param chunkSize the maximum number of rows per statement
+   * @return the queue of the rows of the insert, or null when the insert does not end with a single values list
+   *         holding all its parameters
+   */
+  static MultiRowInsert parse(String sql, int parameterCount, int chunkSize) {
+    int end = sql.length();
+    while (end > 0 && (Character.isWhitespace(sql.charAt(end - 1)) || sql.charAt(end - 1) == ';')) {
+      end--;
+    }
+    String statement = sql.substring(0, end);
+    if (!statement.trim().toLowerCase(Locale.ENGLISH).startsWith("insert")) {
+      return null;
+    }
+    int depth = 0;
+    int valuesEnd = -1;
+    int rowStart = -1;
+    int rowEnd = -1;
+    int placeholders = 0;
+    int rowPlaceholders = 0;
+    for (int i = 0; i < statement.length(); i++) {
+      char c = statement.charAt(i);
+      if (c == '\'' || c == '"' || c == '`' || c == '[') {
+        i = statement.indexOf(c == '[' ? ']' : c, i + 1);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '-' && statement.startsWith("--", i)) {
+        // a line comment ending the statement would swallow the rows appended after it
+        i = statement.indexOf('\n', i);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '/' && statement.startsWith("/*", i)) {
+        i = statement.indexOf("*/", i + 2);
+        if (i < 0) {
+          return null;
+        }
+        i++;
+      } else if (c == '?') {
+        placeholders++;
+        if (rowStart >= 0) {
+          rowPlaceholders++;
+        }
+      } else if (c == '(') {
+        if (depth == 0 && valuesEnd >= 0 && rowStart < 0 && statement.substring(valuesEnd, i).trim().isEmpty()) {
+          rowStart = i;
+        }
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0 && rowStart >= 0 && rowEnd < 0) {
+          rowEnd = i + 1;
+        }
+      } else if (depth == 0 && rowStart < 0 && isKeyword(statement, i, "values")) {
+        valuesEnd = i + "values".length();
+        i = valuesEnd - 1;
+      }
+    }
+    if (rowEnd < 0 || !statement.substring(rowEnd).trim().isEmpty()
+        || placeholders != parameterCount || rowPlaceholders != parameterCount) {
+      return null;
+    }
+    return new MultiRowInsert(statement.substring(0, rowStart), statement.substring(rowStart, rowEnd), placeholders, chunkSize);
+  }
+
+  private static boolean isKeyword(String sql, int start, String keyword) {
+    int end = start + keyword.length();
+    return sql.regionMatches(true, start, keyword, 0, keyword.length())
+        && (start == 0 || !Character.isJavaIdentifierPart(sql.charAt(start - 1)))
+        && (end == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(end)));
+  }
+
+  public void addRow(BoundSql boundSql) {
+    boundSqls.add(boundSql);
+  }
+
+  public List<BoundSql> getBoundSqls() {
+    return boundSqls;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public String getSql(int rows) {
+    StringBuilder sql = new StringBuilder(prefix.length() + (row.length() + 2) * rows);
+    sql.append(prefix).append(row);
+    for (int i = 1; i < rows; i++) {
+      sql.append(", ").append(row);
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Gets the views of a statement that set the parameters of its rows, created once per statement.
+   *
+   * @param ps the multi row statement
+   * @return the views of the rows of the statement
+   */
+  public RowStatements getRowStatements(PreparedStatement ps) {
+    return new RowStatements(ps, placeholders);
+  }
+
+  /**
+   * A statement whose parameter indexes are shifted to the parameters of the row selected last.
+   */
+  static class RowStatements implements InvocationHandler {
+
+    private final PreparedStatement statement;
+    private final int placeholders;
+    private final PreparedStatement shiftedStatement;
+    private int offset;
+
+    RowStatements(PreparedStatement statement, int placeholders) {
+      this.statement = statement;
+      this.placeholders = placeholders;
+      this.shiftedStatement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+          new Class<?>[] { PreparedStatement.class }, this);
+    }
+
+    /**
+     * Selects the row whose parameters are set next.
+     *
+     * @param rowIndex the index of the row in the statement
+     * @return the statement to set the parameters of the row on
+     */
+    public PreparedStatement forRow(int rowIndex) {
+      offset = rowIndex * placeholders;
+      return rowIndex == 0 ? statement : shiftedStatement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+      if (params != null && params.length > 1 && params[0] instanceof Integer && method.getName().startsWith("set")) {
+        params[0] = (Integer) params[0] + offset;
+      }
+      try {
+        return method.invoke(statement, params);
+      } catch (InvocationTargetException e) {
+        throw ExceptionUtil.unwrapThrowable(e);
+      }
+    }
+  }
+
+}
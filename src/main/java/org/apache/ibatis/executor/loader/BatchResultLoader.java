@@ -0,0 +1,67 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Loads the value of one parent property through its {@link NestedQueryBatch}.
+ * <p>
+ * The parameter object only holds the key of this parent, so the loader can still be re-created
+ * for a deserialized parent, which then loads its value alone.
+ */
+public class BatchResultLoader extends ResultLoader {
+
+  private final NestedQueryBatch batch;
+  private final CacheKey parentKey;
+
+  public BatchResultLoader(Configuration config, Executor executor, MappedStatement mappedStatement, Object parameterObject,
+      Class<?> targetType, NestedQueryBatch batch, CacheKey parentKey) {
+    super(config, executor, mappedStatement, parameterObject, targetType, null, null);
+    this.batch = batch;
+    this.parentKey = parentKey;
+  }
+
+  @Override
+  public Object loadResult() throws SQLException {
+    List<Object> list = batch.getChildren(this, parentKey);
+    resultObject = resultExtractor.extractObjectFromList(list, targetType);
+    return resultObject;
+  }
+
+  void selectBatch(Object parameterObject, ResultHandler<Object> resultHandler) throws SQLException {
+    Executor localExecutor = executor;
+    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
+      localExecutor = newExecutor();
+    }
+    try {
+      localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, resultHandler);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * Collects the keys of the parents of a nested select that has a <code>batchSize</code> and loads their
+ * children with one execution of the nested select per <code>batchSize</code> keys.
+ * <p>
+ * The nested select receives the keys as a list, available as <code>list</code> or <code>collection</code>,
+ * and the children are handed back to their parents by the value of their <code>foreignColumn</code>.
+ * Parents are identified by a {@link CacheKey} built from the same column values on both sides.
+ */
+public class NestedQueryBatch implements ResultHandler<Object> {
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final MappedStatement nestedQuery;
+  private final ResultMapping propertyMapping;
+  private final int batchSize;
+
+  private final Map<CacheKey, Object> pendingParameters = new LinkedHashMap<CacheKey, Object>();
+  private final Map<CacheKey, List<Object>> loadedChildren = new HashMap<CacheKey, List<Object>>();
+  private List<Object> resultList;
+
+  public NestedQueryBatch(Configuration configuration, Executor executor, MappedStatement nestedQuery, ResultMapping propertyMapping) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.nestedQuery = nestedQuery;
+    this.propertyMapping = propertyMapping;
+    this.batchSize = propertyMapping.getBatchSize();
+  }
+
+  public ResultMapping getPropertyMapping() {
+    return propertyMapping;
+  }
+
+  /*
+   * Registers a parent whose children are not loaded yet
+   *
+   * @param parentKey - the key built from the parent columns
+   * @param parameterObject - the parameter the nested select would get for this parent alone
+   * @return A loader of the value of the parent property
+   */
+  public synchronized ResultLoader addParent(CacheKey parentKey, Object parameterObject) {
+    if (!loadedChildren.containsKey(parentKey) && !pendingParameters.containsKey(parentKey)) {
+      pendingParameters.put(parentKey, parameterObject);
+    }
+    return new BatchResultLoader(configuration, executor, nestedQuery, wrapKeys(singletonList(parameterObject)),
+        propertyMapping.getJavaType(), this, parentKey);
+  }
+
+  /*
+   * Links a child to the parents that have the value of its foreign column
+   */
+  public void addChild(CacheKey parentKey, Object child) {
+    List<Object> children = loadedChildren.get(parentKey);
+    if (children == null) {
+      children = new ArrayList<Object>();
+      loadedChildren.put(parentKey, children);
+    }
+    children.add(child);
+  }
+
+  @Override
+  public void handleResult(ResultContext<? extends Object> context) {
+    resultList.add(context.getResultObject());
+  }
+
+  public List<Object> getResultList() {
+    return resultList;
+  }
+
+  /*
+   * Gets the children of a parent, loading them along with the ones of other pending parents when needed
+   */
+  synchronized List<Object> getChildren(BatchResultLoader loader, CacheKey parentKey) throws SQLException {
+    if (!loadedChildren.containsKey(parentKey)) {
+      Map<CacheKey, Object> batch = nextBatch(parentKey);
+      resultList = new ArrayList<Object>();
+      boolean loaded = false;
+      try {
+        loader.selectBatch(wrapKeys(new ArrayList<Object>(batch.values())), this);
+        loaded = true;
+      } finally {
+        resultList = null;
+        if (!loaded) {
+          // leave the parents pending so they can be loaded again
+          loadedChildren.keySet().removeAll(batch.keySet());
+          pendingParameters.putAll(batch);
+        }
+      }
+      for (CacheKey key : batch.keySet()) {
+        if (!loadedChildren.containsKey(key)) {
+          loadedChildren.put(key, new ArrayList<Object>());
+        }
+      }
+    }
+    List<Object> children = loadedChildren.get(parentKey);
+    return children == null ? new ArrayList<Object>() : new ArrayList<Object>(children);
+  }
+
+  private Map<CacheKey, Object> nextBatch(CacheKey parentKey) {
+    Map<CacheKey, Object> batch = new LinkedHashMap<CacheKey, Object>();
+    Object parameterObject = pendingParameters.remove(parentKey);
+    if (parameterObject != null) {
+      batch.put(parentKey, parameterObject);
+    }
+    Iterator<Map.Entry<CacheKey, Object>> pending = pendingParameters.entrySet().iterator();
+    while (batch.size() < batchSize && pending.hasNext()) {
+      Map.Entry<CacheKey, Object> entry = pending.next();
+      batch.put(entry.getKey(), entry.getValue());
+      pending.remove();
+    }
+    return batch;
+  }
+
+  /*
+   * Wraps the key of a single parent the way the nested select receives the keys of a batch
+   *
+   * @param parameterObject - the parameter the nested select would get for this parent alone
+   * @return The parameter of the nested select for this parent
+   */
+  public static Object wrapKey(Object parameterObject) {
+    return wrapKeys(singletonList(parameterObject));
+  }
+
+  private static List<Object> singletonList(Object parameterObject) {
+    List<Object> keys = new ArrayList<Object>(1);
+    keys.add(parameterObject);
+    return keys;
+  }
+
+  private static ParamMap<Object> wrapKeys(List<Object> keys) {
+    ParamMap<Object> parameterObject = new ParamMap<Object>();
+    parameterObject.put("collection", keys);
+    parameterObject.put("list", keys);
+    return parameterObject;
+  }
+
+}
@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+/**
+ * Appends <code>LIMIT n OFFSET m</code>, understood by MySQL, MariaDB, PostgreSQL, H2, HSQLDB and SQLite.
+ * The clause goes before a trailing <code>FOR UPDATE</code> or <code>LOCK IN SHARE MODE</code>.
+ */
+public class LimitOffsetDialect implements PaginationDialect {
+
+  @Override
+  public String getPaginatedSql(String sql, int offset, int limit) {
+    int trailingClauseStart = new SelectClauses(sql).getTrailingClauseStart();
+    StringBuilder paginatedSql = new StringBuilder(sql.length() + 40);
+    // on a new line, so that a trailing line comment does not swallow the clause
+    paginatedSql.append(sql, 0, trailingClauseStart < 0 ? sql.length() : trailingClauseStart).append('\n');
+    paginatedSql.append("LIMIT ").append(limit);
+    if (offset > 0) {
+      paginatedSql.append(" OFFSET ").append(offset);
+    }
+    if (trailingClauseStart >= 0) {
+      paginatedSql.append('\n').append(sql, trailingClauseStart, sql.length());
+    }
+    return paginatedSql.toString();
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Appends the SQL:2008 <code>OFFSET m ROWS FETCH NEXT n ROWS ONLY</code> clause, understood by Oracle 12c,
+ * DB2 and Derby. Statements ending with a <code>FOR UPDATE</code> or another <code>FOR</code> clause are left
+ * to the client, as Oracle does not lock rows of a limited select.
+ *
+ * @see SqlServerDialect
+ */
+public class OffsetFetchDialect implements PaginationDialect {
+
+  @Override
+  public String getPaginatedSql(String sql, int offset, int limit) {
+    return getPaginatedSql(sql, new SelectClauses(sql), offset, limit);
+  }
+
+  String getPaginatedSql(String sql, SelectClauses clauses, int offset, int limit) {
+    if (clauses.getTrailingClauseStart() >= 0) {
+      return null;
+    }
+    StringBuilder paginatedSql = new StringBuilder(sql.length() + 50);
+    // on a new line, so that a trailing line comment does not swallow the clause
+    paginatedSql.append(sql).append('\n');
+    paginatedSql.append("OFFSET ").append(offset).append(" ROWS");
+    if (limit != RowBounds.NO_ROW_LIMIT) {
+      paginatedSql.append(" FETCH NEXT ").append(limit).append(" ROWS ONLY");
+    }
+    return paginatedSql.toString();
+  }
+
+}
@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+/**
+ * Rewrites a select statement so the database only returns the rows of a page, instead of MyBatis
+ * skipping the rows before the page on the client.
+ *
+ * @see PaginationDialectRegistry
+ */
+public interface PaginationDialect {
+
+  /**
+   * Gets the sql that returns the rows of a page.
+   *
+   * @param sql the original select statement, without a trailing semicolon
+   * @param offset the number of rows to skip, 0 if none
+   * @param limit the maximum number of rows to return, {@link org.apache.ibatis.session.RowBounds#NO_ROW_LIMIT} if unlimited
+   * @return the rewritten statement, or null to skip the rows on the client when the statement cannot be rewritten
+   */
+  String getPaginatedSql(String sql, int offset, int limit);
+
+}
@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Selects the {@link PaginationDialect} of the database identified by the
+ * {@link org.apache.ibatis.mapping.DatabaseIdProvider}.
+ * <p>
+ * A dialect registered for the exact database id wins; otherwise the first dialect whose name appears as whole
+ * words in the database id is used, so the built-in dialects match both the aliases commonly given to
+ * {@link org.apache.ibatis.mapping.VendorDatabaseIdProvider} and the raw product names such as
+ * <code>Microsoft SQL Server</code> or <code>DB2/LINUXX8664</code>.
+ */
+public class PaginationDialectRegistry {
+
+  private final Map<String, PaginationDialect> dialects = new LinkedHashMap<String, PaginationDialect>();
+
+  public PaginationDialectRegistry() {
+    PaginationDialect limitOffset = new LimitOffsetDialect();
+    register("mysql", limitOffset);
+    register("mariadb", limitOffset);
+    register("postgresql", limitOffset);
+    register("h2", limitOffset);
+    register("hsql", limitOffset);
+    register("sqlite", limitOffset);
+
+    PaginationDialect offsetFetch = new OffsetFetchDialect();
+    register("oracle", offsetFetch);
+    register("db2", offsetFetch);
+    register("derby", offsetFetch);
+
+    PaginationDialect sqlServer = new SqlServerDialect();
+    register("sql server", sqlServer);
+    register("sqlserver", sqlServer);
+  }
+
+  public void register(String databaseId, PaginationDialect dialect) {
+    dialects.put(databaseId.toLowerCase(Locale.ENGLISH), dialect);
+  }
+
+  /**
+   * @param databaseId the database id, may be null
+   * @return the dialect of the database, or null if there is none
+   */
+  public PaginationDialect getDialect(String databaseId) {
+    if (databaseId == null) {
+      return null;
+    }
+    String key = databaseId.toLowerCase(Locale.ENGLISH);
+    PaginationDialect dialect = dialects.get(key);
+    if (dialect != null) {
+      return dialect;
+    }
+    String words = toWords(key);
+    for (Map.Entry<String, PaginationDialect> entry : dialects.entrySet()) {
+      if (words.contains(toWords(entry.getKey()))) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  /*
+   * Separates the words of a name by single spaces, with a space before and after
+   */
+  private static String toWords(String name) {
+    StringBuilder words = new StringBuilder(name.length() + 2).append(' ');
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        words.append(c);
+      } else if (words.charAt(words.length() - 1) != ' ') {
+        words.append(' ');
+      }
+    }
+    if (words.charAt(words.length() - 1) != ' ') {
+      words.append(' ');
+    }
+    return words.toString();
+  }
+
+  public Map<String, PaginationDialect> getDialects() {
+    return Collections.unmodifiableMap(dialects);
+  }
+
+}
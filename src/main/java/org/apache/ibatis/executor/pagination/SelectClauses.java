@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * The words of a select statement written outside of parentheses, string literals, quoted identifiers and comments,
+ * which tell the clauses of the statement itself from the ones of its subqueries
+ */
+final class SelectClauses {
+
+  private final List<String> words = new ArrayList<String>();
+  private final List<Integer> positions = new ArrayList<Integer>();
+
+  SelectClauses(String sql) {
+    int length = sql.length();
+    int depth = 0;
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (c == '\'' || c == '"' || c == '`' || c == '[') {
+        i = skipQuoted(sql, i, c == '[' ? ']' : c);
+      } else if (c == '(') {
+        depth++;
+        i++;
+      } else if (c == ')') {
+        depth--;
+        i++;
+      } else if (isWordChar(c)) {
+        int end = i;
+        while (end < length && isWordChar(sql.charAt(end))) {
+          end++;
+        }
+        if (depth == 0) {
+          words.add(sql.substring(i, end).toUpperCase(Locale.ENGLISH));
+          positions.add(i);
+        }
+        i = end;
+      } else {
+        i++;
+      }
+    }
+  }
+
+  boolean hasOrderBy() {
+    for (int i = 0; i + 1 < words.size(); i++) {
+      if ("ORDER".equals(words.get(i)) && "BY".equals(words.get(i + 1))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Whether the select list is limited by SELECT [ALL | DISTINCT] TOP n
+   */
+  boolean hasTop() {
+    int i = words.indexOf("SELECT");
+    if (i < 0) {
+      return false;
+    }
+    i++;
+    if (i < words.size() && ("ALL".equals(words.get(i)) || "DISTINCT".equals(words.get(i)))) {
+      i++;
+    }
+    return i < words.size() && "TOP".equals(words.get(i));
+  }
+
+  /*
+   * Gets where the clauses that must follow the row limit start: FOR UPDATE, FOR SHARE, FOR READ ONLY, FOR XML and
+   * the like, or LOCK IN SHARE MODE
+   *
+   * @return The position of the first of these clauses, or -1 if there is none
+   */
+  int getTrailingClauseStart() {
+    for (int i = 0; i + 1 < words.size(); i++) {
+      String word = words.get(i);
+      if ("FOR".equals(word) || ("LOCK".equals(word) && "IN".equals(words.get(i + 1)))) {
+        return positions.get(i);
+      }
+    }
+    return -1;
+  }
+
+  private static int skipQuoted(String sql, int start, char close) {
+    int i = start + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i) == close) {
+        if (i + 1 < sql.length() && sql.charAt(i + 1) == close && close != ']') {
+          // escaped quote
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return sql.length();
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@';
+  }
+
+}
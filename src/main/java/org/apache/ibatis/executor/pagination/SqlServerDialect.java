@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+/**
+ * Appends the <code>OFFSET m ROWS FETCH NEXT n ROWS ONLY</code> clause of SQL Server 2012, preceded by
+ * <code>ORDER BY (SELECT NULL)</code> when the statement has no <code>ORDER BY</code> clause, which SQL Server
+ * requires. Statements selecting the <code>TOP</code> rows are left to the client.
+ */
+public class SqlServerDialect extends OffsetFetchDialect {
+
+  @Override
+  public String getPaginatedSql(String sql, int offset, int limit) {
+    SelectClauses clauses = new SelectClauses(sql);
+    if (clauses.hasTop()) {
+      return null;
+    }
+    return getPaginatedSql(clauses.hasOrderBy() ? sql : sql + "\nORDER BY (SELECT NULL)", clauses, offset, limit);
+  }
+
+}
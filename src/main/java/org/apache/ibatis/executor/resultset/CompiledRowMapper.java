@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Maps the rows of one column layout to one simple {@link org.apache.ibatis.mapping.ResultMap}.
+ * <p>
+ * Column indexes, {@link TypeHandler}s and setter {@link Invoker}s are resolved once when the mapper is
+ * built, so each row is read by column index and each value is set directly, without creating a
+ * {@link org.apache.ibatis.reflection.MetaObject} or resolving a property name per row.
+ *
+ * @see org.apache.ibatis.session.Configuration#isCompiledRowMappersEnabled()
+ */
+public class CompiledRowMapper {
+
+  private final Class<?> type;
+  private final ObjectFactory objectFactory;
+  private final Constructor<?> constructor;
+  private final boolean mapResult;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final String[] properties;
+  private final Invoker[] setters;
+  private final boolean[] primitives;
+  private final boolean callSettersOnNulls;
+  private final boolean returnInstanceForEmptyRow;
+
+  private CompiledRowMapper(Builder builder) {
+    this.type = builder.type;
+    this.objectFactory = builder.objectFactory;
+    this.constructor = builder.constructor;
+    this.mapResult = builder.reflector == null;
+    int size = builder.properties.size();
+    this.columnIndexes = new int[size];
+    this.typeHandlers = builder.typeHandlers.toArray(new TypeHandler<?>[size]);
+    this.properties = builder.properties.toArray(new String[size]);
+    this.setters = new Invoker[size];
+    this.primitives = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      columnIndexes[i] = builder.columnIndexes.get(i);
+      primitives[i] = builder.primitives.get(i);
+      if (!mapResult) {
+        setters[i] = builder.reflector.getSetInvoker(properties[i]);
+      }
+    }
+    this.callSettersOnNulls = builder.callSettersOnNulls;
+    this.returnInstanceForEmptyRow = builder.returnInstanceForEmptyRow;
+  }
+
+  public Object map(ResultSet rs) throws SQLException {
+    Object rowValue = newInstance();
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (callSettersOnNulls && !primitives[i])) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        setValue(rowValue, i, value);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  private Object newInstance() {
+    if (constructor == null) {
+      return objectFactory.create(type);
+    }
+    try {
+      return constructor.newInstance();
+    } catch (Exception e) {
+      throw new ReflectionException("Error instantiating " + type + ". Cause: " + e, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setValue(Object rowValue, int i, Object value) {
+    if (mapResult) {
+      ((Map<String, Object>) rowValue).put(properties[i], value);
+      return;
+    }
+    try {
+      setters[i].invoke(rowValue, new Object[] { value });
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + rowValue.getClass()
+          + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  public static class Builder {
+    private final Class<?> type;
+    private final ObjectFactory objectFactory;
+    private final Reflector reflector;
+    private Constructor<?> constructor;
+    private boolean callSettersOnNulls;
+    private boolean returnInstanceForEmptyRow;
+    private final List<Integer> columnIndexes = new ArrayList<Integer>();
+    private final List<TypeHandler<?>> typeHandlers = new ArrayList<TypeHandler<?>>();
+    private final List<String> properties = new ArrayList<String>();
+    private final List<Boolean> primitives = new ArrayList<Boolean>();
+
+    /*
+     * @param reflector - the reflector of the created objects, or null when they are maps
+     */
+    public Builder(Class<?> type, ObjectFactory objectFactory, Reflector reflector) {
+      this.type = type;
+      this.objectFactory = objectFactory;
+      this.reflector = reflector;
+    }
+
+    /*
+     * Creates the objects with this constructor instead of asking the object factory for every row
+     */
+    public Builder constructor(Constructor<?> constructor) {
+      this.constructor = constructor;
+      return this;
+    }
+
+    public Builder callSettersOnNulls(boolean callSettersOnNulls) {
+      this.callSettersOnNulls = callSettersOnNulls;
+      return this;
+    }
+
+    public Builder returnInstanceForEmptyRow(boolean returnInstanceForEmptyRow) {
+      this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+      return this;
+    }
+
+    public Builder addMapping(int columnIndex, TypeHandler<?> typeHandler, String property, boolean primitive) {
+      columnIndexes.add(columnIndex);
+      typeHandlers.add(typeHandler);
+      properties.add(property);
+      primitives.add(primitive);
+      return this;
+    }
+
+    public CompiledRowMapper build() {
+      return new CompiledRowMapper(this);
+    }
+  }
+
+}
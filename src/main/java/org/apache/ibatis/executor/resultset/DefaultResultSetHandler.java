@@ -23,6 +23,7 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.NestedQueryBatch;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -38,7 +39,9 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
@@ -54,8 +57,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -91,6 +96,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<String, ResultMapping>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<CacheKey, List<PendingRelation>>();
 
+  // nested selects loaded in batches
+  private final Map<ResultMapping, NestedQueryBatch> nestedQueryBatches = new IdentityHashMap<ResultMapping, NestedQueryBatch>();
+  private final List<PendingBatchLoad> pendingBatchLoads = new ArrayList<PendingBatchLoad>();
+  private boolean eagerBatchLoading;
+
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<String, List<UnMappedColumnAutoMapping>>();
 
@@ -104,6 +114,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
+  private static class PendingBatchLoad {
+    public MetaObject metaObject;
+    public ResultMapping propertyMapping;
+    public ResultLoader resultLoader;
+  }
+
   private static class UnMappedColumnAutoMapping {
     private final String column;
     private final String property;
@@ -184,6 +200,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
 
     final List<Object> multipleResults = new ArrayList<Object>();
+    // eager batches are loaded once all the rows are read, so no custom handler may see the parents before
+    eagerBatchLoading = resultHandler == null || resultHandler instanceof NestedQueryBatch;
 
     int resultSetCount = 0;
     ResultSetWrapper rsw = getFirstResultSet(stmt);
@@ -214,6 +232,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    loadPendingBatches();
     return collapseSingleResultList(multipleResults);
   }
 
@@ -231,6 +250,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       throw new ExecutorException("Cursor results cannot be mapped to multiple resultMaps");
     }
 
+    // the cursor loads the eager batches of each row before returning it
+    eagerBatchLoading = true;
     ResultMap resultMap = resultMaps.get(0);
     return new DefaultCursor<E>(this, resultMap, rsw, rowBounds);
   }
@@ -304,6 +325,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           multipleResults.add(defaultResultHandler.getResultList());
         } else {
           handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
+          if (resultHandler instanceof NestedQueryBatch) {
+            // return the children of a batch as usual so they are kept in the local cache
+            multipleResults.add(((NestedQueryBatch) resultHandler).getResultList());
+          }
         }
       }
     } finally {
@@ -339,7 +364,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   protected void checkResultHandler() {
-    if (resultHandler != null && configuration.isSafeResultHandlerEnabled() && !mappedStatement.isResultOrdered()) {
+    if (resultHandler != null && !(resultHandler instanceof NestedQueryBatch)
+        && configuration.isSafeResultHandlerEnabled() && !mappedStatement.isResultOrdered()) {
       throw new ExecutorException("Mapped Statements with nested result mappings cannot be safely used with a custom ResultHandler. "
           + "Use safeResultHandlerEnabled=false setting to bypass this check "
           + "or ensure your statement returns ordered data and set resultOrdered=true on it.");
@@ -349,10 +375,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
       throws SQLException {
     DefaultResultContext<Object> resultContext = new DefaultResultContext<Object>();
+    CompiledRowMapper rowMapper = configuration.isCompiledRowMappersEnabled() ? getCompiledRowMapper(rsw, resultMap) : null;
     skipRows(rsw.getResultSet(), rowBounds);
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
-      ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
-      Object rowValue = getRowValue(rsw, discriminatedResultMap);
+      Object rowValue;
+      if (rowMapper != null) {
+        rowValue = rowMapper.map(rsw.getResultSet());
+      } else {
+        ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
+        rowValue = getRowValue(rsw, discriminatedResultMap);
+      }
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
     }
   }
@@ -361,6 +393,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
     } else {
+      if (resultHandler instanceof NestedQueryBatch) {
+        linkToBatchParents(rs, (NestedQueryBatch) resultHandler, rowValue);
+      }
       callResultHandler(resultHandler, resultContext, rowValue);
     }
   }
@@ -407,6 +442,106 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return rowValue;
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (!isCompilable(resultMap)) {
+      return null;
+    }
+    final String mapperKey = resultMap.getId() + ":" + rsw.getColumnNames() + ":" + rsw.getJdbcTypes() + ":" + rsw.getClassNames();
+    CompiledRowMapper rowMapper = configuration.getCompiledRowMapper(mapperKey);
+    if (rowMapper == null) {
+      rowMapper = compileRowMapper(rsw, resultMap);
+      if (rowMapper != null) {
+        configuration.addCompiledRowMapper(mapperKey, rowMapper);
+      }
+    }
+    return rowMapper;
+  }
+
+  private boolean isCompilable(ResultMap resultMap) {
+    if (resultMap.getDiscriminator() != null
+        || resultMap.hasNestedQueries()
+        || resultMap.hasNestedResultMaps()
+        || !resultMap.getConstructorResultMappings().isEmpty()) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult()
+          || propertyMapping.getResultSet() != null
+          || propertyMapping.getNestedResultMapId() != null
+          || !isSimpleProperty(propertyMapping.getProperty())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isSimpleProperty(String property) {
+    return property == null || (property.indexOf('.') < 0 && property.indexOf('[') < 0);
+  }
+
+  /*
+   * Resolves the mappings that getRowValue would apply to this column layout, in the same order,
+   * or returns null if the rows cannot be mapped without a MetaObject
+   */
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Class<?> resultType = resultMap.getType();
+    if (hasTypeHandlerForResultObject(rsw, resultType)) {
+      return null;
+    }
+    final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);
+    if (!resultType.isInterface() && !metaType.hasDefaultConstructor()) {
+      return null;
+    }
+    final Object prototype = objectFactory.create(resultType);
+    if (prototype instanceof Collection || configuration.getObjectWrapperFactory().hasWrapperFor(prototype)) {
+      return null;
+    }
+    final MetaObject metaObject = configuration.newMetaObject(prototype);
+    final boolean mapResult = prototype instanceof Map;
+    final Reflector reflector = mapResult ? null : reflectorFactory.findForClass(prototype.getClass());
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(resultType, objectFactory, reflector)
+        .callSettersOnNulls(configuration.isCallSettersOnNulls())
+        .returnInstanceForEmptyRow(configuration.isReturnInstanceForEmptyRow());
+    if (objectFactory.getClass() == DefaultObjectFactory.class) {
+      try {
+        Constructor<?> constructor = prototype.getClass().getDeclaredConstructor();
+        if (!constructor.isAccessible()) {
+          constructor.setAccessible(true);
+        }
+        builder.constructor(constructor);
+      } catch (Exception e) {
+        // ignore, the object factory creates the objects
+      }
+    }
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, null)) {
+        if (!isSimpleProperty(mapping.property)) {
+          return null;
+        }
+        builder.addMapping(rsw.getColumnIndex(mapping.column), mapping.typeHandler, mapping.property, mapping.primitive);
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      final String column = propertyMapping.getColumn();
+      final String property = propertyMapping.getProperty();
+      // issue #541 make property optional
+      if (property == null || column == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (!mapResult && !reflector.hasSetter(property)) {
+        return null;
+      }
+      final boolean primitive = !mapResult && reflector.getSetterType(property).isPrimitive();
+      builder.addMapping(rsw.getColumnIndex(column), propertyMapping.getTypeHandler(), property, primitive);
+    }
+    return builder.build();
+  }
+
   private boolean shouldApplyAutomaticMappings(ResultMap resultMap, boolean isNested) {
     if (resultMap.getAutoMapping() != null) {
       return resultMap.getAutoMapping();
@@ -754,9 +889,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final String property = propertyMapping.getProperty();
     final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
-    final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
+    Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && isBatchLoaded(propertyMapping)) {
+      addBatchLoad(rs, metaResultObject, propertyMapping, nestedQuery, nestedQueryParameterObject, lazyLoader);
+      value = DEFERED;
+    } else if (nestedQueryParameterObject != null) {
+      if (isBatched(propertyMapping)) {
+        // a custom handler sees each parent at once, so the nested select gets a batch of one key
+        nestedQueryParameterObject = NestedQueryBatch.wrapKey(nestedQueryParameterObject);
+      }
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
       final Class<?> targetType = propertyMapping.getJavaType();
@@ -776,6 +918,57 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  //
+  // BATCHED NESTED QUERIES
+  //
+
+  private boolean isBatched(ResultMapping propertyMapping) {
+    return propertyMapping.getBatchSize() != null && propertyMapping.getBatchSize() > 0;
+  }
+
+  private boolean isBatchLoaded(ResultMapping propertyMapping) {
+    return isBatched(propertyMapping) && (propertyMapping.isLazy() || eagerBatchLoading);
+  }
+
+  private void addBatchLoad(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, MappedStatement nestedQuery,
+      Object nestedQueryParameterObject, ResultLoaderMap lazyLoader) throws SQLException {
+    NestedQueryBatch batch = nestedQueryBatches.get(propertyMapping);
+    if (batch == null) {
+      batch = new NestedQueryBatch(configuration, executor, nestedQuery, propertyMapping);
+      nestedQueryBatches.put(propertyMapping, batch);
+    }
+    final CacheKey parentKey = createKeyForMultipleResults(rs, propertyMapping, propertyMapping.getColumn(), propertyMapping.getColumn());
+    final ResultLoader resultLoader = batch.addParent(parentKey, nestedQueryParameterObject);
+    if (propertyMapping.isLazy()) {
+      lazyLoader.addLoader(propertyMapping.getProperty(), metaResultObject, resultLoader);
+    } else {
+      PendingBatchLoad pendingLoad = new PendingBatchLoad();
+      pendingLoad.metaObject = metaResultObject;
+      pendingLoad.propertyMapping = propertyMapping;
+      pendingLoad.resultLoader = resultLoader;
+      pendingBatchLoads.add(pendingLoad);
+    }
+  }
+
+  private void linkToBatchParents(ResultSet rs, NestedQueryBatch batch, Object rowValue) throws SQLException {
+    if (rowValue != null) {
+      final ResultMapping batchMapping = batch.getPropertyMapping();
+      batch.addChild(createKeyForMultipleResults(rs, batchMapping, batchMapping.getColumn(), batchMapping.getForeignColumn()), rowValue);
+    }
+  }
+
+  public void loadPendingBatches() throws SQLException {
+    for (PendingBatchLoad pendingLoad : pendingBatchLoads) {
+      final Object value = pendingLoad.resultLoader.loadResult();
+      final String property = pendingLoad.propertyMapping.getProperty();
+      if (value != null || (configuration.isCallSettersOnNulls() && !pendingLoad.metaObject.getSetterType(property).isPrimitive())) {
+        pendingLoad.metaObject.setValue(property, value);
+      }
+    }
+    pendingBatchLoads.clear();
+    nestedQueryBatches.clear();
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -74,6 +74,25 @@ public class ResultSetWrapper {
     return Collections.unmodifiableList(classNames);
   }
 
+  public List<JdbcType> getJdbcTypes() {
+    return Collections.unmodifiableList(jdbcTypes);
+  }
+
+  /**
+   * Gets the index of the first column that has the given name, ignoring case.
+   *
+   * @param columnName
+   * @return the 1-based column index, or 0 if there is no such column
+   */
+  public int getColumnIndex(String columnName) {
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
   public JdbcType getJdbcType(String columnName) {
     for (int i = 0 ; i < columnNames.size(); i++) {
       if (columnNames.get(i).equalsIgnoreCase(columnName)) {
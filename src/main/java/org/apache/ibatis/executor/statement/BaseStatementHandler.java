@@ -23,10 +23,13 @@ import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.pagination.PaginationDialect;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -64,10 +67,44 @@ public abstract class BaseStatementHandler implements StatementHandler {
       boundSql = mappedStatement.getBoundSql(parameterObject);
     }
 
+    RowBounds resultSetRowBounds = rowBounds;
+    PaginationDialect dialect = getPaginationDialect(rowBounds);
+    String paginatedSql = dialect == null ? null
+        : dialect.getPaginatedSql(trimSql(boundSql.getSql()), rowBounds.getOffset(), rowBounds.getLimit());
+    if (paginatedSql != null) {
+      boundSql = new BoundSql(boundSql, paginatedSql);
+      resultSetRowBounds = RowBounds.DEFAULT;
+    }
+
     this.boundSql = boundSql;
 
     this.parameterHandler = configuration.newParameterHandler(mappedStatement, parameterObject, boundSql);
-    this.resultSetHandler = configuration.newResultSetHandler(executor, mappedStatement, rowBounds, parameterHandler, resultHandler, boundSql);
+    this.resultSetHandler = configuration.newResultSetHandler(executor, mappedStatement, resultSetRowBounds, parameterHandler, resultHandler, boundSql);
+  }
+
+  /*
+   * Gets the dialect that applies the row bounds in the database, or null if the result set handler
+   * must skip the rows. Nested result maps combine several rows into one object, so their row bounds
+   * count objects and can only be applied by the result set handler.
+   */
+  private PaginationDialect getPaginationDialect(RowBounds rowBounds) {
+    if (rowBounds == null
+        || (rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET && rowBounds.getLimit() == RowBounds.NO_ROW_LIMIT)
+        || mappedStatement.getSqlCommandType() != SqlCommandType.SELECT
+        || mappedStatement.getStatementType() == StatementType.CALLABLE
+        || mappedStatement.hasNestedResultMaps()
+        || mappedStatement.getResultSets() != null) {
+      return null;
+    }
+    return configuration.getPaginationDialect();
+  }
+
+  private String trimSql(String sql) {
+    int end = sql.length();
+    while (end > 0 && (Character.isWhitespace(sql.charAt(end - 1)) || sql.charAt(end - 1) == ';')) {
+      end--;
+    }
+    return sql.substring(0, end);
   }
 
   @Override
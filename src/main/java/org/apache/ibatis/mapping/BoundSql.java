@@ -49,6 +49,21 @@ public class BoundSql {
     this.metaParameters = configuration.newMetaObject(additionalParameters);
   }
 
+  /**
+   * Creates a bound sql with other sql text and the parameters of the given bound sql.
+   *
+   * @param boundSql the bound sql whose parameters are shared
+   * @param sql the new sql text, with the same placeholders
+   * @since 3.5.0
+   */
+  public BoundSql(BoundSql boundSql, String sql) {
+    this.sql = sql;
+    this.parameterMappings = boundSql.parameterMappings;
+    this.parameterObject = boundSql.parameterObject;
+    this.additionalParameters = boundSql.additionalParameters;
+    this.metaParameters = boundSql.metaParameters;
+  }
+
   public String getSql() {
     return sql;
   }
@@ -62,10 +77,17 @@ public class BoundSql {
   }
 
   public boolean hasAdditionalParameter(String name) {
-    String paramName = new PropertyTokenizer(name).getName();
+    String paramName = PropertyTokenizer.of(name).getName();
     return additionalParameters.containsKey(paramName);
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public boolean hasAdditionalParameters() {
+    return !additionalParameters.isEmpty();
+  }
+
   public void setAdditionalParameter(String name, Object value) {
     metaParameters.setValue(name, value);
   }
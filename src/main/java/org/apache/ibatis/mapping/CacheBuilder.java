@@ -23,14 +23,24 @@ import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.TableTimestamps;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.MetricsCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.PersistentCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.apache.ibatis.cache.serializer.CompressingCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -48,6 +58,12 @@ public class CacheBuilder {
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private boolean singleFlight;
+  private Long refreshAhead;
+  private CacheMetrics metrics;
+  private TableTimestamps tableTimestamps;
+  private Class<? extends CacheSerializer> serializer;
+  private boolean compress;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -86,6 +102,68 @@ public class CacheBuilder {
     return this;
   }
   
+  /**
+   * Coalesces concurrent misses of a key into one query instead of blocking them with a lock per key.
+   *
+   * @since 3.5.0
+   */
+  public CacheBuilder singleFlight(boolean singleFlight) {
+    this.singleFlight = singleFlight;
+    return this;
+  }
+
+  /**
+   * Expires the entries one by one instead of clearing the cache every clear interval, and lets one reader
+   * reload an entry during the last milliseconds of its life.
+   *
+   * @since 3.5.0
+   */
+  public CacheBuilder refreshAhead(Long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+    return this;
+  }
+
+  /**
+   * Records the hits, misses, puts and evictions of the cache in these metrics.
+   *
+   * @since 3.5.0
+   */
+  public CacheBuilder metrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  /**
+   * Lets the metrics count the entries of tables changed since they were read as misses.
+   *
+   * @since 3.5.0
+   */
+  public CacheBuilder tableTimestamps(TableTimestamps tableTimestamps) {
+    this.tableTimestamps = tableTimestamps;
+    return this;
+  }
+
+  /**
+   * Copies the objects of read/write caches, and the values of caches with a <code>serializer</code> property,
+   * with this serializer instead of Java serialization.
+   *
+   * @since 3.5.0
+   */
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
+  /**
+   * Compresses the serialized objects that are large enough.
+   *
+   * @since 3.5.0
+   */
+  public CacheBuilder compress(boolean compress) {
+    this.compress = compress;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -95,15 +173,28 @@ public class CacheBuilder {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
+    setSerializer(cache);
+    setMetrics(cache);
+    Cache baseCache = cache;
     // issue #352, do not apply decorators to custom caches
-    if (PerpetualCache.class.equals(cache.getClass())) {
+    if (PerpetualCache.class.equals(cache.getClass()) || TinyLfuCache.class.equals(cache.getClass())) {
+      boolean threadSafe = TinyLfuCache.class.equals(cache.getClass());
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        setMetrics(cache);
       }
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, threadSafe, readWrite);
+    } else if (OffHeapCache.class.equals(cache.getClass()) || PersistentCache.class.equals(cache.getClass())) {
+      // evict by themselves, are thread safe and already return copies
+      cache = setStandardDecorators(cache, true, false);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
+      cache = new LoggingCache(withMetrics(cache));
+    } else {
+      cache = withMetrics(cache);
+    }
+    if (metrics != null) {
+      metrics.bind(cache, baseCache);
     }
     return cache;
   }
@@ -115,9 +206,16 @@ public class CacheBuilder {
         decorators.add(LruCache.class);
       }
     }
+    // eviction="TINYLFU" replaces the base cache instead of decorating it
+    if (PerpetualCache.class.equals(implementation) && decorators.remove(TinyLfuCache.class)) {
+      implementation = TinyLfuCache.class;
+    }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean threadSafe, boolean serialized) {
+    if (refreshAhead != null && (clearInterval == null || refreshAhead >= clearInterval)) {
+      throw new CacheException("The refreshAhead of cache " + id + " must be shorter than its flushInterval");
+    }
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
@@ -126,13 +224,20 @@ public class CacheBuilder {
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
+        if (refreshAhead != null) {
+          ((ScheduledCache) cache).setRefreshAhead(refreshAhead);
+        }
       }
-      if (readWrite) {
-        cache = new SerializedCache(cache);
+      if (serialized) {
+        cache = new SerializedCache(cache, newSerializer());
       }
-      cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
-      if (blocking) {
+      cache = new LoggingCache(withMetrics(cache));
+      if (!threadSafe) {
+        cache = new SynchronizedCache(cache);
+      }
+      if (singleFlight) {
+        cache = new SingleFlightCache(cache);
+      } else if (blocking) {
         cache = new BlockingCache(cache);
       }
       return cache;
@@ -141,6 +246,44 @@ public class CacheBuilder {
     }
   }
 
+  private void setSerializer(Cache cache) {
+    if (serializer == null && !compress) {
+      return;
+    }
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (metaCache.hasSetter("serializer") && metaCache.getSetterType("serializer").isAssignableFrom(CacheSerializer.class)) {
+      metaCache.setValue("serializer", newSerializer());
+    }
+  }
+
+  /*
+   * Caches and decorators that evict entries on their own declare a metrics property to report the evictions, like
+   * the serializer property above
+   */
+  private void setMetrics(Cache cache) {
+    if (metrics == null) {
+      return;
+    }
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (metaCache.hasSetter("metrics") && metaCache.getSetterType("metrics").isAssignableFrom(CacheMetrics.class)) {
+      metaCache.setValue("metrics", metrics);
+    }
+  }
+
+  private CacheSerializer newSerializer() {
+    CacheSerializer cacheSerializer;
+    try {
+      cacheSerializer = serializer == null ? new JavaCacheSerializer() : serializer.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer (" + serializer + "). Cause: " + e, e);
+    }
+    return compress ? new CompressingCacheSerializer(cacheSerializer) : cacheSerializer;
+  }
+
+  private Cache withMetrics(Cache cache) {
+    return metrics == null ? cache : new MetricsCache(cache, metrics, tableTimestamps);
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
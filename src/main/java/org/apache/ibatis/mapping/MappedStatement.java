@@ -18,6 +18,7 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -56,6 +57,8 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private Set<String> tables;
+  private String evictEntity;
 
   MappedStatement() {
     // constructor disabled
@@ -173,6 +176,24 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @param tables the normalized names of the tables the statement reads and writes, or null if they are not known
+     * @since 3.5.0
+     */
+    public Builder tables(Set<String> tables) {
+      mappedStatement.tables = tables;
+      return this;
+    }
+
+    /**
+     * @param evictEntity the id of the result map of the only object the statement changes, or null
+     * @since 3.5.0
+     */
+    public Builder evictEntity(String evictEntity) {
+      mappedStatement.evictEntity = evictEntity;
+      return this;
+    }
+
     /** @deprecated Use {@link #resultSets} */
     @Deprecated
     public Builder resulSets(String resultSet) {
@@ -282,6 +303,28 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Gets the tables this statement reads and writes, which a write invalidates in the second level caches
+   * when table invalidation is enabled.
+   *
+   * @return The normalized table names, or null if they are not known
+   * @since 3.5.0
+   */
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  /**
+   * Gets the result map of the object this statement changes, identified by its parameter. When the entity cache
+   * is enabled, the statement evicts that object from the cache of its namespace instead of clearing it.
+   *
+   * @return The id of the result map, or null if the statement can change any object
+   * @since 3.5.0
+   */
+  public String getEvictEntity() {
+    return evictEntity;
+  }
+
   /** @deprecated Use {@link #getResultSets()} */
   @Deprecated
   public String[] getResulSets() {
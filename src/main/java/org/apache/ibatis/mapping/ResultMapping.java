@@ -45,6 +45,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private Integer batchSize;
 
   ResultMapping() {
   }
@@ -131,6 +132,11 @@ public class ResultMapping {
       resultMapping.lazy = lazy;
       return this;
     }
+
+    public Builder batchSize(Integer batchSize) {
+      resultMapping.batchSize = batchSize;
+      return this;
+    }
     
     public ResultMapping build() {
       // lock down collections
@@ -167,6 +173,14 @@ public class ResultMapping {
           throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
         }
       }
+      if (resultMapping.batchSize != null) {
+        if (resultMapping.nestedQueryId == null) {
+          throw new IllegalStateException("Cannot define batchSize without a nested select in property " + resultMapping.property);
+        }
+        if (!resultMapping.composites.isEmpty() || resultMapping.foreignColumn == null || resultMapping.foreignColumn.indexOf(',') >= 0) {
+          throw new IllegalStateException("Batched nested select in property " + resultMapping.property + " needs a single column and a single foreignColumn");
+        }
+      }
     }
     
     private void resolveTypeHandler() {
@@ -250,6 +264,14 @@ public class ResultMapping {
   public void setLazy(boolean lazy) {
     this.lazy = lazy;
   }
+
+  public Integer getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(Integer batchSize) {
+    this.batchSize = batchSize;
+  }
   
   @Override
   public boolean equals(Object o) {
@@ -298,6 +320,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", batchSize=").append(batchSize);
     sb.append('}');
     return sb.toString();
   }
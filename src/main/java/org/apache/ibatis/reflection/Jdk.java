@@ -64,6 +64,38 @@ public class Jdk {
     optionalExists = available;
   }
 
+  /**
+   * <code>true</code> if <code>java.util.concurrent.CompletableFuture</code> is available.
+   */
+  public static final boolean completableFutureExists;
+
+  static {
+    boolean available = false;
+    try {
+      Resources.classForName("java.util.concurrent.CompletableFuture");
+      available = true;
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    completableFutureExists = available;
+  }
+
+  /**
+   * <code>true</code> if <code>java.lang.invoke.LambdaMetafactory</code> is available.
+   */
+  public static final boolean lambdaMetafactoryExists;
+
+  static {
+    boolean available = false;
+    try {
+      Resources.classForName("java.lang.invoke.LambdaMetafactory");
+      available = true;
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    lambdaMetafactoryExists = available;
+  }
+
   private Jdk() {
     super();
   }
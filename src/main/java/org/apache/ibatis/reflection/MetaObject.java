@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
@@ -32,6 +33,8 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
  */
 public class MetaObject {
 
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
   private final Object originalObject;
   private final ObjectWrapper objectWrapper;
   private final ObjectFactory objectFactory;
@@ -110,21 +113,55 @@ public class MetaObject {
   }
 
   public Object getValue(String name) {
-    PropertyTokenizer prop = new PropertyTokenizer(name);
-    if (prop.hasNext()) {
-      MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
-      if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
-        return null;
+    PropertyTokenizer prop = PropertyTokenizer.of(name);
+    if (!prop.hasNext()) {
+      return objectWrapper.get(prop);
+    }
+    Object value = objectWrapper.get(PropertyTokenizer.of(prop.getIndexedName()));
+    return getValue(value, prop.next(), objectFactory, objectWrapperFactory, reflectorFactory);
+  }
+
+  /**
+   * Reads a property path of an object the way a <code>MetaObject</code> of the object would, but reads the
+   * properties of plain beans and maps directly instead of wrapping each object along the path.
+   *
+   * @since 3.5.0
+   */
+  public static Object getValue(Object object, PropertyTokenizer prop, ObjectFactory objectFactory,
+      ObjectWrapperFactory objectWrapperFactory, ReflectorFactory reflectorFactory) {
+    Object value = object;
+    while (value != null) {
+      if (prop.getIndex() == null && !(value instanceof ObjectWrapper) && !objectWrapperFactory.hasWrapperFor(value)
+          && !(value instanceof Collection)) {
+        value = value instanceof Map ? ((Map<?, ?>) value).get(prop.getName()) : getBeanValue(value, prop, reflectorFactory);
       } else {
-        return metaValue.getValue(prop.getChildren());
+        value = forObject(value, objectFactory, objectWrapperFactory, reflectorFactory).getValue(prop.getIndexedName());
       }
-    } else {
-      return objectWrapper.get(prop);
+      if (!prop.hasNext()) {
+        return value;
+      }
+      prop = prop.next();
+    }
+    return null;
+  }
+
+  private static Object getBeanValue(Object bean, PropertyTokenizer prop, ReflectorFactory reflectorFactory) {
+    try {
+      Invoker getter = prop.getGetInvoker(bean.getClass(), reflectorFactory);
+      try {
+        return getter.invoke(bean, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not get property '" + prop.getName() + "' from " + bean.getClass() + ".  Cause: " + t.toString(), t);
     }
   }
 
   public void setValue(String name, Object value) {
-    PropertyTokenizer prop = new PropertyTokenizer(name);
+    PropertyTokenizer prop = PropertyTokenizer.of(name);
     if (prop.hasNext()) {
       MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
       if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
@@ -17,12 +17,15 @@ package org.apache.ibatis.reflection;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.binding.FixedParamMap;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -49,6 +52,11 @@ public class ParamNameResolver {
 
   private boolean hasParamAnnotation;
 
+  /*
+   * The slots of the parameter objects of several parameters, or null when they are ParamMaps
+   */
+  private final FixedParamMap.Layout fixedLayout;
+
   public ParamNameResolver(Configuration config, Method method) {
     final Class<?>[] paramTypes = method.getParameterTypes();
     final Annotation[][] paramAnnotations = method.getParameterAnnotations();
@@ -82,6 +90,56 @@ public class ParamNameResolver {
       map.put(paramIndex, name);
     }
     names = Collections.unmodifiableSortedMap(map);
+    fixedLayout = config.isFixedParamMapsEnabled() ? newFixedLayout() : null;
+  }
+
+  private FixedParamMap.Layout newFixedLayout() {
+    List<String> slotNames = new ArrayList<String>();
+    List<Integer> argIndexes = new ArrayList<Integer>();
+    int i = 0;
+    for (Map.Entry<Integer, String> entry : names.entrySet()) {
+      if (!slotNames.contains(entry.getValue())) {
+        slotNames.add(entry.getValue());
+        argIndexes.add(entry.getKey());
+      }
+      final String genericParamName = GENERIC_NAME_PREFIX + String.valueOf(i + 1);
+      if (!names.containsValue(genericParamName)) {
+        slotNames.add(genericParamName);
+        argIndexes.add(entry.getKey());
+      }
+      i++;
+    }
+    int[] indexes = new int[argIndexes.size()];
+    for (int j = 0; j < indexes.length; j++) {
+      indexes[j] = argIndexes.get(j);
+    }
+    return new FixedParamMap.Layout(slotNames.toArray(new String[slotNames.size()]), indexes);
+  }
+
+  /**
+   * Resolves the names of the parameters of a mapper method from the names found in its source when its
+   * implementation was generated.
+   *
+   * @param paramIndexes the indexes of the parameters other than {@link RowBounds} and {@link ResultHandler}
+   * @param paramNames the value of the {@link Param} of each of these parameters, or null
+   * @param actualParamNames the name each of these parameters is declared with
+   * @since 3.5.0
+   */
+  public ParamNameResolver(Configuration config, int[] paramIndexes, String[] paramNames, String[] actualParamNames) {
+    final SortedMap<Integer, String> map = new TreeMap<Integer, String>();
+    for (int i = 0; i < paramIndexes.length; i++) {
+      String name = paramNames[i];
+      if (name != null) {
+        hasParamAnnotation = true;
+      } else if (config.isUseActualParamName()) {
+        name = actualParamNames[i];
+      } else {
+        name = String.valueOf(map.size());
+      }
+      map.put(paramIndexes[i], name);
+    }
+    names = Collections.unmodifiableSortedMap(map);
+    fixedLayout = config.isFixedParamMapsEnabled() ? newFixedLayout() : null;
   }
 
   private String getActualParamName(Method method, int paramIndex) {
@@ -116,6 +174,8 @@ public class ParamNameResolver {
       return null;
     } else if (!hasParamAnnotation && paramCount == 1) {
       return args[names.firstKey()];
+    } else if (fixedLayout != null) {
+      return new FixedParamMap(fixedLayout, args);
     } else {
       final Map<String, Object> param = new ParamMap<Object>();
       int i = 0;
@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.lang.UsesJava8;
+
+/**
+ * Calls a getter or a setter through a class generated by {@link LambdaMetafactory}, which the JIT compiles
+ * to a direct call, instead of {@link Method#invoke}.
+ * <p>
+ * Only public methods whose declaring class and parameter and return types are public, and visible from the class
+ * loader of MyBatis, can be called this way. Exceptions thrown by the method are not wrapped in an {@link InvocationTargetException}.
+ */
+@UsesJava8
+public class LambdaMethodInvoker extends MethodInvoker {
+
+  private final Function<Object, Object> getter;
+  private final BiConsumer<Object, Object> setter;
+
+  private LambdaMethodInvoker(Method method, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+    super(method);
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  /**
+   * Creates an invoker of a getter or a setter.
+   *
+   * @return The invoker, or null if the method cannot be called through a generated class
+   */
+  @SuppressWarnings("unchecked")
+  public static LambdaMethodInvoker forMethod(Method method) {
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    if (!isLinkable(method) || parameterTypes.length > 1
+        || (parameterTypes.length == 0 && void.class.equals(method.getReturnType()))) {
+      return null;
+    }
+    try {
+      // a copy that is not made accessible, so that the lookup checks the access of the generated class
+      Method publicMethod = method.getDeclaringClass().getMethod(method.getName(), parameterTypes);
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      MethodHandle handle = lookup.unreflect(publicMethod);
+      Class<?> declaringClass = method.getDeclaringClass();
+      if (parameterTypes.length == 0) {
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+            MethodType.methodType(Object.class, Object.class), handle,
+            MethodType.methodType(wrap(method.getReturnType()), declaringClass));
+        return new LambdaMethodInvoker(method, (Function<Object, Object>) callSite.getTarget().invoke(), null);
+      }
+      CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+          MethodType.methodType(void.class, Object.class, Object.class), handle,
+          MethodType.methodType(void.class, declaringClass, wrap(parameterTypes[0])));
+      return new LambdaMethodInvoker(method, null, (BiConsumer<Object, Object>) callSite.getTarget().invoke());
+    } catch (Throwable t) {
+      // called through reflection instead
+      return null;
+    }
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    if (getter != null) {
+      return getter.apply(target);
+    }
+    setter.accept(target, args[0]);
+    return null;
+  }
+
+  private static boolean isLinkable(Method method) {
+    if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+      return false;
+    }
+    if (!isAccessible(method.getDeclaringClass()) || !isAccessible(method.getReturnType())) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (!isAccessible(parameterType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * The generated class is defined by the class loader of MyBatis in another package, so every type of the
+   * method has to be public, along with the classes it is nested in, and resolvable from that class loader
+   */
+  private static boolean isAccessible(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    for (Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+      if (!Modifier.isPublic(enclosing.getModifiers())) {
+        return false;
+      }
+    }
+    try {
+      return Class.forName(type.getName(), false, LambdaMethodInvoker.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException e) {
+      return false;
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+
+}
@@ -16,15 +16,66 @@
 package org.apache.ibatis.reflection.property;
 
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
 
 /**
  * @author Clinton Begin
  */
 public class PropertyTokenizer implements Iterator<PropertyTokenizer> {
+
+  private static final int SHARED_TOKENIZERS_PER_GENERATION = 2048;
+  // the paths used since the last generation started, and during the generation before
+  private static volatile ConcurrentMap<String, PropertyTokenizer> recentTokenizers = new ConcurrentHashMap<String, PropertyTokenizer>();
+  private static volatile ConcurrentMap<String, PropertyTokenizer> olderTokenizers = new ConcurrentHashMap<String, PropertyTokenizer>();
+
   private String name;
   private final String indexedName;
   private String index;
   private final String children;
+  private PropertyTokenizer next;
+  private volatile ResolvedGetter resolvedGetter;
+
+  /**
+   * Gets the tokenizer of a property path, parsed once and shared with all the readers of the same path.
+   * The tokenizers of its children are shared too.
+   * <p>
+   * Paths can be built at runtime, like the ones of foreach items, so only the recently used paths are kept: when a
+   * generation of shared tokenizers is full, a new one starts and the paths not used again during the previous one
+   * are dropped.
+   *
+   * @since 3.5.0
+   */
+  public static PropertyTokenizer of(String fullname) {
+    ConcurrentMap<String, PropertyTokenizer> recent = recentTokenizers;
+    PropertyTokenizer tokenizer = recent.get(fullname);
+    if (tokenizer != null) {
+      return tokenizer;
+    }
+    tokenizer = olderTokenizers.get(fullname);
+    if (tokenizer == null) {
+      tokenizer = new PropertyTokenizer(fullname);
+      if (tokenizer.children != null) {
+        tokenizer.next = of(tokenizer.children);
+      }
+    }
+    PropertyTokenizer existing = recent.putIfAbsent(fullname, tokenizer);
+    if (existing != null) {
+      return existing;
+    }
+    if (recent.size() >= SHARED_TOKENIZERS_PER_GENERATION) {
+      synchronized (PropertyTokenizer.class) {
+        if (recentTokenizers == recent) {
+          olderTokenizers = recent;
+          recentTokenizers = new ConcurrentHashMap<String, PropertyTokenizer>();
+        }
+      }
+    }
+    return tokenizer;
+  }
 
   public PropertyTokenizer(String fullname) {
     int delim = fullname.indexOf('.');
@@ -66,11 +117,38 @@ public class PropertyTokenizer implements Iterator<PropertyTokenizer> {
 
   @Override
   public PropertyTokenizer next() {
-    return new PropertyTokenizer(children);
+    return next != null ? next : new PropertyTokenizer(children);
+  }
+
+  /**
+   * Gets the getter of this property in a class. The getter is resolved once for the last class this
+   * tokenizer was read from, which saves the lookups when a shared tokenizer always reads the same class.
+   *
+   * @since 3.5.0
+   */
+  public Invoker getGetInvoker(Class<?> type, ReflectorFactory reflectorFactory) {
+    ResolvedGetter getter = resolvedGetter;
+    if (getter == null || getter.type != type || getter.reflectorFactory != reflectorFactory) {
+      getter = new ResolvedGetter(type, reflectorFactory, reflectorFactory.findForClass(type).getGetInvoker(name));
+      resolvedGetter = getter;
+    }
+    return getter.invoker;
   }
 
   @Override
   public void remove() {
     throw new UnsupportedOperationException("Remove is not supported, as it has no meaning in the context of properties.");
   }
+
+  private static final class ResolvedGetter {
+    private final Class<?> type;
+    private final ReflectorFactory reflectorFactory;
+    private final Invoker invoker;
+
+    private ResolvedGetter(Class<?> type, ReflectorFactory reflectorFactory, Invoker invoker) {
+      this.type = type;
+      this.reflectorFactory = reflectorFactory;
+      this.invoker = invoker;
+    }
+  }
 }
@@ -19,12 +19,14 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
 
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
@@ -63,12 +65,15 @@ public class DefaultParameterHandler implements ParameterHandler {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     if (parameterMappings != null) {
+      ParameterBindingPlan plan = getBindingPlan(parameterMappings);
       for (int i = 0; i < parameterMappings.size(); i++) {
         ParameterMapping parameterMapping = parameterMappings.get(i);
         if (parameterMapping.getMode() != ParameterMode.OUT) {
           Object value;
           String propertyName = parameterMapping.getProperty();
-          if (boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
+          if (plan != null) {
+            value = plan.getValue(configuration, i, parameterObject);
+          } else if (boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
             value = boundSql.getAdditionalParameter(propertyName);
           } else if (parameterObject == null) {
             value = null;
@@ -95,4 +100,21 @@ public class DefaultParameterHandler implements ParameterHandler {
     }
   }
 
+  /*
+   * Gets the plan of a statement whose parameter mappings are the same for all its executions, or null if each
+   * value has to be looked up
+   */
+  private ParameterBindingPlan getBindingPlan(List<ParameterMapping> parameterMappings) {
+    SqlSource sqlSource = mappedStatement.getSqlSource();
+    if (!(sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource) || boundSql.hasAdditionalParameters()) {
+      return null;
+    }
+    ParameterBindingPlan plan = configuration.getParameterBindingPlan(mappedStatement.getId());
+    if (plan == null || !plan.matches(parameterMappings, parameterObject)) {
+      plan = ParameterBindingPlan.compile(configuration, parameterMappings, parameterObject);
+      configuration.addParameterBindingPlan(mappedStatement.getId(), plan);
+    }
+    return plan;
+  }
+
 }
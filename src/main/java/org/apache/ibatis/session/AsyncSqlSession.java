@@ -0,0 +1,209 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.lang.UsesJava8;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.session.defaults.RejectableTask;
+
+/**
+ * Asynchronous facade of a {@link SqlSession}.
+ * <p>
+ * The statements run on the bounded {@link Configuration#getAsyncExecutor() asynchronous executor}
+ * and the returned futures complete with their results, or with the exception they threw. The statements
+ * of a {@link DefaultSqlSession} run one at a time in the order they were submitted, so they share its
+ * connection and its transaction; open one session per statement for independent reads that should overlap.
+ * Other {@link SqlSession} implementations must be thread safe, their statements are not serialized.
+ * <p>
+ * Do not use the session directly while its asynchronous statements are pending, and wait for them
+ * (or use {@link #close()}) before closing it. Mapper methods declaring a {@link CompletableFuture}
+ * return type are executed the same way.
+ *
+ * @since 3.5.0
+ */
+@UsesJava8
+public class AsyncSqlSession {
+
+  private final SqlSession sqlSession;
+  private final Executor executor;
+
+  public AsyncSqlSession(SqlSession sqlSession) {
+    this.sqlSession = sqlSession;
+    if (sqlSession instanceof DefaultSqlSession) {
+      this.executor = ((DefaultSqlSession) sqlSession).getAsyncExecutor();
+    } else {
+      this.executor = sqlSession.getConfiguration().getAsyncExecutor();
+    }
+  }
+
+  public SqlSession getSqlSession() {
+    return sqlSession;
+  }
+
+  public <T> T getMapper(Class<T> type) {
+    return sqlSession.getMapper(type);
+  }
+
+  public <T> CompletableFuture<T> selectOne(String statement) {
+    return selectOne(statement, null);
+  }
+
+  public <T> CompletableFuture<T> selectOne(final String statement, final Object parameter) {
+    return submit(new Callable<T>() {
+      @Override
+      public T call() {
+        return sqlSession.<T>selectOne(statement, parameter);
+      }
+    });
+  }
+
+  public <E> CompletableFuture<List<E>> selectList(String statement) {
+    return selectList(statement, null, RowBounds.DEFAULT);
+  }
+
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter) {
+    return selectList(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  public <E> CompletableFuture<List<E>> selectList(final String statement, final Object parameter, final RowBounds rowBounds) {
+    return submit(new Callable<List<E>>() {
+      @Override
+      public List<E> call() {
+        return sqlSession.<E>selectList(statement, parameter, rowBounds);
+      }
+    });
+  }
+
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey) {
+    return selectMap(statement, parameter, mapKey, RowBounds.DEFAULT);
+  }
+
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(final String statement, final Object parameter, final String mapKey, final RowBounds rowBounds) {
+    return submit(new Callable<Map<K, V>>() {
+      @Override
+      public Map<K, V> call() {
+        return sqlSession.<K, V>selectMap(statement, parameter, mapKey, rowBounds);
+      }
+    });
+  }
+
+  public CompletableFuture<Integer> insert(final String statement, final Object parameter) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return sqlSession.insert(statement, parameter);
+      }
+    });
+  }
+
+  public CompletableFuture<Integer> update(final String statement, final Object parameter) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return sqlSession.update(statement, parameter);
+      }
+    });
+  }
+
+  public CompletableFuture<Integer> delete(final String statement, final Object parameter) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return sqlSession.delete(statement, parameter);
+      }
+    });
+  }
+
+  public CompletableFuture<List<BatchResult>> flushStatements() {
+    return submit(new Callable<List<BatchResult>>() {
+      @Override
+      public List<BatchResult> call() {
+        return sqlSession.flushStatements();
+      }
+    });
+  }
+
+  public CompletableFuture<Void> commit() {
+    return submit(new Callable<Void>() {
+      @Override
+      public Void call() {
+        sqlSession.commit();
+        return null;
+      }
+    });
+  }
+
+  public CompletableFuture<Void> rollback() {
+    return submit(new Callable<Void>() {
+      @Override
+      public Void call() {
+        sqlSession.rollback();
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Closes the session once the statements submitted before have completed.
+   */
+  public CompletableFuture<Void> close() {
+    return submit(new Callable<Void>() {
+      @Override
+      public Void call() {
+        sqlSession.close();
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Runs a task on the session executor.
+   *
+   * @param task the task, that may use the session
+   * @return a future completed with the result of the task, or with its exception
+   */
+  public <T> CompletableFuture<T> submit(final Callable<T> task) {
+    final CompletableFuture<T> future = new CompletableFuture<T>();
+    try {
+      executor.execute(new RejectableTask() {
+        @Override
+        public void run() {
+          try {
+            future.complete(task.call());
+          } catch (Throwable t) {
+            future.completeExceptionally(t);
+          }
+        }
+
+        @Override
+        public void reject(RuntimeException cause) {
+          future.completeExceptionally(cause);
+        }
+      });
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+}
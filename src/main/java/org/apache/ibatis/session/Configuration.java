@@ -15,15 +15,27 @@
  */
 package org.apache.ibatis.session;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -31,11 +43,18 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.TableTimestamps;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.PersistentCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.apache.ibatis.cache.serializer.BinaryCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -48,7 +67,10 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.pagination.PaginationDialect;
+import org.apache.ibatis.executor.pagination.PaginationDialectRegistry;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -68,6 +90,7 @@ import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMap;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.plugin.Interceptor;
@@ -81,6 +104,7 @@ import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
+import org.apache.ibatis.scripting.defaults.ParameterBindingPlan;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
@@ -106,24 +130,43 @@ public class Configuration {
   protected boolean useGeneratedKeys;
   protected boolean useColumnLabel = true;
   protected boolean cacheEnabled = true;
+  protected boolean tableCacheInvalidationEnabled;
+  protected boolean entityCacheEnabled;
+  protected boolean cacheMetricsEnabled;
+  protected boolean cacheMetricsJmxEnabled;
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
+  protected boolean fixedParamMapsEnabled;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean compiledRowMappersEnabled;
+  protected boolean physicalPaginationEnabled;
+  protected boolean batchGroupingEnabled;
 
   protected String logPrefix;
   protected Class <? extends Log> logImpl;
   protected Class <? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  protected Integer localCacheSize;
+  protected Long localCacheMaxBytes;
+  protected LocalCacheEviction localCacheEviction = LocalCacheEviction.LRU;
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<String>(Arrays.asList(new String[] { "equals", "clone", "hashCode", "toString" }));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
+  protected Integer batchMaxStatementSize;
+  protected Integer batchMaxParameterObjects;
+  protected Long batchMaxBytes;
+  protected Integer batchInsertRewriteSize;
+  protected int asyncPoolSize = 8;
+  protected int asyncQueueCapacity = 1024;
+  protected java.util.concurrent.Executor asyncExecutor;
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
   protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
 
   protected Properties variables = new Properties();
   protected ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  protected final TableTimestamps tableTimestamps = new TableTimestamps();
   protected ObjectFactory objectFactory = new DefaultObjectFactory();
   protected ObjectWrapperFactory objectWrapperFactory = new DefaultObjectWrapperFactory();
 
@@ -143,10 +186,13 @@ public class Configuration {
   protected final InterceptorChain interceptorChain = new InterceptorChain();
   protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
+  protected final PaginationDialectRegistry paginationDialectRegistry = new PaginationDialectRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
 
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
   protected final Map<String, Cache> caches = new StrictMap<Cache>("Caches collection");
+  protected final Map<String, CacheMetrics> cacheMetrics = new ConcurrentHashMap<String, CacheMetrics>();
+  protected CacheMetrics localCacheMetrics;
   protected final Map<String, ResultMap> resultMaps = new StrictMap<ResultMap>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<ParameterMap>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<KeyGenerator>("Key Generators collection");
@@ -166,6 +212,15 @@ public class Configuration {
    */
   protected final Map<String, String> cacheRefMap = new HashMap<String, String>();
 
+  /*
+   * Row mappers compiled for simple result maps. The key is the result map id
+   * followed by the column names and types of the result set they map.
+   */
+  protected final Map<String, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<String, CompiledRowMapper>();
+  protected final Map<String, ParameterBindingPlan> parameterBindingPlans = new ConcurrentHashMap<String, ParameterBindingPlan>();
+  protected final Map<String, List<String>> entityStatementIds = new ConcurrentHashMap<String, List<String>>();
+  protected final Map<String, Set<String>> entityResultMapIds = new ConcurrentHashMap<String, Set<String>>();
+
   public Configuration(Environment environment) {
     this();
     this.environment = environment;
@@ -184,6 +239,12 @@ public class Configuration {
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
+    typeAliasRegistry.registerAlias("PERSISTENT", PersistentCache.class);
+
+    typeAliasRegistry.registerAlias("JAVA", JavaCacheSerializer.class);
+    typeAliasRegistry.registerAlias("BINARY", BinaryCacheSerializer.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -251,6 +312,25 @@ public class Configuration {
     this.useActualParamName = useActualParamName;
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public boolean isFixedParamMapsEnabled() {
+    return fixedParamMapsEnabled;
+  }
+
+  /**
+   * Makes the mapper methods with several parameters pass them in a {@link org.apache.ibatis.binding.FixedParamMap}
+   * reading the arguments of the call instead of copying them into a new
+   * {@link org.apache.ibatis.binding.MapperMethod.ParamMap}. It applies to the mapper methods used after it is set.
+   *
+   * @param fixedParamMapsEnabled true to pass several parameters in fixed slots
+   * @since 3.5.0
+   */
+  public void setFixedParamMapsEnabled(boolean fixedParamMapsEnabled) {
+    this.fixedParamMapsEnabled = fixedParamMapsEnabled;
+  }
+
   public boolean isReturnInstanceForEmptyRow() {
     return returnInstanceForEmptyRow;
   }
@@ -259,6 +339,15 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  public boolean isCompiledRowMappersEnabled() {
+    return compiledRowMappersEnabled;
+  }
+
+  public void setCompiledRowMappersEnabled(boolean compiledRowMappersEnabled) {
+    this.compiledRowMappersEnabled = compiledRowMappersEnabled;
+    compiledRowMappers.clear();
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -404,6 +493,110 @@ public class Configuration {
     this.cacheEnabled = cacheEnabled;
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public boolean isTableCacheInvalidationEnabled() {
+    return tableCacheInvalidationEnabled;
+  }
+
+  /**
+   * Makes writes invalidate the cached results read from the tables they write instead of clearing whole caches.
+   * The tables of a statement are declared or found in its SQL.
+   *
+   * @param tableCacheInvalidationEnabled true to invalidate second level cache entries by table
+   * @since 3.5.0
+   */
+  public void setTableCacheInvalidationEnabled(boolean tableCacheInvalidationEnabled) {
+    this.tableCacheInvalidationEnabled = tableCacheInvalidationEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isEntityCacheEnabled() {
+    return entityCacheEnabled;
+  }
+
+  /**
+   * Makes the second level caches hold each object with an identity once, shared by the results of all the
+   * executions of a select, and lets updates and deletes declaring <code>evictEntity</code> evict a single object
+   * from the results of all the selects of the namespace.
+   *
+   * @param entityCacheEnabled true to cache the objects of results by the id of their result map and their id
+   * @since 3.5.0
+   */
+  public void setEntityCacheEnabled(boolean entityCacheEnabled) {
+    this.entityCacheEnabled = entityCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public TableTimestamps getTableTimestamps() {
+    return tableTimestamps;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isCacheMetricsEnabled() {
+    return cacheMetricsEnabled;
+  }
+
+  /**
+   * Records the hits, misses, puts, evictions and load times of the caches built from now on and of the local
+   * caches of the sessions opened from now on.
+   *
+   * @param cacheMetricsEnabled true to record cache metrics
+   * @since 3.5.0
+   * @see #getCacheMetrics(String)
+   * @see #getLocalCacheMetrics()
+   */
+  public void setCacheMetricsEnabled(boolean cacheMetricsEnabled) {
+    this.cacheMetricsEnabled = cacheMetricsEnabled;
+    if (cacheMetricsEnabled && localCacheMetrics == null) {
+      localCacheMetrics = new CacheMetrics("LocalCache");
+      if (cacheMetricsJmxEnabled) {
+        registerCacheMetricsMBean("LocalCacheMetrics", localCacheMetrics);
+      }
+    }
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isCacheMetricsJmxEnabled() {
+    return cacheMetricsJmxEnabled;
+  }
+
+  /**
+   * Exports the cache metrics as MBeans of the platform MBean server, named
+   * <code>org.apache.ibatis:type=CacheMetrics,configuration=&lt;identity hash&gt;,name=&lt;cache id&gt;</code>.
+   *
+   * @param cacheMetricsJmxEnabled true to export the cache metrics through JMX
+   * @since 3.5.0
+   */
+  public void setCacheMetricsJmxEnabled(boolean cacheMetricsJmxEnabled) {
+    if (cacheMetricsJmxEnabled && !this.cacheMetricsJmxEnabled) {
+      for (CacheMetrics metrics : cacheMetrics.values()) {
+        registerCacheMetricsMBean("CacheMetrics", metrics);
+      }
+      if (localCacheMetrics != null) {
+        registerCacheMetricsMBean("LocalCacheMetrics", localCacheMetrics);
+      }
+    }
+    this.cacheMetricsJmxEnabled = cacheMetricsJmxEnabled;
+  }
+
+  /**
+   * @return the metrics of the local caches of all sessions, or null when cache metrics are not enabled
+   * @since 3.5.0
+   */
+  public CacheMetrics getLocalCacheMetrics() {
+    return localCacheMetrics;
+  }
+
   public Integer getDefaultStatementTimeout() {
     return defaultStatementTimeout;
   }
@@ -442,6 +635,57 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public Integer getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * Sets the number of query results the local cache of a session keeps between two top level queries.
+   *
+   * @param localCacheSize the number of results, or null for no limit
+   * @since 3.5.0
+   */
+  public void setLocalCacheSize(Integer localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Long getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * Sets the estimated size of the query results the local cache of a session keeps between two top level queries.
+   *
+   * @param localCacheMaxBytes the estimated size in bytes, or null for no limit
+   * @since 3.5.0
+   */
+  public void setLocalCacheMaxBytes(Long localCacheMaxBytes) {
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public LocalCacheEviction getLocalCacheEviction() {
+    return localCacheEviction;
+  }
+
+  /**
+   * Sets which results a bounded local cache evicts first.
+   *
+   * @param localCacheEviction the eviction policy
+   * @since 3.5.0
+   */
+  public void setLocalCacheEviction(LocalCacheEviction localCacheEviction) {
+    this.localCacheEviction = localCacheEviction;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -576,7 +820,7 @@ public class Configuration {
       executor = new SimpleExecutor(this, transaction);
     }
     if (cacheEnabled) {
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, tableCacheInvalidationEnabled ? tableTimestamps : null);
     }
     executor = (Executor) interceptorChain.pluginAll(executor);
     return executor;
@@ -606,6 +850,42 @@ public class Configuration {
     caches.put(cache.getId(), cache);
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public void addCacheMetrics(CacheMetrics metrics) {
+    cacheMetrics.put(metrics.getId(), metrics);
+    if (cacheMetricsJmxEnabled) {
+      registerCacheMetricsMBean("CacheMetrics", metrics);
+    }
+  }
+
+  /**
+   * @return the metrics of a cache, or null when the cache was built without cache metrics enabled
+   * @since 3.5.0
+   */
+  public CacheMetrics getCacheMetrics(String id) {
+    return cacheMetrics.get(id);
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Collection<CacheMetrics> getCacheMetrics() {
+    return Collections.unmodifiableCollection(cacheMetrics.values());
+  }
+
+  private void registerCacheMetricsMBean(String type, CacheMetrics metrics) {
+    try {
+      ObjectName name = new ObjectName("org.apache.ibatis:type=" + type + ",configuration="
+          + Integer.toHexString(System.identityHashCode(this)) + ",name=" + ObjectName.quote(metrics.getId()));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+    } catch (Exception e) {
+      LogFactory.getLog(Configuration.class).warn("Could not export the metrics of cache " + metrics.getId()
+          + " through JMX. Cause: " + e);
+    }
+  }
+
   public Collection<String> getCacheNames() {
     return caches.keySet();
   }
@@ -622,6 +902,180 @@ public class Configuration {
     return caches.containsKey(id);
   }
 
+  public boolean isPhysicalPaginationEnabled() {
+    return physicalPaginationEnabled;
+  }
+
+  public void setPhysicalPaginationEnabled(boolean physicalPaginationEnabled) {
+    this.physicalPaginationEnabled = physicalPaginationEnabled;
+  }
+
+  public PaginationDialectRegistry getPaginationDialectRegistry() {
+    return paginationDialectRegistry;
+  }
+
+  /**
+   * Gets the dialect that applies {@link RowBounds} in the database.
+   *
+   * @return the dialect of the current database id, or null if the rows are skipped by MyBatis
+   */
+  public PaginationDialect getPaginationDialect() {
+    return physicalPaginationEnabled ? paginationDialectRegistry.getDialect(databaseId) : null;
+  }
+
+  public boolean isBatchGroupingEnabled() {
+    return batchGroupingEnabled;
+  }
+
+  /**
+   * Makes the batch executor keep one statement per distinct sql instead of preparing a new statement each
+   * time the sql changes. The statements are executed in the order their sql was first batched.
+   *
+   * @since 3.5.0
+   */
+  public void setBatchGroupingEnabled(boolean batchGroupingEnabled) {
+    this.batchGroupingEnabled = batchGroupingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchMaxStatementSize() {
+    return batchMaxStatementSize;
+  }
+
+  /**
+   * Sets the number of executions batched on one statement that makes the batch executor flush all its statements.
+   * The results of automatic flushes are not returned by <code>flushStatements()</code>.
+   *
+   * @param batchMaxStatementSize the number of executions, or null to flush only on demand
+   * @since 3.5.0
+   */
+  public void setBatchMaxStatementSize(Integer batchMaxStatementSize) {
+    this.batchMaxStatementSize = batchMaxStatementSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchMaxParameterObjects() {
+    return batchMaxParameterObjects;
+  }
+
+  /**
+   * Sets the number of parameter objects queued on all the statements that makes the batch executor flush them.
+   * The results of automatic flushes are not returned by <code>flushStatements()</code>.
+   *
+   * @param batchMaxParameterObjects the number of parameter objects, or null to flush only on demand
+   * @since 3.5.0
+   */
+  public void setBatchMaxParameterObjects(Integer batchMaxParameterObjects) {
+    this.batchMaxParameterObjects = batchMaxParameterObjects;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Long getBatchMaxBytes() {
+    return batchMaxBytes;
+  }
+
+  /**
+   * Sets the estimated size of the values bound to the queued statements that makes the batch executor flush them.
+   * The results of automatic flushes are not returned by <code>flushStatements()</code>.
+   *
+   * @param batchMaxBytes the estimated size in bytes, or null to flush only on demand
+   * @since 3.5.0
+   */
+  public void setBatchMaxBytes(Long batchMaxBytes) {
+    this.batchMaxBytes = batchMaxBytes;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchInsertRewriteSize() {
+    return batchInsertRewriteSize;
+  }
+
+  /**
+   * Makes the batch executor send the rows of batched single row inserts as multi row inserts.
+   *
+   * @param batchInsertRewriteSize the maximum number of rows per insert, or null to send one row per insert
+   * @since 3.5.0
+   */
+  public void setBatchInsertRewriteSize(Integer batchInsertRewriteSize) {
+    this.batchInsertRewriteSize = batchInsertRewriteSize;
+  }
+
+  public int getAsyncPoolSize() {
+    return asyncPoolSize;
+  }
+
+  public void setAsyncPoolSize(int asyncPoolSize) {
+    this.asyncPoolSize = asyncPoolSize;
+  }
+
+  public int getAsyncQueueCapacity() {
+    return asyncQueueCapacity;
+  }
+
+  public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+    this.asyncQueueCapacity = asyncQueueCapacity;
+  }
+
+  /**
+   * Gets the executor that runs asynchronous statements, creating a bounded pool of
+   * {@link #getAsyncPoolSize()} daemon threads the first time unless one was set.
+   * Statements submitted while all the threads are busy and {@link #getAsyncQueueCapacity()} statements
+   * are waiting are rejected.
+   *
+   * @since 3.5.0
+   */
+  public synchronized java.util.concurrent.Executor getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      final AtomicInteger threadNumber = new AtomicInteger();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(asyncPoolSize, asyncPoolSize, 60L, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(asyncQueueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      pool.allowCoreThreadTimeOut(true);
+      asyncExecutor = pool;
+    }
+    return asyncExecutor;
+  }
+
+  public synchronized void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  public CompiledRowMapper getCompiledRowMapper(String key) {
+    return compiledRowMappers.get(key);
+  }
+
+  public void addCompiledRowMapper(String key, CompiledRowMapper rowMapper) {
+    compiledRowMappers.put(key, rowMapper);
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public ParameterBindingPlan getParameterBindingPlan(String statementId) {
+    return parameterBindingPlans.get(statementId);
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void addParameterBindingPlan(String statementId, ParameterBindingPlan plan) {
+    parameterBindingPlans.put(statementId, plan);
+  }
+
   public void addResultMap(ResultMap rm) {
     resultMaps.put(rm.getId(), rm);
     checkLocallyForDiscriminatedNestedResultMaps(rm);
@@ -666,6 +1120,66 @@ public class Configuration {
 
   public void addMappedStatement(MappedStatement ms) {
     mappedStatements.put(ms.getId(), ms);
+    entityStatementIds.clear();
+    entityResultMapIds.clear();
+  }
+
+  /**
+   * Gets the ids of the selects whose results a cache holds as entities of a result map.
+   *
+   * @see #isEntityCacheEnabled()
+   * @since 3.5.0
+   */
+  public List<String> getEntityStatementIds(Cache cache, ResultMap resultMap) {
+    String key = cache.getId() + "!" + resultMap.getId();
+    List<String> ids = entityStatementIds.get(key);
+    if (ids == null) {
+      buildAllStatements();
+      Set<String> found = new LinkedHashSet<String>();
+      for (Object value : mappedStatements.values()) {
+        // skips the ambiguous short names
+        if (value instanceof MappedStatement) {
+          MappedStatement ms = (MappedStatement) value;
+          if (ms.getSqlCommandType() == SqlCommandType.SELECT && ms.getCache() == cache && ms.getResultMaps().size() == 1
+              && ms.getResultMaps().get(0).getId().equals(resultMap.getId())) {
+            found.add(ms.getId());
+          }
+        }
+      }
+      ids = new ArrayList<String>(found);
+      entityStatementIds.put(key, ids);
+    }
+    return ids;
+  }
+
+  /**
+   * Gets the ids of the result maps of the selects of a cache whose updates or deletes declare
+   * <code>evictEntity</code>.
+   *
+   * @return The ids, or an empty set if no statement of the cache evicts single objects
+   * @see org.apache.ibatis.cache.GenerationalEntry
+   * @since 3.5.0
+   */
+  public Set<String> getEntityResultMapIds(Cache cache) {
+    Set<String> ids = entityResultMapIds.get(cache.getId());
+    if (ids == null) {
+      buildAllStatements();
+      boolean evictsEntities = false;
+      Set<String> found = new LinkedHashSet<String>();
+      for (Object value : mappedStatements.values()) {
+        if (value instanceof MappedStatement && ((MappedStatement) value).getCache() == cache) {
+          MappedStatement ms = (MappedStatement) value;
+          if (ms.getSqlCommandType() == SqlCommandType.SELECT && ms.getResultMaps().size() == 1) {
+            found.add(ms.getResultMaps().get(0).getId());
+          } else if (ms.getEvictEntity() != null) {
+            evictsEntities = true;
+          }
+        }
+      }
+      ids = evictsEntities ? found : Collections.<String>emptySet();
+      entityResultMapIds.put(cache.getId(), ids);
+    }
+    return ids;
   }
 
   public Collection<String> getMappedStatementNames() {
@@ -54,6 +54,7 @@ public class DefaultSqlSession implements SqlSession {
   private final boolean autoCommit;
   private boolean dirty;
   private List<Cursor<?>> cursorList;
+  private SerialExecutor asyncExecutor;
 
   public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit) {
     this.configuration = configuration;
@@ -66,6 +67,20 @@ public class DefaultSqlSession implements SqlSession {
     this(configuration, executor, false);
   }
 
+  /**
+   * Gets the executor of the asynchronous statements of this session. They run one at a time, in the order
+   * they were submitted, on the threads of {@link Configuration#getAsyncExecutor()}, so they all use the
+   * connection and the transaction of this session.
+   *
+   * @since 3.5.0
+   */
+  public synchronized java.util.concurrent.Executor getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      asyncExecutor = new SerialExecutor(configuration.getAsyncExecutor());
+    }
+    return asyncExecutor;
+  }
+
   @Override
   public <T> T selectOne(String statement) {
     return this.<T>selectOne(statement, null);
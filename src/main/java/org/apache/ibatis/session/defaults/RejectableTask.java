@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+/**
+ * A task of the {@link DefaultSqlSession#getAsyncExecutor() asynchronous executor of a session} that is told when it
+ * will not run.
+ * <p>
+ * The tasks of a session wait in its own queue for the previous ones to complete, so the shared executor can reject
+ * one long after it was submitted. It then completes its future, or signals its subscriber, with the exception instead
+ * of running.
+ *
+ * @since 3.5.0
+ */
+public interface RejectableTask extends Runnable {
+
+  /**
+   * Called instead of {@link #run()} when the executor rejects the task.
+   *
+   * @param cause the exception of the executor
+   */
+  void reject(RuntimeException cause);
+
+}
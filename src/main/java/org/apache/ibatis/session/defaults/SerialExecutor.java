@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Runs the tasks of one session one at a time, in submission order, on the threads of a shared executor.
+ * <p>
+ * A session and its connection are not thread safe, so its asynchronous statements must not overlap.
+ * The tasks of different sessions still run in parallel. A queued task that the executor rejects does not run:
+ * a {@link RejectableTask} is told so, and the following tasks are handed to the executor in turn.
+ */
+class SerialExecutor implements Executor {
+
+  private static final Log log = LogFactory.getLog(SerialExecutor.class);
+
+  private final Executor executor;
+  private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+  private Runnable active;
+
+  SerialExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    synchronized (this) {
+      if (active != null) {
+        tasks.add(command);
+        return;
+      }
+      active = command;
+    }
+    try {
+      executor.execute(new Task(command));
+    } catch (RuntimeException e) {
+      // the task never started, move on to the tasks queued meanwhile and let the caller know
+      scheduleNext();
+      throw e;
+    }
+  }
+
+  /*
+   * Hands the next queued task to the executor. When the executor rejects it, the task is rejected in turn, never run
+   * on the current thread, which may be holding the session or waiting for one of its futures, and the loop goes on
+   * with the following task, so the stack does not grow however long the rejections last.
+   */
+  private void scheduleNext() {
+    while (true) {
+      Runnable next;
+      synchronized (this) {
+        next = tasks.poll();
+        active = next;
+      }
+      if (next == null) {
+        return;
+      }
+      try {
+        executor.execute(new Task(next));
+        return;
+      } catch (RejectedExecutionException e) {
+        rejectQuietly(next, e);
+      }
+    }
+  }
+
+  /*
+   * The tasks of a session report their failures to their futures or subscribers, and one failing must not stall the
+   * ones queued after it
+   */
+  private static void rejectQuietly(Runnable task, RejectedExecutionException cause) {
+    if (!(task instanceof RejectableTask)) {
+      log.warn("The asynchronous executor rejected a task of the session, which will not run: " + cause);
+      return;
+    }
+    try {
+      ((RejectableTask) task).reject(cause);
+    } catch (RuntimeException e) {
+      // ignore
+    }
+  }
+
+  private class Task implements Runnable {
+
+    private final Runnable command;
+
+    Task(Runnable command) {
+      this.command = command;
+    }
+
+    @Override
+    public void run() {
+      try {
+        command.run();
+      } finally {
+        scheduleNext();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.scripting.defaults.ParameterBindingPlan;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class FixedParamMapTest {
+
+  private ParamNameResolver resolver;
+
+  interface Mapper {
+    void select(@Param("id") Integer id, RowBounds rowBounds, @Param("param1") String name);
+  }
+
+  @Test
+  public void shouldAnswerTheNamesOfAParamMap() throws Exception {
+    Map<String, Object> params = namedParams(new Object[] { 1, RowBounds.DEFAULT, "jim" });
+    assertTrue(params instanceof FixedParamMap);
+    assertEquals(3, params.size());
+    assertEquals(1, params.get("id"));
+    assertEquals("jim", params.get("param1"));
+    assertEquals("jim", params.get("param2"));
+    assertFalse(params.containsKey("param3"));
+    assertEquals("jim", SystemMetaObject.forObject(params).getValue("param1"));
+    try {
+      params.get("name");
+      fail();
+    } catch (BindingException e) {
+      assertEquals("Parameter 'name' not found. Available parameters are [id, param1, param2]", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldKeepOtherValuesAside() throws Exception {
+    Map<String, Object> params = namedParams(new Object[] { 1, RowBounds.DEFAULT, "jim" });
+    SystemMetaObject.forObject(params).setValue("generatedId", 7);
+    params.put("id", 2);
+    assertEquals(7, params.get("generatedId"));
+    assertEquals(2, params.get("id"));
+    assertEquals("{id=2, param1=jim, param2=jim, generatedId=7}", params.toString());
+  }
+
+  @Test
+  public void shouldBindSlotsWithAPlan() throws Exception {
+    Configuration configuration = new Configuration();
+    List<ParameterMapping> mappings = new ArrayList<ParameterMapping>();
+    mappings.add(new ParameterMapping.Builder(configuration, "param2", Object.class).build());
+    mappings.add(new ParameterMapping.Builder(configuration, "id", Object.class).build());
+    Map<String, Object> params = namedParams(new Object[] { 1, RowBounds.DEFAULT, "jim" });
+    ParameterBindingPlan plan = ParameterBindingPlan.compile(configuration, mappings, params);
+    assertEquals("jim", plan.getValue(configuration, 0, params));
+    assertEquals(1, plan.getValue(configuration, 1, params));
+    assertTrue(plan.matches(mappings, namedParams(new Object[] { 2, RowBounds.DEFAULT, "sally" })));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> namedParams(Object[] args) throws Exception {
+    if (resolver == null) {
+      Configuration configuration = new Configuration();
+      configuration.setFixedParamMapsEnabled(true);
+      resolver = new ParamNameResolver(configuration, Mapper.class.getMethod("select", Integer.class, RowBounds.class, String.class));
+    }
+    return (Map<String, Object>) resolver.getNamedParams(args);
+  }
+
+}
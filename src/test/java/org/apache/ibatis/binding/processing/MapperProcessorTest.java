@@ -0,0 +1,142 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.MapperProxyFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Test;
+
+public class MapperProcessorTest {
+
+  private static final String SOURCE = "package sample;\n"
+      + "import java.util.List;\n"
+      + "import org.apache.ibatis.annotations.*;\n"
+      + "import org.apache.ibatis.session.RowBounds;\n"
+      + "@Mapper\n"
+      + "public interface SampleMapper {\n"
+      + "  @Select(\"select\") List<String> names(@Param(\"first\") String first, RowBounds rowBounds);\n"
+      + "  @Select(\"select\") String name(int id);\n"
+      + "  @Update(\"update\") boolean rename(@Param(\"id\") int id, @Param(\"name\") String name);\n"
+      + "  int count();\n"
+      + "}\n";
+
+  private final List<String> calls = new ArrayList<String>();
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldCallTheSqlSessionFromTheGeneratedImplementation() throws Exception {
+    Class<?> mapperInterface = compile();
+    MapperProxyFactory<?> factory = new MapperProxyFactory<Object>((Class<Object>) mapperInterface);
+    assertTrue(factory.isGenerated());
+    Object mapper = factory.newInstance(newSqlSession());
+    assertEquals(mapperInterface.getName() + "_MyBatisImpl", mapper.getClass().getName());
+
+    RowBounds rowBounds = new RowBounds(1, 2);
+    invoke(mapper, "names", new Class<?>[] { String.class, RowBounds.class }, "a", rowBounds);
+    invoke(mapper, "name", new Class<?>[] { int.class }, 7);
+    assertEquals(true, invoke(mapper, "rename", new Class<?>[] { int.class, String.class }, 7, "b"));
+    assertEquals(Arrays.asList(
+        "selectList sample.SampleMapper.names {first=a, param1=a} " + rowBounds,
+        "selectOne sample.SampleMapper.name 7",
+        "update sample.SampleMapper.rename {id=7, name=b, param1=7, param2=b}"), calls);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldExecuteOtherMethodsWithMapperMethods() throws Exception {
+    Object mapper = new MapperProxyFactory<Object>((Class<Object>) compile()).newInstance(newSqlSession());
+    try {
+      invoke(mapper, "count", new Class<?>[0]);
+      fail();
+    } catch (BindingException e) {
+      assertEquals("Invalid bound statement (not found): sample.SampleMapper.count", e.getMessage());
+    }
+  }
+
+  private Object invoke(Object mapper, String name, Class<?>[] types, Object... args) throws Exception {
+    try {
+      return mapper.getClass().getMethod(name, types).invoke(mapper, args);
+    } catch (InvocationTargetException e) {
+      throw (Exception) e.getCause();
+    }
+  }
+
+  private Class<?> compile() throws Exception {
+    File dir = File.createTempFile("mapper-processor", "");
+    assertTrue(dir.delete() && dir.mkdirs());
+    File source = new File(dir, "SampleMapper.java");
+    Writer writer = new FileWriter(source);
+    try {
+      writer.write(SOURCE);
+    } finally {
+      writer.close();
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    int status = compiler.run(null, null, null, "-classpath", System.getProperty("java.class.path"), "-d", dir.getPath(),
+        "-s", dir.getPath(), "-processor", MapperProcessor.class.getName(), source.getPath());
+    assertEquals(0, status);
+    ClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+    return Class.forName("sample.SampleMapper", true, loader);
+  }
+
+  private SqlSession newSqlSession() {
+    final Configuration configuration = new Configuration();
+    return (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSession.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("getConfiguration")) {
+              return configuration;
+            }
+            StringBuilder call = new StringBuilder(method.getName());
+            for (Object arg : args) {
+              call.append(' ').append(arg instanceof Map ? new TreeMap<Object, Object>((Map<?, ?>) arg) : arg);
+            }
+            calls.add(call.toString());
+            if (method.getName().equals("selectList")) {
+              return new ArrayList<Object>();
+            }
+            return method.getName().equals("update") ? 1 : null;
+          }
+        });
+  }
+
+}
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TableNameParserTest {
+
+  @Test
+  public void shouldFindTablesOfJoinsAndSubqueries() {
+    assertEquals(tables("users", "orders", "items", "blocked"), TableNameParser.parse(
+        "SELECT * FROM Users u, app.\"Orders\" o LEFT JOIN items i ON i.id = o.id"
+        + " WHERE u.id = #{id} AND u.id NOT IN (SELECT user_id FROM blocked)"));
+  }
+
+  @Test
+  public void shouldFindWrittenTables() {
+    assertEquals(tables("audit_log"), TableNameParser.parse("insert into audit_log (a, b) values (#{a}, #{b})"));
+    assertEquals(tables("catalog"), TableNameParser.parse("UPDATE [dbo].[Catalog] SET name = 'from x' WHERE id = ?"));
+    assertEquals(tables("t"), TableNameParser.parse("delete from t -- from comment\n where id = ?"));
+    assertEquals(tables("target", "source"), TableNameParser.parse(
+        "MERGE INTO target t USING source s ON (t.id = s.id) WHEN MATCHED THEN UPDATE SET t.v = s.v"));
+  }
+
+  @Test
+  public void shouldNotKnowTablesOfSubstitutionsAndTableFunctions() {
+    assertNull(TableNameParser.parse("select * from ${table}"));
+    assertNull(TableNameParser.parse("select * from generate_series(1, 10)"));
+    assertNull(TableNameParser.parse("select 1"));
+  }
+
+  @Test
+  public void shouldParseDeclaredTables() {
+    assertEquals(tables("foo", "bar"), TableNameParser.parseDeclared(" Foo, app.BAR ,"));
+    assertNull(TableNameParser.parseDeclared(" "));
+  }
+
+  private Set<String> tables(String... names) {
+    return new LinkedHashSet<String>(Arrays.asList(names));
+  }
+
+}
@@ -0,0 +1,218 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.BinaryCacheSerializer;
+import org.apache.ibatis.cache.serializer.CompressingCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.junit.Test;
+
+public class BinaryCacheSerializerTest {
+
+  @Test
+  public void shouldCopyBeansThatAreNotSerializable() {
+    Row row = new Row(1, "one");
+    row.setAmount(new BigDecimal("1.50"));
+    row.setCreated(new Date(1000L));
+    row.setTags(new String[] { "a", "b" });
+    Row copy = (Row) roundTrip(new BinaryCacheSerializer(), row);
+    assertNotSame(row, copy);
+    assertEquals(1, copy.getId());
+    assertEquals("one", copy.getName());
+    assertEquals(new BigDecimal("1.50"), copy.getAmount());
+    assertEquals(new Date(1000L), copy.getCreated());
+    assertArrayEquals(new String[] { "a", "b" }, copy.getTags());
+  }
+
+  @Test
+  public void shouldKeepSharedAndCyclicReferences() {
+    Row parent = new Row(1, "parent");
+    Row child = new Row(2, "child");
+    child.setParent(parent);
+    parent.getChildren().add(child);
+    parent.getChildren().add(child);
+    Row copy = (Row) roundTrip(new BinaryCacheSerializer(), parent);
+    assertEquals(2, copy.getChildren().size());
+    assertSame(copy.getChildren().get(0), copy.getChildren().get(1));
+    assertSame(copy, copy.getChildren().get(0).getParent());
+  }
+
+  @Test
+  public void shouldBeSmallerThanJavaSerializationForListsOfRows() {
+    List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, Object> row = new HashMap<String, Object>();
+      row.put("ID", i);
+      row.put("NAME", "name" + i);
+      rows.add(row);
+    }
+    byte[] binary = new BinaryCacheSerializer().serialize(rows);
+    assertTrue(binary.length < new JavaCacheSerializer().serialize(rows).length);
+    assertEquals(rows, new BinaryCacheSerializer().deserialize(binary));
+  }
+
+  @Test
+  public void shouldFallBackToJavaSerialization() {
+    assertEquals(Locale.CANADA, roundTrip(new BinaryCacheSerializer(), Locale.CANADA));
+  }
+
+  @Test
+  public void shouldCompressLargeObjects() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      text.append("repeated text ");
+    }
+    CacheSerializer serializer = new CompressingCacheSerializer(new BinaryCacheSerializer());
+    byte[] compressed = serializer.serialize(text.toString());
+    assertTrue(compressed.length < text.length() / 10);
+    assertEquals(text.toString(), serializer.deserialize(compressed));
+    assertEquals("small", roundTrip(serializer, "small"));
+  }
+
+  @Test
+  public void shouldCopyObjectsOfSerializedCache() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), new BinaryCacheSerializer());
+    Row row = new Row(1, "one");
+    cache.putObject("key", row);
+    Row copy = (Row) cache.getObject("key");
+    assertNotSame(row, copy);
+    assertEquals("one", copy.getName());
+  }
+
+  @Test
+  public void shouldKeepFieldsWithoutSetters() {
+    Basket basket = new Basket();
+    basket.setOwner("owner");
+    basket.getItems().add("item");
+    Basket copy = (Basket) roundTrip(new BinaryCacheSerializer(), basket);
+    assertEquals("owner", copy.getOwner());
+    assertEquals(basket.getItems(), copy.getItems());
+  }
+
+  private Object roundTrip(CacheSerializer serializer, Object object) {
+    return serializer.deserialize(serializer.serialize(object));
+  }
+
+  public static class Basket implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final List<String> items = new ArrayList<String>();
+    private String owner;
+
+    public List<String> getItems() {
+      return items;
+    }
+
+    public String getOwner() {
+      return owner;
+    }
+
+    public void setOwner(String owner) {
+      this.owner = owner;
+    }
+  }
+
+  public static class Row {
+    private int id;
+    private String name;
+    private BigDecimal amount;
+    private Date created;
+    private String[] tags;
+    private Row parent;
+    private List<Row> children = new ArrayList<Row>();
+
+    public Row() {
+    }
+
+    public Row(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public BigDecimal getAmount() {
+      return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+      this.amount = amount;
+    }
+
+    public Date getCreated() {
+      return created;
+    }
+
+    public void setCreated(Date created) {
+      this.created = created;
+    }
+
+    public String[] getTags() {
+      return tags;
+    }
+
+    public void setTags(String[] tags) {
+      this.tags = tags;
+    }
+
+    public Row getParent() {
+      return parent;
+    }
+
+    public void setParent(Row parent) {
+      this.parent = parent;
+    }
+
+    public List<Row> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Row> children) {
+      this.children = children;
+    }
+  }
+
+}
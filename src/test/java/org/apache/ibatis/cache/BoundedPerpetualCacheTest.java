@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.BoundedPerpetualCache;
+import org.junit.Test;
+
+public class BoundedPerpetualCacheTest {
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEntriesOnlyWhenAsked() {
+    BoundedPerpetualCache cache = new BoundedPerpetualCache("default", 3, 0, false);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    assertEquals(0, cache.getObject(0));
+    assertEquals(Arrays.<Object>asList(1, 2), cache.evictExcess());
+    assertEquals(3, cache.getSize());
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldEvictLeastFrequentlyUsedEntries() {
+    BoundedPerpetualCache cache = new BoundedPerpetualCache("default", 2, 0, true);
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    cache.getObject("a");
+    cache.getObject("a");
+    cache.getObject("b");
+    cache.putObject("c", "c");
+    cache.getObject("c");
+    assertEquals(Arrays.<Object>asList("b"), cache.evictExcess());
+    assertNotNull(cache.getObject("a"));
+    assertNotNull(cache.getObject("c"));
+  }
+
+  @Test
+  public void shouldEvictByEstimatedSize() {
+    BoundedPerpetualCache cache = new BoundedPerpetualCache("default", 0, 1000, false);
+    List<String> rows = new ArrayList<String>();
+    for (int i = 0; i < 10; i++) {
+      rows.add("0123456789");
+    }
+    cache.putObject(1, rows);
+    cache.putObject(2, rows);
+    assertTrue(cache.getEstimatedBytes() > 1000);
+    assertEquals(Arrays.<Object>asList(1), cache.evictExcess());
+    assertTrue(cache.getEstimatedBytes() <= 1000);
+    cache.removeObject(2);
+    assertEquals(0, cache.getEstimatedBytes());
+  }
+
+  @Test
+  public void shouldKeepRetainedEntries() {
+    BoundedPerpetualCache cache = new BoundedPerpetualCache("default", 2, 0, false);
+    for (int i = 0; i < 4; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(Arrays.<Object>asList(1, 2), cache.evictExcess(Collections.singleton(0)));
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(3));
+    cache.putObject(4, 4);
+    assertEquals(Collections.emptyList(), cache.evictExcess(new HashSet<Object>(Arrays.asList(0, 3, 4))));
+    assertEquals(3, cache.getSize());
+    assertEquals(Arrays.<Object>asList(0), cache.evictExcess());
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class CacheMetricsTest {
+
+  @Test
+  public void shouldCountHitsMissesPutsAndEvictions() {
+    CacheMetrics metrics = new CacheMetrics("test");
+    Cache cache = new CacheBuilder("test").implementation(PerpetualCache.class).addDecorator(LruCache.class).size(2)
+        .metrics(metrics).build();
+    assertNull(cache.getObject(1));
+    cache.putObject(1, "one");
+    cache.putObject(2, "two");
+    cache.putObject(3, "three");
+    assertEquals("three", cache.getObject(3));
+    assertEquals("two", cache.getObject(2));
+    assertNull(cache.getObject(1));
+
+    assertEquals(2, metrics.getHits());
+    assertEquals(2, metrics.getMisses());
+    assertEquals(0.5, metrics.getHitRatio(), 0);
+    assertEquals(3, metrics.getPuts());
+    assertEquals(1, metrics.getEvictions());
+    assertEquals(2, metrics.getSize());
+    assertEquals(-1, metrics.getEstimatedBytes());
+
+    metrics.reset();
+    assertEquals(0, metrics.getHits());
+    assertEquals(2, metrics.getSize());
+  }
+
+  @Test
+  public void shouldNotCountOverwritesAsEvictions() {
+    CacheMetrics metrics = new CacheMetrics("test");
+    Cache cache = new CacheBuilder("test").implementation(PerpetualCache.class).addDecorator(LruCache.class).size(2)
+        .metrics(metrics).build();
+    cache.putObject(1, "one");
+    cache.putObject(2, "two");
+    cache.putObject(2, "two again");
+    cache.putObject(1, "one again");
+
+    assertEquals(4, metrics.getPuts());
+    assertEquals(0, metrics.getEvictions());
+  }
+
+  @Test
+  public void shouldCountEvictionsReportedByTheBaseCache() {
+    CacheMetrics metrics = new CacheMetrics("test");
+    Cache cache = new CacheBuilder("test").implementation(TinyLfuCache.class).size(10).metrics(metrics).build();
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+      cache.putObject(i, i);
+    }
+
+    assertEquals(200, metrics.getPuts());
+    assertEquals(100 - cache.getSize(), metrics.getEvictions());
+  }
+
+  @Test
+  public void shouldCountEntriesOfChangedTablesAsMisses() {
+    TableTimestamps tableTimestamps = new TableTimestamps();
+    CacheMetrics metrics = new CacheMetrics("test");
+    Cache cache = new CacheBuilder("test").metrics(metrics).tableTimestamps(tableTimestamps).build();
+    TransactionalCacheManager tcm = new TransactionalCacheManager(tableTimestamps);
+    CacheKey key = new CacheKey(new Object[] { 1 });
+    tcm.putObject(cache, key, "one", Collections.singleton("customer"), tableTimestamps.currentTimestamp());
+    tcm.commit();
+    assertEquals("one", tcm.getObject(cache, key));
+    assertEquals(1, metrics.getHits());
+
+    tableTimestamps.invalidate(Collections.singleton("customer"));
+    assertNull(tcm.getObject(cache, key));
+    assertEquals(1, metrics.getHits());
+    assertEquals(1, metrics.getMisses());
+  }
+
+  @Test
+  public void shouldReportEstimatedBytesOfTheBaseCache() {
+    CacheMetrics metrics = new CacheMetrics("test");
+    new CacheBuilder("test").implementation(OffHeapCache.class).metrics(metrics).build().putObject(1, "one");
+    assertTrue(metrics.getEstimatedBytes() > 0);
+  }
+
+  @Test
+  public void shouldCountLoadsInTheirTimeBucket() {
+    CacheMetrics metrics = new CacheMetrics("test");
+    metrics.recordLoad(TimeUnit.MICROSECONDS.toNanos(500));
+    metrics.recordLoad(TimeUnit.MILLISECONDS.toNanos(7));
+    metrics.recordLoad(TimeUnit.SECONDS.toNanos(10));
+
+    assertEquals(3, metrics.getLoads());
+    long[] histogram = metrics.getLoadTimeHistogram();
+    assertEquals(metrics.getLoadTimeHistogramBoundsMillis().length + 1, histogram.length);
+    assertEquals(1, histogram[0]);
+    assertEquals(1, histogram[2]);
+    assertEquals(1, histogram[histogram.length - 1]);
+    assertEquals((0.5 + 7 + 10000) / 3, metrics.getAverageLoadMillis(), 0.001);
+  }
+
+}
@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.executor.CachingExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.junit.Test;
+
+public class EntityReferencesTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  public void shouldKeyObjectsByResultMapAndId() {
+    ResultMap resultMap = authorMap(true);
+    CacheKey[] keys = EntityReferences.keysOf(configuration, "selectAuthors", resultMap, Arrays.asList(author(1, "jim"), author(2, "sally"), author(1, "jim")));
+    assertEquals(3, keys.length);
+    assertEquals(keys[0], keys[2]);
+    assertEquals(false, keys[0].equals(keys[1]));
+  }
+
+  @Test
+  public void shouldKeepObjectsOfDifferentSelectsApart() {
+    ResultMap resultMap = authorMap(true);
+    List<Author> authors = Collections.singletonList(author(1, "jim"));
+    CacheKey key = EntityReferences.keysOf(configuration, "selectAuthors", resultMap, authors)[0];
+    assertEquals(false, key.equals(EntityReferences.keysOf(configuration, "selectAuthorNames", resultMap, authors)[0]));
+    assertEquals(key, EntityReferences.keyOfParameter(configuration, "selectAuthors", resultMap, 1));
+  }
+
+  @Test
+  public void shouldNotKeyObjectsWithoutIdentity() {
+    assertNull(EntityReferences.keysOf(configuration, "selectAuthors", authorMap(false), Collections.singletonList(author(1, "jim"))));
+    assertNull(EntityReferences.keysOf(configuration, "selectAuthors", authorMap(true), Arrays.asList(author(1, "jim"), null)));
+  }
+
+  @Test
+  public void shouldMatchObjectsWithTheParametersIdentifyingThem() {
+    ResultMap resultMap = authorMap(true);
+    CacheKey key = EntityReferences.keysOf(configuration, "selectAuthors", resultMap, Collections.singletonList(author(1, "jim")))[0];
+    assertEquals(key, EntityReferences.keyOfParameter(configuration, "selectAuthors", resultMap, 1L));
+    assertEquals(key, EntityReferences.keyOfParameter(configuration, "selectAuthors", resultMap, author(1, "james")));
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("id", 1);
+    assertEquals(key, EntityReferences.keyOfParameter(configuration, "selectAuthors", resultMap, parameter));
+    assertNull(EntityReferences.keyOfParameter(configuration, "selectAuthors", resultMap, new HashMap<String, Object>()));
+  }
+
+  @Test
+  public void shouldEvictSingleEntryOnCommit() {
+    Cache cache = new PerpetualCache("default");
+    cache.putObject("a", "1");
+    cache.putObject("b", "2");
+    TransactionalCache txCache = new TransactionalCache(cache);
+    txCache.evict("a");
+    assertNull(txCache.getObject("a"));
+    assertEquals("1", cache.getObject("a"));
+    txCache.commit();
+    assertNull(cache.getObject("a"));
+    assertEquals("2", cache.getObject("b"));
+  }
+
+  @Test
+  public void shouldKeepEntryOnRollback() {
+    Cache cache = new PerpetualCache("default");
+    cache.putObject("a", "1");
+    TransactionalCache txCache = new TransactionalCache(cache);
+    txCache.evict("a");
+    txCache.rollback();
+    assertEquals("1", cache.getObject("a"));
+  }
+
+  @Test
+  public void shouldHoldReferencesInOrder() {
+    CacheKey key = new CacheKey(new Object[] { "entity:authorMap", "selectAuthors", 1L });
+    assertArrayEquals(new CacheKey[] { key }, new EntityReferences(new CacheKey[] { key }).getKeys());
+  }
+
+  @Test
+  public void shouldReadOtherKindsOfResultsAgainAfterAnEviction() throws Exception {
+    configuration.setEntityCacheEnabled(true);
+    Cache cache = new PerpetualCache("authors");
+    ResultMap authorMap = authorMap(true);
+    configuration.addResultMap(authorMap);
+    MappedStatement selectAuthor = statement("selectAuthor", SqlCommandType.SELECT, cache, authorMap);
+    MappedStatement selectNames = statement("selectNames", SqlCommandType.SELECT, cache, authorMap(false, "nameMap"));
+    MappedStatement updateAuthor = new MappedStatement.Builder(configuration, "updateAuthor",
+        new StaticSqlSource(configuration, "update"), SqlCommandType.UPDATE).cache(cache).flushCacheRequired(true)
+        .evictEntity("authorMap").build();
+    configuration.addMappedStatement(selectAuthor);
+    configuration.addMappedStatement(selectNames);
+    configuration.addMappedStatement(updateAuthor);
+    final List<String> queries = new ArrayList<String>();
+    Executor delegate = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Executor.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("createCacheKey")) {
+              return new CacheKey(new Object[] { ((MappedStatement) args[0]).getId(), args[1] });
+            } else if (method.getName().equals("query")) {
+              queries.add(((MappedStatement) args[0]).getId());
+              return Collections.singletonList(author(2, "sally"));
+            } else if (method.getName().equals("update")) {
+              return 1;
+            }
+            return null;
+          }
+        });
+
+    for (int i = 0; i < 2; i++) {
+      CachingExecutor executor = new CachingExecutor(delegate);
+      executor.query(selectAuthor, 2, RowBounds.DEFAULT, null);
+      executor.query(selectNames, null, RowBounds.DEFAULT, null);
+      executor.commit(true);
+    }
+    assertEquals(Arrays.asList("selectAuthor", "selectNames"), queries);
+
+    CachingExecutor executor = new CachingExecutor(delegate);
+    executor.update(updateAuthor, 1);
+    executor.commit(true);
+    executor.query(selectAuthor, 2, RowBounds.DEFAULT, null);
+    executor.query(selectNames, null, RowBounds.DEFAULT, null);
+    assertEquals(Arrays.asList("selectAuthor", "selectNames", "selectNames"), queries);
+  }
+
+  private MappedStatement statement(String id, SqlCommandType type, Cache cache, ResultMap resultMap) {
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "select"), type).cache(cache)
+        .useCache(true).resultMaps(Collections.singletonList(resultMap)).build();
+  }
+
+  private ResultMap authorMap(boolean withId) {
+    return authorMap(withId, "authorMap");
+  }
+
+  private ResultMap authorMap(boolean withId, String id) {
+    List<ResultMapping> mappings = new ArrayList<ResultMapping>();
+    List<ResultFlag> idFlags = new ArrayList<ResultFlag>();
+    if (withId) {
+      idFlags.add(ResultFlag.ID);
+    }
+    mappings.add(new ResultMapping.Builder(configuration, "id", "id", new IntegerTypeHandler()).flags(idFlags).build());
+    mappings.add(new ResultMapping.Builder(configuration, "username", "username", new StringTypeHandler()).build());
+    return new ResultMap.Builder(configuration, id, Author.class, mappings).build();
+  }
+
+  private Author author(int id, String username) {
+    Author author = new Author();
+    author.setId(id);
+    author.setUsername(username);
+    return author;
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void shouldReturnCopiesOfCachedObjects() {
+    Cache cache = new OffHeapCache("default");
+    List<String> value = new ArrayList<String>();
+    value.add("first");
+    cache.putObject(new CacheKey(new Object[] { "select", 1 }), value);
+    value.add("second");
+    Object cached = cache.getObject(new CacheKey(new Object[] { "select", 1 }));
+    assertEquals(1, ((List<?>) cached).size());
+    assertNotSame(cached, cache.getObject(new CacheKey(new Object[] { "select", 1 })));
+  }
+
+  @Test
+  public void shouldNotExceedMaximumBytes() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(64 * 1024);
+    cache.setSegments(4);
+    cache.setSlabBytes(4 * 1024);
+    for (int i = 0; i < 10000; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    // each entry takes more than 100 bytes
+    assertTrue(cache.getSize() < 64 * 1024 / 100);
+    assertEquals("value9999", cache.getObject(9999));
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldShrinkSegmentsAndSlabsToFitMaximumBytes() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(10 * 1024);
+    cache.setSegments(16);
+    cache.setSlabBytes(4 * 1024);
+    for (int i = 0; i < 10000; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    assertTrue(cache.getEstimatedBytes() <= 10 * 1024);
+    assertEquals("value9999", cache.getObject(9999));
+
+    OffHeapCache tiny = new OffHeapCache("tiny");
+    tiny.setMaxBytes(1000);
+    tiny.putObject(1, "value");
+    assertEquals(1000, tiny.getEstimatedBytes());
+    assertEquals("value", tiny.getObject(1));
+  }
+
+  @Test
+  public void shouldDistinguishKeysWithTheSameHash() {
+    Cache cache = new OffHeapCache("default");
+    // "Aa" and "BB" have the same hash code
+    cache.putObject("Aa", 1);
+    cache.putObject("BB", 2);
+    assertEquals(1, cache.getObject("Aa"));
+    assertEquals(2, cache.getObject("BB"));
+    assertEquals(1, cache.removeObject("Aa"));
+    assertNull(cache.getObject("Aa"));
+    assertEquals(2, cache.getObject("BB"));
+  }
+
+  @Test
+  public void shouldFindEqualKeysThatSerializeDifferently() {
+    Cache cache = new OffHeapCache("default");
+    String value = "value";
+    // the same string twice is serialized as a back reference
+    cache.putObject(new CacheKey(new Object[] { value, value }), 1);
+    CacheKey equalKey = new CacheKey(new Object[] { new String(value), new String(value) });
+    assertEquals(1, cache.getObject(equalKey));
+    cache.putObject(equalKey, 2);
+    assertEquals(1, cache.getSize());
+    assertEquals(2, cache.removeObject(new CacheKey(new Object[] { value, value })));
+  }
+
+  @Test
+  public void shouldReplaceValueOfExistingKey() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject("key", "first");
+    cache.putObject("key", "second");
+    assertEquals("second", cache.getObject("key"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldNotCacheEntriesLargerThanASlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabBytes(1024);
+    cache.putObject("key", "small");
+    cache.putObject("key", new byte[2048]);
+    assertNull(cache.getObject("key"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectNonSerializableValues() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject("key", new Object());
+  }
+
+}
@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.PersistentCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistentCacheTest {
+
+  private File directory;
+  private List<PersistentCache> caches = new ArrayList<PersistentCache>();
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile("persistent", "cache");
+    directory.delete();
+    directory.mkdirs();
+  }
+
+  @After
+  public void tearDown() {
+    for (PersistentCache cache : caches) {
+      cache.close();
+    }
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  @Test
+  public void shouldReloadEntriesAfterRestart() {
+    PersistentCache cache = newCache("v1", 1024 * 1024);
+    cache.putObject(new CacheKey(new Object[] { "select", 1 }), "one");
+    cache.putObject(new CacheKey(new Object[] { "select", 2 }), "two");
+    cache.putObject(new CacheKey(new Object[] { "select", 2 }), "deux");
+    cache.putObject(new CacheKey(new Object[] { "select", 3 }), "three");
+    cache.removeObject(new CacheKey(new Object[] { "select", 3 }));
+    cache.close();
+
+    PersistentCache restarted = newCache("v1", 1024 * 1024);
+    assertEquals(2, restarted.getSize());
+    assertEquals("one", restarted.getObject(new CacheKey(new Object[] { "select", 1 })));
+    assertEquals("deux", restarted.getObject(new CacheKey(new Object[] { "select", 2 })));
+    assertNull(restarted.getObject(new CacheKey(new Object[] { "select", 3 })));
+  }
+
+  @Test
+  public void shouldFindEqualKeysThatSerializeDifferently() {
+    PersistentCache cache = newCache("v1", 1024 * 1024);
+    String value = "value";
+    // the same string twice is serialized as a back reference
+    cache.putObject(new CacheKey(new Object[] { value, value }), "one");
+    assertEquals("one", cache.getObject(new CacheKey(new Object[] { new String(value), new String(value) })));
+    cache.close();
+
+    PersistentCache restarted = newCache("v1", 1024 * 1024);
+    assertEquals("one", restarted.getObject(new CacheKey(new Object[] { new String(value), new String(value) })));
+  }
+
+  @Test
+  public void shouldDiscardEntriesOfAnotherVersion() {
+    PersistentCache cache = newCache("v1", 1024 * 1024);
+    cache.putObject("key", "value");
+    cache.close();
+
+    PersistentCache restarted = newCache("v2", 1024 * 1024);
+    assertEquals(0, restarted.getSize());
+    assertNull(restarted.getObject("key"));
+  }
+
+  @Test
+  public void shouldCompactAndEvictOldestEntriesWhenFull() {
+    PersistentCache cache = newCache("v1", 16 * 1024);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i % 10, "value" + i);
+    }
+    assertEquals(10, cache.getSize());
+    assertEquals("value999", cache.getObject(9));
+    for (int i = 1000; i < 2000; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    assertTrue(cache.getSize() < 16 * 1024 / 80);
+    assertEquals("value1999", cache.getObject(1999));
+    assertNull(cache.getObject(1000));
+    int size = cache.getSize();
+    cache.close();
+
+    PersistentCache restarted = newCache("v1", 16 * 1024);
+    assertEquals(size, restarted.getSize());
+    assertEquals("value1999", restarted.getObject(1999));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    PersistentCache cache = newCache("v1", 1024 * 1024);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    cache.putObject(5, 5);
+    cache.close();
+
+    PersistentCache restarted = newCache("v1", 1024 * 1024);
+    assertNull(restarted.getObject(0));
+    assertEquals(5, restarted.getObject(5));
+    assertEquals(1, restarted.getSize());
+  }
+
+  @Test
+  public void shouldBypassTheFileUsedByAnotherCache() {
+    PersistentCache cache = newCache("v1", 1024 * 1024);
+    cache.putObject("key", "value");
+    PersistentCache other = newCache("v1", 1024 * 1024);
+    assertNull(other.getObject("key"));
+    other.putObject("other", "value");
+    assertNull(other.getObject("other"));
+    assertEquals(0, other.getSize());
+    assertEquals("value", cache.getObject("key"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldReleaseTheFilesOfAllOpenCaches() {
+    newCache("v1", 1024 * 1024).putObject("key", "value");
+    PersistentCache.closeAll();
+    assertEquals("value", newCache("v1", 1024 * 1024).getObject("key"));
+  }
+
+  private PersistentCache newCache(String version, long maxBytes) {
+    PersistentCache cache = new PersistentCache("org.apache.ibatis.TestMapper");
+    cache.setDirectory(directory.getAbsolutePath());
+    cache.setVersion(version);
+    cache.setMaxBytes(maxBytes);
+    caches.add(cache);
+    return cache;
+  }
+
+}
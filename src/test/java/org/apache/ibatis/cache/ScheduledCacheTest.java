@@ -65,4 +65,46 @@ public class ScheduledCacheTest {
     assertNull(cache.getObject(4));
   }
 
+  @Test
+  public void shouldExpireEachEntryAfterTheClearInterval() throws Exception {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(200);
+    cache.setRefreshAhead(0);
+    cache.putObject(0, 0);
+    Thread.sleep(120);
+    cache.putObject(1, 1);
+    Thread.sleep(120);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+  }
+
+  @Test
+  public void shouldLetOneReaderRefreshAnEntryAboutToExpire() throws Exception {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(1000);
+    cache.setRefreshAhead(800);
+    cache.putObject(0, "first");
+    assertEquals("first", cache.getObject(0));
+    Thread.sleep(300);
+    assertNull(cache.getObject(0));
+    assertEquals("first", cache.getObject(0));
+    assertEquals("first", cache.getObject(0));
+    cache.putObject(0, "second");
+    assertEquals("second", cache.getObject(0));
+  }
+
+  @Test
+  public void shouldLetAnotherReaderRefreshAfterARollback() throws Exception {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache"));
+    cache.setClearInterval(1000);
+    cache.setRefreshAhead(800);
+    cache.putObject(0, "first");
+    Thread.sleep(300);
+    assertNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    cache.putObject(0, "second");
+    assertEquals("second", cache.getObject(0));
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class SingleFlightCacheTest {
+
+  @Test
+  public void shouldQueryOnceForConcurrentMisses() throws Exception {
+    final SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    final AtomicInteger queries = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Object> results = new ArrayList<Object>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          Object value = cache.getObject("key");
+          if (value == null) {
+            queries.incrementAndGet();
+            try {
+              Thread.sleep(100);
+            } catch (InterruptedException e) {
+              // ignore
+            }
+            value = "value";
+            cache.putObject("key", value);
+          }
+          synchronized (results) {
+            results.add(value);
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(1, queries.get());
+    assertEquals(8, results.size());
+  }
+
+  @Test
+  public void shouldNotBlockTheThreadRunningTheFlight() {
+    Cache cache = new SingleFlightCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldReleaseWaitingReadersOnRemoval() throws Exception {
+    final Cache cache = new SingleFlightCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    final CountDownLatch missed = new CountDownLatch(1);
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        // becomes the next flight once the first one is abandoned
+        if (cache.getObject("key") == null) {
+          missed.countDown();
+        }
+      }
+    };
+    reader.start();
+    assertFalse(missed.await(100, TimeUnit.MILLISECONDS));
+    cache.removeObject("key");
+    assertTrue(missed.await(1, TimeUnit.SECONDS));
+    reader.join();
+  }
+
+  @Test
+  public void shouldStopWaitingAfterTimeout() throws Exception {
+    final SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    cache.setTimeout(50);
+    assertNull(cache.getObject("key"));
+    final Object[] result = { "not read" };
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        result[0] = cache.getObject("key");
+      }
+    };
+    reader.start();
+    reader.join(1000);
+    assertFalse(reader.isAlive());
+    assertNull(result[0]);
+  }
+
+}
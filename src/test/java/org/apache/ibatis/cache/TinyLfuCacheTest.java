@@ -0,0 +1,131 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.junit.Test;
+
+public class TinyLfuCacheTest {
+
+  @Test
+  public void shouldNotExceedMaximumSize() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(100, cache.getSize());
+  }
+
+  @Test
+  public void shouldKeepFrequentlyUsedItemsDuringScan() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 50; i++) {
+      cache.putObject(i, i);
+    }
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        assertEquals(i, cache.getObject(i));
+      }
+    }
+    for (int i = 1000; i < 11000; i++) {
+      cache.putObject(i, i);
+    }
+    int hits = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cache.getObject(i) != null) {
+        hits++;
+      }
+    }
+    assertTrue("Only " + hits + " of 50 hot items survived the scan", hits >= 45);
+  }
+
+  @Test
+  public void shouldBeEqualToCachesWithTheSameId() {
+    Cache cache = new TinyLfuCache("default");
+    assertEquals(new TinyLfuCache("default"), cache);
+    assertEquals(new TinyLfuCache("default").hashCode(), cache.hashCode());
+    assertNotEquals(new TinyLfuCache("other"), cache);
+  }
+
+  @Test
+  public void shouldReplaceValueOfExistingKey() {
+    Cache cache = new TinyLfuCache("default");
+    cache.putObject("key", "first");
+    cache.putObject("key", "second");
+    assertEquals("second", cache.getObject("key"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new TinyLfuCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new TinyLfuCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    final TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(64);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      final int offset = t * 10000;
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            cache.putObject(offset + i, i);
+            cache.getObject(offset + i / 2);
+            if (i % 7 == 0) {
+              cache.removeObject(offset + i - 1);
+            }
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    cache.putObject(-1, -1);
+    assertTrue(cache.getSize() <= 64);
+  }
+
+}
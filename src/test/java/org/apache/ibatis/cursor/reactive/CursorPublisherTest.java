@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CursorPublisherTest {
+
+  @Mock
+  private SqlSession sqlSession;
+  @Mock
+  private Cursor<Object> cursor;
+
+  @Before
+  public void setUp() {
+    Configuration configuration = new Configuration();
+    configuration.setAsyncExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    });
+    when(sqlSession.getConfiguration()).thenReturn(configuration);
+  }
+
+  @Test
+  public void shouldFetchRowsOnDemand() {
+    List<Object> rows = Arrays.<Object>asList(1, 2, 3);
+    when(sqlSession.selectCursor("select", "parameter", RowBounds.DEFAULT)).thenReturn(cursor);
+    when(cursor.iterator()).thenReturn(rows.iterator());
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<Object>(sqlSession, "select", "parameter").subscribe(subscriber);
+
+    verify(sqlSession, never()).selectCursor("select", "parameter", RowBounds.DEFAULT);
+    subscriber.subscription.request(2);
+    assertEquals(Arrays.<Object>asList(1, 2), subscriber.items);
+    assertFalse(subscriber.completed);
+    verify(sqlSession, never()).close();
+
+    subscriber.subscription.request(5);
+    assertEquals(rows, subscriber.items);
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+    verify(sqlSession).close();
+  }
+
+  @Test
+  public void shouldCloseSessionOnCancel() {
+    when(sqlSession.selectCursor("select", null, RowBounds.DEFAULT)).thenReturn(cursor);
+    when(cursor.iterator()).thenReturn(Arrays.<Object>asList(1, 2, 3).iterator());
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<Object>(sqlSession, "select", null).subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    assertEquals(Arrays.<Object>asList(1), subscriber.items);
+    assertFalse(subscriber.completed);
+    assertNull(subscriber.error);
+    verify(sqlSession).close();
+  }
+
+  @Test
+  public void shouldSignalFailures() {
+    RuntimeException failure = new RuntimeException("failure");
+    when(sqlSession.selectCursor("select", null, RowBounds.DEFAULT)).thenThrow(failure);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<Object>(sqlSession, "select", null).subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+    assertEquals(failure, subscriber.error);
+    verify(sqlSession).close();
+  }
+
+  @Test
+  public void shouldRejectNonPositiveRequests() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<Object>(sqlSession, "select", null).subscribe(subscriber);
+
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    verify(sqlSession).close();
+  }
+
+  @Test
+  public void shouldAcceptOneSubscriberOnly() {
+    CursorPublisher<Object> publisher = new CursorPublisher<Object>(sqlSession, "select", null);
+    publisher.subscribe(new RecordingSubscriber());
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    assertTrue(subscriber.error instanceof IllegalStateException);
+  }
+
+  private static class RecordingSubscriber implements Subscriber<Object> {
+    private Subscription subscription;
+    private final List<Object> items = new ArrayList<Object>();
+    private Throwable error;
+    private boolean completed;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Object item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.datasource.pooled.PooledStatementCache.StatementKey;
+import org.junit.Test;
+
+public class PooledStatementTest {
+
+  @Test
+  public void shouldRestoreLargeMaxRowsOnClose() throws Exception {
+    final Map<String, Number> options = new HashMap<String, Number>();
+    options.put("MaxRows", 5000000000L);
+    final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { Connection.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return "isClosed".equals(method.getName()) ? false : null;
+          }
+        });
+    PreparedStatement realStatement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("getConnection".equals(name)) {
+              return connection;
+            } else if ("isClosed".equals(name)) {
+              return false;
+            } else if ("getLargeMaxRows".equals(name)) {
+              return options.get("MaxRows").longValue();
+            } else if ("getMaxRows".equals(name)) {
+              return (int) Math.min(options.get("MaxRows").longValue(), Integer.MAX_VALUE);
+            } else if (name.startsWith("get")) {
+              return 0;
+            } else if (name.startsWith("set")) {
+              options.put(name.substring(3).replace("Large", ""), (Number) args[0]);
+            }
+            return null;
+          }
+        });
+    PooledStatementCache cache = new PooledStatementCache(10);
+    StatementKey key = new StatementKey("prepareStatement", new Object[] { "select 1" });
+    PreparedStatement statement = (PreparedStatement) new PooledStatement(realStatement, key, cache, connection)
+        .getProxyStatement(PreparedStatement.class);
+
+    statement.setMaxRows(10);
+    statement.close();
+
+    assertEquals(5000000000L, options.get("MaxRows").longValue());
+    assertEquals(1, cache.getCachedStatementCount());
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MultiRowInsertTest {
+
+  @Test
+  public void shouldRepeatValuesList() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert into users (id, name) values (?, ?);\n", 2, 100);
+    assertEquals("insert into users (id, name) values (?, ?)", insert.getSql(1));
+    assertEquals("insert into users (id, name) values (?, ?), (?, ?), (?, ?)", insert.getSql(3));
+  }
+
+  @Test
+  public void shouldKeepFunctionsAndLiterals() {
+    MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO users (id, name, created) VALUES (?, upper('(?)'), now())", 1, 100);
+    assertEquals("INSERT INTO users (id, name, created) VALUES (?, upper('(?)'), now()), (?, upper('(?)'), now())", insert.getSql(2));
+  }
+
+  @Test
+  public void shouldNotRewriteOtherStatements() {
+    assertNull(MultiRowInsert.parse("insert into users (id, name) select id, name from authors where id = ?", 1, 100));
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, ?), (?, ?)", 4, 100));
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, ?) on duplicate key update name = ?", 3, 100));
+    assertNull(MultiRowInsert.parse("update users set name = ? where id = ?", 2, 100));
+  }
+
+  @Test
+  public void shouldNotRewriteWhenParametersAreOutsideValues() {
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, ?)", 3, 100));
+  }
+
+  @Test
+  public void shouldNotCountParametersInComments() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert /* values (?) */ into users (id, name) -- id?\nvalues (?, ?)", 2, 100);
+    assertEquals("insert /* values (?) */ into users (id, name) -- id?\nvalues (?, ?), (?, ?)", insert.getSql(2));
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, ?) -- two rows", 2, 100));
+  }
+
+  @Test
+  public void shouldShiftParameterIndexesOfEachRow() throws Exception {
+    final List<Integer> indexes = new ArrayList<Integer>();
+    PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            indexes.add((Integer) args[0]);
+            return null;
+          }
+        });
+    MultiRowInsert.RowStatements rowStatements = MultiRowInsert.parse("insert into users (id, name) values (?, ?)", 2, 100).getRowStatements(ps);
+    PreparedStatement secondRow = rowStatements.forRow(1);
+    secondRow.setInt(1, 1);
+    secondRow.setString(2, "a");
+    assertSame(secondRow, rowStatements.forRow(2));
+    secondRow.setInt(1, 2);
+    rowStatements.forRow(0).setInt(1, 3);
+    assertEquals("[3, 4, 5, 1]", indexes.toString());
+  }
+
+}
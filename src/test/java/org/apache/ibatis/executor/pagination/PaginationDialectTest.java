@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.statement.PreparedStatementHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class PaginationDialectTest {
+
+  @Test
+  public void shouldAppendLimitAndOffset() {
+    PaginationDialect dialect = new LimitOffsetDialect();
+    assertEquals("select * from blog\nLIMIT 10", dialect.getPaginatedSql("select * from blog", 0, 10));
+    assertEquals("select * from blog\nLIMIT 10 OFFSET 20", dialect.getPaginatedSql("select * from blog", 20, 10));
+  }
+
+  @Test
+  public void shouldNotLetATrailingLineCommentSwallowTheClause() {
+    assertEquals("select * from blog -- all\nLIMIT 10", new LimitOffsetDialect().getPaginatedSql("select * from blog -- all", 0, 10));
+    assertEquals("select * from blog -- all\nOFFSET 0 ROWS FETCH NEXT 10 ROWS ONLY",
+        new OffsetFetchDialect().getPaginatedSql("select * from blog -- all", 0, 10));
+  }
+
+  @Test
+  public void shouldLimitBeforeLockingClause() {
+    PaginationDialect dialect = new LimitOffsetDialect();
+    assertEquals("select * from blog \nLIMIT 10\nFOR UPDATE", dialect.getPaginatedSql("select * from blog FOR UPDATE", 0, 10));
+    assertEquals("select * from blog where title = 'for update' \nLIMIT 10\nlock in share mode",
+        dialect.getPaginatedSql("select * from blog where title = 'for update' lock in share mode", 0, 10));
+    assertNull(new OffsetFetchDialect().getPaginatedSql("select * from blog for update", 0, 10));
+  }
+
+  @Test
+  public void shouldOrderSqlServerSelectsWithoutOrderBy() {
+    PaginationDialect dialect = new SqlServerDialect();
+    assertEquals("select * from blog\nORDER BY (SELECT NULL)\nOFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+        dialect.getPaginatedSql("select * from blog", 20, 10));
+    assertEquals("select * from blog where id in (select blog_id from post order by id)\nORDER BY (SELECT NULL)\nOFFSET 20 ROWS",
+        dialect.getPaginatedSql("select * from blog where id in (select blog_id from post order by id)", 20, RowBounds.NO_ROW_LIMIT));
+    assertEquals("select * from blog order by id\nOFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+        dialect.getPaginatedSql("select * from blog order by id", 20, 10));
+    assertNull(dialect.getPaginatedSql("select top 5 * from blog", 20, 10));
+  }
+
+  @Test
+  public void shouldAppendOffsetAndFetch() {
+    PaginationDialect dialect = new OffsetFetchDialect();
+    assertEquals("select * from blog\nOFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY", dialect.getPaginatedSql("select * from blog", 20, 10));
+    assertEquals("select * from blog\nOFFSET 20 ROWS", dialect.getPaginatedSql("select * from blog", 20, RowBounds.NO_ROW_LIMIT));
+  }
+
+  @Test
+  public void shouldFindDialectByDatabaseId() {
+    PaginationDialectRegistry registry = new PaginationDialectRegistry();
+    assertTrue(registry.getDialect("mysql") instanceof LimitOffsetDialect);
+    assertTrue(registry.getDialect("PostgreSQL") instanceof LimitOffsetDialect);
+    assertTrue(registry.getDialect("HSQL Database Engine") instanceof LimitOffsetDialect);
+    assertTrue(registry.getDialect("Microsoft SQL Server") instanceof SqlServerDialect);
+    assertTrue(registry.getDialect("oracle") instanceof OffsetFetchDialect);
+    assertTrue(registry.getDialect("DB2/LINUXX8664") instanceof OffsetFetchDialect);
+    assertNull(registry.getDialect("sqldb2x"));
+    assertNull(registry.getDialect("oh2db"));
+    assertNull(registry.getDialect("sybase"));
+    assertNull(registry.getDialect(null));
+  }
+
+  @Test
+  public void shouldPreferRegisteredDialect() {
+    PaginationDialectRegistry registry = new PaginationDialectRegistry();
+    PaginationDialect dialect = new OffsetFetchDialect();
+    registry.register("h2", dialect);
+    assertSame(dialect, registry.getDialect("H2"));
+  }
+
+  @Test
+  public void shouldPaginateSelectWhenEnabled() {
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("hsql");
+    MappedStatement ms = getMappedStatement(configuration, "select * from blog ; ");
+
+    assertEquals("select * from blog ; ", newStatementHandler(ms, new RowBounds(20, 10)).getBoundSql().getSql());
+
+    configuration.setPhysicalPaginationEnabled(true);
+    assertEquals("select * from blog\nLIMIT 10 OFFSET 20", newStatementHandler(ms, new RowBounds(20, 10)).getBoundSql().getSql());
+    assertEquals("select * from blog ; ", newStatementHandler(ms, RowBounds.DEFAULT).getBoundSql().getSql());
+
+    configuration.setDatabaseId("sybase");
+    assertEquals("select * from blog ; ", newStatementHandler(ms, new RowBounds(20, 10)).getBoundSql().getSql());
+  }
+
+  @Test
+  public void shouldSkipRowsOnTheClientWhenTheDialectCannotPaginate() {
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("oracle");
+    configuration.setPhysicalPaginationEnabled(true);
+    MappedStatement ms = getMappedStatement(configuration, "select * from blog for update");
+
+    assertEquals("select * from blog for update", newStatementHandler(ms, new RowBounds(20, 10)).getBoundSql().getSql());
+  }
+
+  private StatementHandler newStatementHandler(MappedStatement ms, RowBounds rowBounds) {
+    return new PreparedStatementHandler(null, ms, null, rowBounds, null, null);
+  }
+
+  private MappedStatement getMappedStatement(Configuration configuration, String sql) {
+    final ResultMap resultMap = new ResultMap.Builder(configuration, "blogMap", Object.class, new ArrayList<ResultMapping>()).build();
+    return new MappedStatement.Builder(configuration, "selectBlogs", new StaticSqlSource(configuration, sql), SqlCommandType.SELECT).resultMaps(
+        new ArrayList<ResultMap>() {
+          {
+            add(resultMap);
+          }
+        }).build();
+  }
+
+}
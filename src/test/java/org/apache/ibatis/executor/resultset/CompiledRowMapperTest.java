@@ -0,0 +1,142 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompiledRowMapperTest {
+
+  @Mock
+  private Statement stmt;
+  @Mock
+  private ResultSet rs;
+  @Mock
+  private ResultSetMetaData rsmd;
+  @Mock
+  private Connection conn;
+  @Mock
+  private DatabaseMetaData dbmd;
+
+  @Test
+  public void shouldMapAutomaticAndPropertyMappingsByColumnIndex() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompiledRowMappersEnabled(true);
+    final List<ResultMapping> mappings = new ArrayList<ResultMapping>();
+    mappings.add(new ResultMapping.Builder(config, "username", "AUTHOR_NAME", new StringTypeHandler()).build());
+    final MappedStatement ms = getMappedStatement(config, new ResultMap.Builder(config, "authorMap", Author.class, mappings).build());
+
+    mockResultSet("id", Types.INTEGER, Integer.class, "AUTHOR_NAME", Types.VARCHAR, String.class);
+    when(rs.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+    when(rs.getInt(1)).thenReturn(101).thenReturn(102);
+    when(rs.getString(2)).thenReturn("jim").thenReturn("sally");
+
+    final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    assertEquals(2, results.size());
+    assertEquals(101, ((Author) results.get(0)).getId());
+    assertEquals("jim", ((Author) results.get(0)).getUsername());
+    assertEquals(102, ((Author) results.get(1)).getId());
+    assertEquals("sally", ((Author) results.get(1)).getUsername());
+  }
+
+  @Test
+  public void shouldMapMapResults() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompiledRowMappersEnabled(true);
+    final MappedStatement ms = getMappedStatement(config, new ResultMap.Builder(config, "mapMap", HashMap.class, new ArrayList<ResultMapping>()).build());
+
+    mockResultSet("ID", Types.INTEGER, Integer.class, "NAME", Types.VARCHAR, String.class);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getInt(1)).thenReturn(7);
+    when(rs.getString(2)).thenReturn("seven");
+
+    final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    assertEquals(1, results.size());
+    assertEquals(Integer.valueOf(7), ((Map<?, ?>) results.get(0)).get("ID"));
+    assertEquals("seven", ((Map<?, ?>) results.get(0)).get("NAME"));
+  }
+
+  @Test
+  public void shouldReturnNullForEmptyRowUnlessRequested() throws Exception {
+    final DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(Author.class, new DefaultObjectFactory(),
+        reflectorFactory.findForClass(Author.class))
+        .addMapping(1, new StringTypeHandler(), "username", false)
+        .addMapping(2, new IntegerTypeHandler(), "id", true);
+    when(rs.getString(1)).thenReturn(null);
+    when(rs.getInt(2)).thenReturn(0);
+    when(rs.wasNull()).thenReturn(true);
+
+    assertNull(builder.build().map(rs));
+    assertEquals(Author.class, builder.returnInstanceForEmptyRow(true).build().map(rs).getClass());
+  }
+
+  private void mockResultSet(String column1, int type1, Class<?> class1, String column2, int type2, Class<?> class2) throws Exception {
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn(column1);
+    when(rsmd.getColumnType(1)).thenReturn(type1);
+    when(rsmd.getColumnClassName(1)).thenReturn(class1.getName());
+    when(rsmd.getColumnLabel(2)).thenReturn(column2);
+    when(rsmd.getColumnType(2)).thenReturn(type2);
+    when(rsmd.getColumnClassName(2)).thenReturn(class2.getName());
+  }
+
+  private MappedStatement getMappedStatement(Configuration config, final ResultMap resultMap) {
+    return new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        new ArrayList<ResultMap>() {
+          {
+            add(resultMap);
+          }
+        }).build();
+  }
+
+}
@@ -75,6 +75,111 @@ public class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnectionsInConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldHandOffReturnedConnectionToWaitingThreadInConcurrentBag() throws Exception {
+    final PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(60000);
+      ds.setPoolTimeToWait(10000);
+      Connection first = ds.getConnection();
+      final Connection[] second = new Connection[1];
+      Thread waiter = new Thread() {
+        @Override
+        public void run() {
+          try {
+            second[0] = ds.getConnection();
+          } catch (SQLException e) {
+            // leaves second[0] unset
+          }
+        }
+      };
+      waiter.start();
+      while (ds.getPoolState().getHadToWaitCount() == 0) {
+        Thread.sleep(10);
+      }
+      first.close();
+      waiter.join(5000);
+      assertNotNull(second[0]);
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      try {
+        first.getAutoCommit();
+        fail("A returned connection should not be usable.");
+      } catch (SQLException e) {
+        // expected
+      }
+      second[0].close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReusePreparedStatementsCachedForTheRealConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(1);
+      String sql = "SELECT USER_NAME FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+
+      Connection c = ds.getConnection();
+      PreparedStatement st = c.prepareStatement(sql);
+      PreparedStatement realStatement = st.unwrap(PreparedStatement.class);
+      st.setQueryTimeout(5);
+      assertSame(c, st.getConnection());
+      st.close();
+      assertTrue(st.isClosed());
+      assertFalse(realStatement.isClosed());
+      c.close();
+
+      c = ds.getConnection();
+      st = c.prepareStatement(sql);
+      assertSame(realStatement, st.unwrap(PreparedStatement.class));
+      assertEquals(0, st.getQueryTimeout());
+      ResultSet rs = st.executeQuery();
+      assertTrue(rs.next());
+      rs.close();
+      st.close();
+
+      // a different statement evicts the cached one
+      c.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY).close();
+      assertTrue(realStatement.isClosed());
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Test
   public void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
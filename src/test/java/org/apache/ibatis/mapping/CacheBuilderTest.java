@@ -18,7 +18,12 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
@@ -43,6 +48,33 @@ public class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  public void testTinyLfuEvictionReplacesBaseCacheWithoutSynchronization() throws Exception {
+    Cache cache = new CacheBuilder("test").implementation(PerpetualCache.class).addDecorator(TinyLfuCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    TinyLfuCache base = unwrap(cache);
+    for (int i = 0; i < 20; i++) {
+      base.putObject(i, i);
+    }
+    Assertions.assertThat(base.getSize()).isEqualTo(10);
+  }
+
+  @Test
+  public void testOffHeapCacheIsNotSerializedNorSynchronized() throws Exception {
+    Cache cache = new CacheBuilder("test").implementation(OffHeapCache.class).addDecorator(LruCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(OffHeapCache.class);
+  }
+
+  @Test
+  public void testSingleFlightReplacesBlockingCache() throws Exception {
+    Cache cache = new CacheBuilder("test").blocking(true).singleFlight(true).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SingleFlightCache.class);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache){
     Field field;
@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.junit.Test;
+
+public class LambdaMethodInvokerTest {
+
+  @Test
+  public void shouldCallPublicGettersAndSetters() throws Exception {
+    Bean bean = new Bean();
+    Invoker setId = LambdaMethodInvoker.forMethod(Bean.class.getMethod("setId", int.class));
+    Invoker getId = LambdaMethodInvoker.forMethod(Bean.class.getMethod("getId"));
+    Invoker setName = LambdaMethodInvoker.forMethod(Bean.class.getMethod("setName", String.class));
+    setId.invoke(bean, new Object[] { 7 });
+    setName.invoke(bean, new Object[] { "seven" });
+    assertEquals(7, getId.invoke(bean, null));
+    assertEquals("seven", bean.name);
+    assertEquals(int.class, getId.getType());
+    assertEquals(String.class, setName.getType());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldThrowExceptionsOfTheMethod() throws Exception {
+    LambdaMethodInvoker.forMethod(Bean.class.getMethod("getFailure")).invoke(new Bean(), null);
+  }
+
+  @Test
+  public void shouldNotCallInaccessibleMethods() throws Exception {
+    assertNull(LambdaMethodInvoker.forMethod(HiddenBean.class.getMethod("getId")));
+    assertNull(LambdaMethodInvoker.forMethod(Bean.class.getMethod("getStatic")));
+    assertNull(LambdaMethodInvoker.forMethod(Bean.class.getDeclaredMethod("getSecret")));
+  }
+
+  @Test
+  public void shouldNotCallMethodsWithInaccessibleTypes() throws Exception {
+    assertNull(LambdaMethodInvoker.forMethod(Bean.class.getMethod("setKind", Kind.class)));
+    assertNull(LambdaMethodInvoker.forMethod(Bean.class.getMethod("getKinds")));
+    Bean bean = new Bean();
+    new DefaultReflectorFactory().findForClass(Bean.class).getSetInvoker("kind").invoke(bean, new Object[] { Kind.SMALL });
+    assertEquals(Kind.SMALL, bean.kind);
+  }
+
+  @Test
+  public void shouldBeUsedByReflector() throws Exception {
+    Reflector reflector = new DefaultReflectorFactory().findForClass(Bean.class);
+    assertTrue(reflector.getSetInvoker("id") instanceof LambdaMethodInvoker);
+    assertTrue(new DefaultReflectorFactory().findForClass(HiddenBean.class).getGetInvoker("id") instanceof MethodInvoker);
+  }
+
+  public static class Bean {
+    private int id;
+    private String name;
+    private Kind kind;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public Bean setName(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public void setKind(Kind kind) {
+      this.kind = kind;
+    }
+
+    public Kind[] getKinds() {
+      return new Kind[] { kind };
+    }
+
+    public String getFailure() {
+      throw new IllegalStateException();
+    }
+
+    public static String getStatic() {
+      return "static";
+    }
+
+    String getSecret() {
+      return "secret";
+    }
+  }
+
+  enum Kind {
+    SMALL
+  }
+
+  static class HiddenBean {
+    public int getId() {
+      return 1;
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.junit.Test;
+
+public class PropertyTokenizerTest {
+
+  @Test
+  public void shouldShareParsedPaths() {
+    PropertyTokenizer prop = PropertyTokenizer.of("blog.author[0].username");
+    assertSame(prop, PropertyTokenizer.of("blog.author[0].username"));
+    assertSame(prop.next(), PropertyTokenizer.of("author[0].username"));
+    assertEquals("author", prop.next().getName());
+    assertEquals("0", prop.next().getIndex());
+    assertEquals("username", prop.next().next().getName());
+  }
+
+  @Test
+  public void shouldKeepSharingUsedPathsWhenManyArePassed() {
+    PropertyTokenizer prop = PropertyTokenizer.of("blog.author.username");
+    for (int i = 0; i < 100000; i++) {
+      PropertyTokenizer.of("__frch_item_" + i);
+      if (i % 1000 == 0) {
+        assertSame(prop, PropertyTokenizer.of("blog.author.username"));
+      }
+    }
+    PropertyTokenizer runtimePath = PropertyTokenizer.of("__frch_item_100000");
+    assertSame(runtimePath, PropertyTokenizer.of("__frch_item_100000"));
+  }
+
+  @Test
+  public void shouldReadNestedPropertiesOfBeansAndMaps() {
+    Blog blog = new Blog();
+    blog.setAuthor(new Author(1, "cbegin", null, null, null, null));
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("blog", blog);
+    Map<String, Object> params = new HashMap<String, Object>();
+    params.put("map", map);
+    assertEquals("cbegin", SystemMetaObject.forObject(params).getValue("map.blog.author.username"));
+    assertEquals("cbegin", SystemMetaObject.forObject(blog).getValue("author.username"));
+    blog.setAuthor(null);
+    assertNull(SystemMetaObject.forObject(params).getValue("map.blog.author.username"));
+  }
+
+}
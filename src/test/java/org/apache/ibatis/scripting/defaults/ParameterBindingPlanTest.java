@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class ParameterBindingPlanTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  public void shouldReadBeanProperties() {
+    List<ParameterMapping> mappings = mappings("id", "username", "author.username");
+    Blog blog = new Blog(1, "title", new Author(2, "jim", "secret", "jim@example.com", "bio", null), null);
+    ParameterBindingPlan plan = ParameterBindingPlan.compile(configuration, mappings, blog.getAuthor());
+    assertEquals(2, plan.getValue(configuration, 0, blog.getAuthor()));
+    assertEquals("jim", plan.getValue(configuration, 1, blog.getAuthor()));
+
+    plan = ParameterBindingPlan.compile(configuration, mappings("id", "author.username"), blog);
+    assertEquals(1, plan.getValue(configuration, 0, blog));
+    assertEquals("jim", plan.getValue(configuration, 1, blog));
+  }
+
+  @Test
+  public void shouldReadMapEntriesAndSimpleValues() {
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("id", 7);
+    List<ParameterMapping> mappings = mappings("id", "missing");
+    ParameterBindingPlan plan = ParameterBindingPlan.compile(configuration, mappings, parameter);
+    assertEquals(7, plan.getValue(configuration, 0, parameter));
+    assertNull(plan.getValue(configuration, 1, parameter));
+
+    plan = ParameterBindingPlan.compile(configuration, mappings, 5);
+    assertEquals(5, plan.getValue(configuration, 0, 5));
+    assertEquals(5, plan.getValue(configuration, 1, 5));
+
+    plan = ParameterBindingPlan.compile(configuration, mappings, null);
+    assertNull(plan.getValue(configuration, 0, null));
+  }
+
+  @Test
+  public void shouldMatchOnlyItsMappingsAndParameterType() {
+    List<ParameterMapping> mappings = mappings("id");
+    ParameterBindingPlan plan = ParameterBindingPlan.compile(configuration, mappings, 5);
+    assertTrue(plan.matches(mappings, 6));
+    assertFalse(plan.matches(mappings, 6L));
+    assertFalse(plan.matches(mappings, null));
+    assertFalse(plan.matches(mappings("id"), 6));
+  }
+
+  private List<ParameterMapping> mappings(String... properties) {
+    List<ParameterMapping> mappings = new ArrayList<ParameterMapping>();
+    for (String property : properties) {
+      mappings.add(new ParameterMapping.Builder(configuration, property, Object.class).build());
+    }
+    return mappings;
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+public class SerialExecutorTest {
+
+  @Test
+  public void shouldRejectQueuedTasksInOrderWhenTheExecutorRejectsThem() {
+    final List<Runnable> accepted = new ArrayList<Runnable>();
+    SerialExecutor serialExecutor = new SerialExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        if (!accepted.isEmpty()) {
+          throw new RejectedExecutionException();
+        }
+        accepted.add(command);
+      }
+    });
+    final List<Integer> completed = new ArrayList<Integer>();
+    final List<Integer> rejected = new ArrayList<Integer>();
+    for (int i = 0; i < 100000; i++) {
+      final int task = i;
+      serialExecutor.execute(new RejectableTask() {
+        @Override
+        public void run() {
+          completed.add(task);
+        }
+
+        @Override
+        public void reject(RuntimeException cause) {
+          assertTrue(cause instanceof RejectedExecutionException);
+          rejected.add(task);
+        }
+      });
+    }
+    assertEquals(0, completed.size());
+
+    accepted.get(0).run();
+    assertEquals(Collections.singletonList(0), completed);
+    assertEquals(99999, rejected.size());
+    for (int i = 0; i < rejected.size(); i++) {
+      assertEquals(i + 1, rejected.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void shouldNotRunRejectedTasksOnTheCallerThread() {
+    final List<Runnable> accepted = new ArrayList<Runnable>();
+    SerialExecutor serialExecutor = new SerialExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        if (!accepted.isEmpty()) {
+          throw new RejectedExecutionException();
+        }
+        accepted.add(command);
+      }
+    });
+    final List<String> ran = new ArrayList<String>();
+    serialExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        ran.add("first");
+      }
+    });
+    serialExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        ran.add("second");
+      }
+    });
+
+    accepted.get(0).run();
+    assertEquals(Collections.singletonList("first"), ran);
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void shouldLetTheCallerKnowItsTaskWasRejected() {
+    new SerialExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    }).execute(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchAutoFlushTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+  }
+
+  @After
+  public void tearDown() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchMaxStatementSize(3);
+    configuration.setBatchMaxParameterObjects(null);
+    configuration.setBatchMaxBytes(null);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      sqlSession.getMapper(Mapper.class).deleteUsers();
+    }
+  }
+
+  @Test
+  public void shouldFlushWhenStatementIsFull() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 7);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(1, results.get(0).getParameterObjects().size());
+      sqlSession.commit();
+    }
+    assertEquals(7, countUsers());
+  }
+
+  @Test
+  public void shouldFlushWhenTooManyParameterObjectsAreQueued() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchMaxStatementSize(null);
+    configuration.setBatchMaxParameterObjects(4);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 10);
+      assertEquals(2, sqlSession.flushStatements().get(0).getParameterObjects().size());
+      sqlSession.commit();
+    }
+    assertEquals(10, countUsers());
+  }
+
+  @Test
+  public void shouldFlushWhenTooManyBytesAreQueued() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchMaxStatementSize(null);
+    configuration.setBatchMaxBytes(1L);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 5);
+      assertEquals(0, sqlSession.flushStatements().size());
+      sqlSession.commit();
+    }
+    assertEquals(5, countUsers());
+  }
+
+  @Test
+  public void shouldNotFlushWithoutThresholds() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchMaxStatementSize(null);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 5);
+      assertEquals(5, sqlSession.flushStatements().get(0).getParameterObjects().size());
+      sqlSession.commit();
+    }
+  }
+
+  private void insertUsers(SqlSession sqlSession, int count) {
+    Mapper mapper = sqlSession.getMapper(Mapper.class);
+    for (int i = 1; i <= count; i++) {
+      User user = new User();
+      user.setId(i);
+      user.setName("User" + i);
+      mapper.insertUser(user);
+    }
+  }
+
+  private int countUsers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).countUsers();
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_nested_select;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchNestedSelectTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/batch_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_nested_select/CreateDB.sql");
+  }
+
+  @Before
+  public void resetCounter() {
+    StatementCounter.COUNT.set(0);
+  }
+
+  @Test
+  public void shouldLoadNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getOrders();
+      // 1 for the orders, 1 for the 2 customers and 3 for the lines of the 5 orders
+      assertEquals(5, StatementCounter.COUNT.get());
+      assertEquals(5, orders.size());
+
+      assertEquals("John", orders.get(0).getCustomer().getName());
+      assertEquals("Jane", orders.get(1).getCustomer().getName());
+      assertSame(orders.get(0).getCustomer(), orders.get(2).getCustomer());
+      assertNull(orders.get(4).getCustomer());
+
+      assertEquals(2, orders.get(0).getLines().size());
+      assertEquals("pen", orders.get(0).getLines().get(0).getName());
+      assertEquals("ink", orders.get(0).getLines().get(1).getName());
+      assertEquals(1, orders.get(1).getLines().size());
+      assertTrue(orders.get(2).getLines().isEmpty());
+      assertEquals(3, orders.get(3).getLines().size());
+      for (Line line : orders.get(3).getLines()) {
+        assertEquals(Integer.valueOf(4), line.getOrderId());
+      }
+      assertEquals("glue", orders.get(4).getLines().get(0).getName());
+    }
+  }
+
+  @Test
+  public void shouldLoadLazyNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getLazyOrders();
+      assertEquals(1, StatementCounter.COUNT.get());
+
+      assertEquals(2, orders.get(0).getLines().size());
+      assertEquals(2, StatementCounter.COUNT.get());
+      // loaded along with the lines of the first order
+      assertEquals(1, orders.get(1).getLines().size());
+      assertEquals(2, StatementCounter.COUNT.get());
+
+      assertEquals("glue", orders.get(4).getLines().get(0).getName());
+      assertEquals(3, StatementCounter.COUNT.get());
+      assertTrue(orders.get(2).getLines().isEmpty());
+      assertEquals(3, StatementCounter.COUNT.get());
+      assertEquals(3, orders.get(3).getLines().size());
+      assertEquals(4, StatementCounter.COUNT.get());
+    }
+  }
+
+  @Test
+  public void shouldLoadNestedSelectsOfEachRowPassedToAResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      final List<Order> orders = new ArrayList<Order>();
+      sqlSession.select("org.apache.ibatis.submitted.batch_nested_select.Mapper.getOrders", new ResultHandler<Order>() {
+        @Override
+        public void handleResult(ResultContext<? extends Order> resultContext) {
+          orders.add(resultContext.getResultObject());
+        }
+      });
+      assertEquals(5, orders.size());
+      assertEquals("John", orders.get(0).getCustomer().getName());
+      assertEquals(2, orders.get(0).getLines().size());
+      assertEquals(3, orders.get(3).getLines().size());
+    }
+  }
+
+  @Test
+  public void shouldLoadNestedSelectsOfEachRowReadFromACursor() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = new ArrayList<Order>();
+      try (Cursor<Order> cursor = sqlSession.selectCursor("org.apache.ibatis.submitted.batch_nested_select.Mapper.getOrders")) {
+        for (Order order : cursor) {
+          orders.add(order);
+        }
+      }
+      assertEquals(5, orders.size());
+      assertEquals("Jane", orders.get(1).getCustomer().getName());
+      assertEquals(1, orders.get(1).getLines().size());
+      assertEquals("glue", orders.get(4).getLines().get(0).getName());
+    }
+  }
+
+}
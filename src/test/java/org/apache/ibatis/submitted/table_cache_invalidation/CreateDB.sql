@@ -0,0 +1,32 @@
+--
+--    Copyright 2009-2018 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table audit if exists;
+drop table product if exists;
+
+create table product (
+  id int,
+  name varchar(20)
+);
+
+create table audit (
+  id int,
+  message varchar(50)
+);
+
+insert into product (id, name) values (1, 'Pen');
+insert into product (id, name) values (2, 'Ink');
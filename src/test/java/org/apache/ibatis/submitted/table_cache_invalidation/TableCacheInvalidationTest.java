@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache_invalidation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TableCacheInvalidationTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache_invalidation/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/table_cache_invalidation/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldKeepCachedResultsWhenAnotherTableIsWritten() throws Exception {
+    assertEquals("Pen", getProductName(1));
+    renameBehindMyBatis(1, "Pencil");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(CatalogMapper.class).insertAudit(1, "audited");
+      sqlSession.commit();
+    }
+    assertEquals("Pen", getProductName(1));
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CatalogMapper mapper = sqlSession.getMapper(CatalogMapper.class);
+      mapper.renameProduct(1, "Marker");
+      // the change is seen by the session that made it
+      assertEquals("Marker", mapper.getProductName(1));
+      sqlSession.commit();
+    }
+    assertEquals("Marker", getProductName(1));
+  }
+
+  @Test
+  public void shouldInvalidateCachedResultsWhenAnotherNamespaceWritesTheirTable() throws Exception {
+    assertEquals("Ink", getProductName(2));
+    renameBehindMyBatis(2, "Toner");
+    assertEquals("Ink", getProductName(2));
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(AdminMapper.class).renameProduct(2, "Cartridge");
+      sqlSession.commit();
+    }
+    assertEquals("Cartridge", getProductName(2));
+  }
+
+  private String getProductName(int id) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(CatalogMapper.class).getProductName(id);
+    }
+  }
+
+  private void renameBehindMyBatis(int id, String name) throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         PreparedStatement statement = connection.prepareStatement("update product set name = ? where id = ?")) {
+      statement.setString(1, name);
+      statement.setInt(2, id);
+      statement.executeUpdate();
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.usesjava8.async_mapper_method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for support the {@code java.util.concurrent.CompletableFuture} as return type of mapper method.
+ *
+ * @since 3.5.0
+ */
+public class AsyncMapperMethodTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader(
+        "org/apache/ibatis/submitted/usesjava8/async_mapper_method/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/usesjava8/async_mapper_method/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldSelectOneAsynchronously() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getUser(1).get().getName());
+      assertTrue(mapper.findUser(2).get().isPresent());
+      assertFalse(mapper.findUser(3).get().isPresent());
+    }
+  }
+
+  @Test
+  public void shouldSelectListAndMapAsynchronously() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<List<User>> users = mapper.getUsers();
+      CompletableFuture<Map<Integer, User>> userMap = mapper.getUserMap();
+      assertEquals(2, users.get().size());
+      assertEquals("User2", userMap.get().get(2).getName());
+    }
+  }
+
+  @Test
+  public void shouldRunStatementsOfOneSessionInOrder() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User();
+      user.setId(3);
+      user.setName("User3");
+      CompletableFuture<Integer> inserted = mapper.insertUser(user);
+      CompletableFuture<User> selected = mapper.getUser(3);
+      assertEquals(Integer.valueOf(1), inserted.get());
+      assertEquals("User3", selected.get().getName());
+      sqlSession.rollback();
+    }
+  }
+
+  @Test
+  public void shouldCompleteExceptionally() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      try {
+        mapper.getFromMissingTable().get();
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof PersistenceException);
+      }
+      // the session is still usable
+      assertEquals(2, mapper.getUsers().get().size());
+    }
+  }
+
+  @Test
+  public void shouldOverlapStatementsOfDifferentSessions() throws Exception {
+    AsyncSqlSession first = new AsyncSqlSession(sqlSessionFactory.openSession());
+    AsyncSqlSession second = new AsyncSqlSession(sqlSessionFactory.openSession());
+    CompletableFuture<User> user1 = first.selectOne("org.apache.ibatis.submitted.usesjava8.async_mapper_method.Mapper.getUser", 1);
+    CompletableFuture<List<User>> users = second.selectList("org.apache.ibatis.submitted.usesjava8.async_mapper_method.Mapper.getUsers");
+    assertEquals("User1", user1.get().getName());
+    assertEquals(2, users.get().size());
+    first.close().get();
+    second.close().get();
+  }
+
+}